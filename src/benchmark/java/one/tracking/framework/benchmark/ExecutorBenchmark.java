@@ -0,0 +1,121 @@
+/**
+ *
+ */
+package one.tracking.framework.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import one.tracking.framework.component.ThreadingComponent;
+
+/**
+ * Compares the fixed platform thread pool of the reminder scheduler with virtual threads for
+ * blocking tasks. Each task performs a simulated database call limited by <code>dbPermits</code>
+ * followed by a simulated HTTP call limited by <code>httpPermits</code>. The virtual mode requires a
+ * Java 21 runtime.
+ *
+ * @author Marko Voß
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ExecutorBenchmark {
+
+  @Param({"platform", "virtual"})
+  private String mode;
+
+  @Param({"1000"})
+  private int tasks;
+
+  @Param({"10"})
+  private int platformThreads;
+
+  @Param({"10"})
+  private int dbPermits;
+
+  @Param({"20"})
+  private int httpPermits;
+
+  @Param({"2"})
+  private long dbLatencyMillis;
+
+  @Param({"20"})
+  private long httpLatencyMillis;
+
+  private ExecutorService executor;
+
+  private Semaphore dbSemaphore;
+
+  private Semaphore httpSemaphore;
+
+  @Setup(Level.Trial)
+  public void setup() {
+
+    this.executor = "virtual".equals(this.mode)
+        ? ThreadingComponent.newVirtualThreadExecutor("Benchmark-")
+        : Executors.newFixedThreadPool(this.platformThreads);
+
+    if (this.executor == null)
+      throw new IllegalStateException("Virtual threads are not supported by this runtime: " + Runtime.version());
+
+    this.dbSemaphore = new Semaphore(this.dbPermits, true);
+    this.httpSemaphore = new Semaphore(this.httpPermits, true);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    this.executor.shutdownNow();
+  }
+
+  @Benchmark
+  public int blockingTasks() throws Exception {
+
+    final List<Future<Integer>> futures = new ArrayList<>(this.tasks);
+
+    for (int i = 0; i < this.tasks; i++) {
+      final int value = i;
+      futures.add(this.executor.submit(() -> {
+        block(this.dbSemaphore, this.dbLatencyMillis);
+        block(this.httpSemaphore, this.httpLatencyMillis);
+        return value;
+      }));
+    }
+
+    int result = 0;
+    for (final Future<Integer> future : futures)
+      result += future.get();
+
+    return result;
+  }
+
+  private static void block(final Semaphore semaphore, final long latencyMillis) throws InterruptedException {
+
+    semaphore.acquire();
+    try {
+      Thread.sleep(latencyMillis);
+    } finally {
+      semaphore.release();
+    }
+  }
+}
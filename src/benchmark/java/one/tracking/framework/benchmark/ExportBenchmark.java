@@ -0,0 +1,187 @@
+/**
+ *
+ */
+package one.tracking.framework.benchmark;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.persistence.EntityManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.support.TransactionTemplate;
+import one.tracking.framework.SurveyManagementApplication;
+import one.tracking.framework.component.SurveyDataExportComponent;
+import one.tracking.framework.domain.ExportFormat;
+import one.tracking.framework.domain.ExportOptions;
+import one.tracking.framework.entity.SurveyInstance;
+import one.tracking.framework.entity.SurveyResponse;
+import one.tracking.framework.entity.User;
+import one.tracking.framework.entity.health.StepCount;
+import one.tracking.framework.entity.meta.Survey;
+import one.tracking.framework.entity.meta.question.Question;
+import one.tracking.framework.integration.HelperBean;
+import one.tracking.framework.integration.ITConfiguration;
+
+/**
+ * Measures the rows per second of the data export end to end, i.e. including the paged queries
+ * against an in-memory H2 database. Each trial starts the application and inserts
+ * {@value #SURVEY_RESPONSES} survey responses and {@value #STEP_COUNTS} step counts. Formats
+ * not supporting segmented sheets are always exported in a single slice.
+ *
+ * @author Marko Voß
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@OperationsPerInvocation(ExportBenchmark.SURVEY_RESPONSES + ExportBenchmark.STEP_COUNTS)
+@Warmup(iterations = 3, time = 10)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class ExportBenchmark {
+
+  static final int SURVEY_RESPONSES = 50000;
+
+  static final int STEP_COUNTS = 50000;
+
+  private static final int USERS = 100;
+
+  private static final int CHUNK_SIZE = 5000;
+
+  @Param({"XLSX", "CSV", "JSONL"})
+  private ExportFormat format;
+
+  @Param({"1", "4"})
+  private int slices;
+
+  private ConfigurableApplicationContext context;
+
+  private SurveyDataExportComponent exportComponent;
+
+  private ExportOptions options;
+
+  private Instant startTime;
+
+  private Instant endTime;
+
+  @Setup(Level.Trial)
+  public void setup() {
+
+    this.context = new SpringApplicationBuilder(SurveyManagementApplication.class, ITConfiguration.class)
+        .profiles("dev")
+        .properties(
+            "spring.datasource.url=jdbc:h2:mem:benchmark-" + System.nanoTime() + ";MODE=MySQL",
+            "spring.jpa.hibernate.ddl-auto=create-drop",
+            "server.port=0",
+            "logging.level.one.tracking.framework=WARN")
+        .run();
+
+    this.exportComponent = this.context.getBean(SurveyDataExportComponent.class);
+    this.options = ExportOptions.builder()
+        .format(this.format)
+        .slices(this.format.isSegmentable() ? this.slices : 1)
+        .build();
+
+    this.startTime = Instant.now();
+    insertData();
+    this.endTime = Instant.now();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    this.context.close();
+  }
+
+  @Benchmark
+  public long export() throws IOException {
+
+    final AtomicLong rowsWritten = new AtomicLong();
+
+    this.exportComponent.export(this.startTime, this.endTime, this.options, OutputStream.nullOutputStream(),
+        rowsWritten);
+
+    if (rowsWritten.get() != SURVEY_RESPONSES + STEP_COUNTS)
+      throw new IllegalStateException("Unexpected amount of rows exported: " + rowsWritten.get());
+
+    return rowsWritten.get();
+  }
+
+  private void insertData() {
+
+    final HelperBean helperBean = this.context.getBean(HelperBean.class);
+    final TransactionTemplate transactionTemplate = this.context.getBean(TransactionTemplate.class);
+    final EntityManager entityManager = this.context.getBean(EntityManager.class);
+
+    final List<User> users = new ArrayList<>(USERS);
+    for (int i = 0; i < USERS; i++) {
+      users.add(helperBean.createUser(null));
+    }
+
+    final Survey survey = helperBean.createSimpleSurvey("BENCHMARK", false);
+    final Question question = survey.getQuestions().get(0);
+
+    final SurveyInstance instance = transactionTemplate.execute(status -> {
+
+      final SurveyInstance result = SurveyInstance.builder()
+          .startTime(this.startTime.minus(Duration.ofDays(7)))
+          .endTime(this.startTime.plus(Duration.ofDays(7)))
+          .survey(survey)
+          .token("TOKEN")
+          .build();
+
+      entityManager.persist(result);
+      return result;
+    });
+
+    for (int offset = 0; offset < Math.max(SURVEY_RESPONSES, STEP_COUNTS); offset += CHUNK_SIZE) {
+
+      final int chunkOffset = offset;
+
+      transactionTemplate.executeWithoutResult(status -> {
+        for (int i = chunkOffset; i < chunkOffset + CHUNK_SIZE; i++) {
+
+          final User user = users.get(i % USERS);
+
+          if (i < SURVEY_RESPONSES)
+            entityManager.persist(SurveyResponse.builder()
+                .boolAnswer(i % 2 == 0)
+                .surveyInstance(instance)
+                .question(question)
+                .user(user)
+                .valid(true)
+                .build());
+
+          if (i < STEP_COUNTS) {
+            final Instant start = this.startTime.minus(Duration.ofMinutes(i));
+            entityManager.persist(StepCount.builder()
+                .user(user)
+                .startTime(start)
+                .endTime(start.plus(Duration.ofMinutes(1)))
+                .stepCount(i % 200)
+                .build());
+          }
+        }
+      });
+    }
+  }
+}
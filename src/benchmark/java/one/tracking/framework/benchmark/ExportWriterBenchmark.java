@@ -0,0 +1,155 @@
+/**
+ *
+ */
+package one.tracking.framework.benchmark;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import one.tracking.framework.component.export.CsvExportWriter;
+import one.tracking.framework.component.export.ExportWriter;
+import one.tracking.framework.component.export.ExportWriter.SheetWriter;
+import one.tracking.framework.component.export.JsonlExportWriter;
+import one.tracking.framework.component.export.XlsxExportWriter;
+import one.tracking.framework.domain.ExportColumn;
+import one.tracking.framework.domain.ExportFormat;
+import one.tracking.framework.domain.SurveyResponseRow;
+
+/**
+ * Measures the rows per second the export writers encode, including the extraction of the cell
+ * values from the rows as performed by the data export. The rows are synthetic and kept in memory,
+ * the output is discarded, so the database is not involved at all.
+ *
+ * @author Marko Voß
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@OperationsPerInvocation(ExportWriterBenchmark.ROWS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ExportWriterBenchmark {
+
+  static final int ROWS = 100000;
+
+  private static final int USERS = 1000;
+
+  private static final String[] QUESTION_TYPES = {"BOOL", "NUMBER", "TEXT", "CHOICE", "CHECKLIST"};
+
+  @Param({"XLSX", "CSV", "CSV_GZ", "JSONL", "JSONL_GZ"})
+  private ExportFormat format;
+
+  private List<SurveyResponseRow> rows;
+
+  private List<ExportColumn> columns;
+
+  private List<String> header;
+
+  @Setup(Level.Trial)
+  public void setup() {
+
+    this.columns = this.format.isTyped() ? ExportColumn.TYPED : ExportColumn.DEFAULT;
+    this.header = this.columns.stream().map(ExportColumn::getHeader).collect(Collectors.toList());
+    this.rows = createRows(ROWS);
+  }
+
+  @Benchmark
+  public int writeRows() throws IOException {
+
+    try (final ExportWriter writer = createWriter(this.format, OutputStream.nullOutputStream())) {
+
+      final SheetWriter sheet = writer.createSheet("survey", this.header);
+
+      for (final SurveyResponseRow row : this.rows) {
+
+        final Object[] values = new Object[this.columns.size()];
+        for (int i = 0; i < values.length; i++)
+          values[i] = this.columns.get(i).getValue(row);
+
+        sheet.writeRow(values);
+      }
+
+      sheet.close();
+      writer.finish();
+    }
+
+    return this.rows.size();
+  }
+
+  private static ExportWriter createWriter(final ExportFormat format, final OutputStream outStream)
+      throws IOException {
+
+    switch (format) {
+      case CSV:
+        return new CsvExportWriter(outStream, false);
+      case CSV_GZ:
+        return new CsvExportWriter(outStream, true);
+      case JSONL:
+        return new JsonlExportWriter(outStream, false);
+      case JSONL_GZ:
+        return new JsonlExportWriter(outStream, true);
+      case XLSX:
+      default:
+        return new XlsxExportWriter(outStream);
+    }
+  }
+
+  /*
+   * Rows cycle through the question types, so that every answer column gets populated
+   */
+  private static List<SurveyResponseRow> createRows(final int count) {
+
+    final Instant firstCreatedAt = Instant.parse("2020-01-01T00:00:00Z");
+    final List<SurveyResponseRow> result = new ArrayList<>(count);
+
+    for (int i = 0; i < count; i++) {
+
+      final String questionType = QUESTION_TYPES[i % QUESTION_TYPES.length];
+      final Instant createdAt = firstCreatedAt.plus(Duration.ofSeconds(i));
+
+      result.add(SurveyResponseRow.builder()
+          .id((long) i)
+          .nameId("SURVEY_" + i % 10)
+          .instanceId((long) i % 100)
+          .startTime(firstCreatedAt)
+          .endTime(firstCreatedAt.plus(Duration.ofDays(7)))
+          .userId("user-" + i % USERS)
+          .questionId((long) i % 50)
+          .order(i % 50)
+          .questionType(questionType)
+          .question("How would you rate question number " + i % 50 + "?")
+          .checkListEntry("CHECKLIST".equals(questionType) ? "Entry " + i % 5 : null)
+          .boolAnswer("BOOL".equals(questionType) || "CHECKLIST".equals(questionType) ? i % 2 == 0 : null)
+          .numberAnswer("NUMBER".equals(questionType) ? i % 100 : null)
+          .textAnswer("TEXT".equals(questionType) ? "Free text answer, \"quoted\" " + i : null)
+          .predefinedAnswer("CHOICE".equals(questionType) ? "Option " + i % 4 : null)
+          .version(i % 3)
+          .skipped(false)
+          .valid(true)
+          .createdAt(createdAt)
+          .build());
+    }
+
+    return result;
+  }
+}
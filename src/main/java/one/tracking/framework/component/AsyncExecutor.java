@@ -4,9 +4,11 @@
 package one.tracking.framework.component;
 
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Component;
 import org.springframework.util.Assert;
+import one.tracking.framework.config.ServicesConfig;
 
 /**
  * @author Marko Voß
@@ -22,8 +24,32 @@ public class AsyncExecutor {
     default void after() throws Exception {}
   }
 
-  @Async
-  public <V> V execute(final AsyncTask<V> task) throws Exception {
+  /**
+   * Executes the specified task on the bounded import executor.
+   *
+   * @throws org.springframework.core.task.TaskRejectedException if the executor is saturated
+   */
+  @Async(ServicesConfig.IMPORT_EXECUTOR)
+  public <V> V executeImport(final AsyncTask<V> task) throws Exception {
+    return execute(task);
+  }
+
+  /**
+   * Executes the specified task on the bounded export executor.
+   *
+   * @throws org.springframework.core.task.TaskRejectedException if the executor is saturated
+   */
+  @Async(ServicesConfig.EXPORT_EXECUTOR)
+  public <V> CompletableFuture<V> executeExport(final AsyncTask<V> task) {
+
+    try {
+      return CompletableFuture.completedFuture(execute(task));
+    } catch (final Exception e) {
+      return CompletableFuture.failedFuture(e);
+    }
+  }
+
+  private <V> V execute(final AsyncTask<V> task) throws Exception {
 
     Assert.notNull(task, "Task must not be null.");
 
@@ -0,0 +1,90 @@
+/**
+ *
+ */
+package one.tracking.framework.component;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.util.Assert;
+import one.tracking.framework.config.ExecutorProperties;
+import one.tracking.framework.config.ExportProperties;
+
+/**
+ * Admits exports to the bounded export executor. Each admitted export holds a slot, i.e. a thread or a
+ * place in the queue of the executor, until it has been performed, so the executor never rejects
+ * admitted exports and the queue position of an export is known at admission. The last
+ * <code>app.export.reservedSlots</code> slots are only available to export jobs and recurring exports.
+ * <br/>
+ * <br/>
+ * Admission is a single compare-and-set, so concurrent requests never exceed the slots.
+ *
+ * @author Marko Voß
+ *
+ */
+@Component
+public class ExportAdmissionComponent {
+
+  @Autowired
+  private ExecutorProperties executorConfig;
+
+  @Autowired
+  private ExportProperties exportConfig;
+
+  private final AtomicInteger admitted = new AtomicInteger();
+
+  private int threads;
+
+  private int slots;
+
+  private int reservedSlots;
+
+  @PostConstruct
+  public void init() {
+
+    this.threads = this.executorConfig.getExport().getMaxSize();
+    this.slots = this.threads + this.executorConfig.getExport().getQueueCapacity();
+    this.reservedSlots = this.exportConfig.getReservedSlots();
+
+    Assert.isTrue(this.reservedSlots < this.slots,
+        "app.export.reservedSlots must be less than the threads and queue capacity of the export executor.");
+  }
+
+  /**
+   * Admits an export, which must {@link #release()} its slot once it has been performed.
+   *
+   * @param reserved whether the export may use the reserved slots, i.e. is an export job or a recurring
+   *        export
+   * @return the position of the export within the queue of the export executor starting at 1 or 0, if
+   *         the export starts immediately
+   * @throws RejectedExecutionException if no slot is available
+   */
+  public int acquire(final boolean reserved) {
+
+    final int limit = reserved ? this.slots : this.slots - this.reservedSlots;
+
+    while (true) {
+
+      final int current = this.admitted.get();
+
+      if (current >= limit)
+        throw new RejectedExecutionException("Too many exports are running. Please try again later.");
+
+      if (this.admitted.compareAndSet(current, current + 1))
+        return Math.max(0, current + 1 - this.threads);
+    }
+  }
+
+  public void release() {
+    this.admitted.decrementAndGet();
+  }
+
+  /**
+   * @return the amount of admitted exports
+   */
+  public int getAdmitted() {
+    return this.admitted.get();
+  }
+}
@@ -0,0 +1,245 @@
+/**
+ *
+ */
+package one.tracking.framework.component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import one.tracking.framework.component.export.ExportFiles;
+import one.tracking.framework.config.ExportProperties;
+import one.tracking.framework.domain.ExportColumn;
+import one.tracking.framework.domain.ExportOptions;
+
+/**
+ * Caches exports of closed intervals on the local disk. Rows of such intervals may still get updated,
+ * e.g. by late commits, changes of their validity or the step count rollup, so the key of an export
+ * includes the version of its data as provided by
+ * {@link SurveyDataExportComponent#getDataVersion(Instant, Instant, ExportOptions)}. Exports are
+ * evicted in least recently used order as soon as the total size exceeds
+ * <code>app.export.cache.maxSize</code>.
+ * <br/>
+ * <br/>
+ * Cached exports are opened while holding the lock of the cache, so that an export being read stays
+ * readable even if it gets evicted concurrently.
+ *
+ * @author Marko Voß
+ *
+ */
+@Component
+public class ExportCacheComponent {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ExportCacheComponent.class);
+
+  private static final String FILE_SUFFIX = ".export";
+
+  @Autowired
+  private ExportProperties exportConfig;
+
+  /*
+   * File sizes by key in access order
+   */
+  private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+  private Path directory;
+
+  private long size;
+
+  @PostConstruct
+  public void init() throws IOException {
+
+    if (!isEnabled())
+      return;
+
+    this.directory = ExportFiles.createPrivateDirectory(Paths.get(this.exportConfig.getCache().getDirectory()));
+
+    // Exports cached before a restart are kept in order of their last modification
+    final List<Path> files;
+    try (Stream<Path> stream = Files.list(this.directory)) {
+      files = stream.sorted(Comparator.comparing(ExportCacheComponent::getLastModified))
+          .collect(Collectors.toList());
+    }
+
+    for (final Path file : files) {
+
+      final String fileName = file.getFileName().toString();
+
+      if (fileName.endsWith(FILE_SUFFIX)) {
+        final long fileSize = Files.size(file);
+        this.entries.put(fileName.substring(0, fileName.length() - FILE_SUFFIX.length()), fileSize);
+        this.size += fileSize;
+      } else
+        // Remainders of interrupted writes
+        Files.deleteIfExists(file);
+    }
+
+    evict(null);
+
+    LOG.info("Export cache initialized. [directory: {}, entries: {}, size: {}]",
+        this.directory, this.entries.size(), this.size);
+  }
+
+  private static Instant getLastModified(final Path file) {
+
+    try {
+      return Files.getLastModifiedTime(file).toInstant();
+    } catch (final IOException e) {
+      return Instant.EPOCH;
+    }
+  }
+
+  public boolean isEnabled() {
+    return this.exportConfig.getCache().getEnabled();
+  }
+
+  /**
+   * @param endTime
+   * @return <code>true</code> if the cache is enabled and the specified interval end is in the past
+   */
+  public boolean isCacheable(final Instant endTime) {
+    return isEnabled() && endTime.isBefore(Instant.now());
+  }
+
+  /**
+   * @param startTime
+   * @param endTime
+   * @param options
+   * @param dataVersion
+   * @return the key identifying the content of the specified export, which may be used as entity tag
+   */
+  public static String getKey(final Instant startTime, final Instant endTime, final ExportOptions options,
+      final String dataVersion) {
+
+    // Slices do not affect the content
+    final String content = dataVersion + "|" + startTime + "|" + endTime + "|" + options.getFormat().getValue()
+        + "|" + options.getLayout().getValue() + "|" + options.getStepCounts().getValue()
+        + "|" + sorted(options.getNameIds()) + "|" + sorted(options.getVersions())
+        + "|" + (options.getColumns() == null ? ""
+            : options.getColumns().stream().map(ExportColumn::getValue).collect(Collectors.joining(",")));
+
+    try {
+      final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      final byte[] hash = digest.digest(content.getBytes(StandardCharsets.UTF_8));
+
+      final StringBuilder result = new StringBuilder(hash.length * 2);
+      for (final byte b : hash)
+        result.append(String.format("%02x", b));
+
+      return result.toString();
+
+    } catch (final NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /*
+   * Filters are sets, so their order must not affect the key
+   */
+  private static String sorted(final Set<?> values) {
+    return values == null ? "" : new TreeSet<>(values).toString();
+  }
+
+  /**
+   * Creates a temporary file within the cache directory, which can be moved into the cache by
+   * {@link #put(String, Path)}.
+   *
+   * @return
+   * @throws IOException
+   */
+  public Path createTempFile() throws IOException {
+    return Files.createTempFile(this.directory, "export", ".tmp");
+  }
+
+  /**
+   * @param key
+   * @return the stream of the cached export or <code>null</code> if not cached
+   * @throws IOException
+   */
+  public synchronized InputStream get(final String key) throws IOException {
+
+    if (this.entries.get(key) == null)
+      return null;
+
+    final Path file = getFile(key);
+
+    // Updates the order of the eviction as well
+    Files.setLastModifiedTime(file, FileTime.from(Instant.now()));
+
+    return Files.newInputStream(file);
+  }
+
+  /**
+   * Moves the specified file into the cache and evicts least recently used exports, if required.
+   *
+   * @param key
+   * @param file
+   * @throws IOException
+   */
+  public synchronized void put(final String key, final Path file) throws IOException {
+
+    final Path target = getFile(key);
+    final long fileSize = Files.size(file);
+
+    Files.move(file, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+    final Long previousSize = this.entries.put(key, fileSize);
+    this.size += fileSize - (previousSize == null ? 0 : previousSize);
+
+    evict(key);
+  }
+
+  private Path getFile(final String key) {
+    return this.directory.resolve(key + FILE_SUFFIX);
+  }
+
+  /*
+   * Evicts least recently used exports except the specified one until the maximum size is satisfied
+   */
+  private void evict(final String retainedKey) {
+
+    final long maxSize = this.exportConfig.getCache().getMaxSize().toBytes();
+    final Iterator<Map.Entry<String, Long>> iterator = this.entries.entrySet().iterator();
+
+    while (this.size > maxSize && iterator.hasNext()) {
+
+      final Map.Entry<String, Long> entry = iterator.next();
+
+      if (entry.getKey().equals(retainedKey))
+        continue;
+
+      try {
+        Files.deleteIfExists(getFile(entry.getKey()));
+      } catch (final IOException e) {
+        LOG.warn("Unable to delete cached export: " + entry.getKey(), e);
+        continue;
+      }
+
+      iterator.remove();
+      this.size -= entry.getValue();
+
+      LOG.debug("Evicted cached export: {}", entry.getKey());
+    }
+  }
+}
@@ -0,0 +1,285 @@
+/**
+ *
+ */
+package one.tracking.framework.component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.Trigger;
+import org.springframework.scheduling.TriggerContext;
+import org.springframework.scheduling.support.CronTrigger;
+import org.springframework.stereotype.Component;
+import one.tracking.framework.component.export.ExportFiles;
+import one.tracking.framework.config.ExportProperties;
+import one.tracking.framework.config.ExportProperties.SpoolJob;
+import one.tracking.framework.domain.ExportFormat;
+import one.tracking.framework.domain.ExportOptions;
+import one.tracking.framework.domain.Lease;
+import one.tracking.framework.entity.ExportSpoolState;
+
+/**
+ * Writes recurring exports into the spool directory, so that consumers can pick up the same export
+ * without putting load on the database. Each trigger exports the configured window ending at the
+ * scheduled execution time (UTC) of the trigger into the file
+ * <code>&lt;name&gt;_&lt;yyyyMMdd_HHmm&gt;.&lt;extension&gt;</code>.<br/>
+ * <br/>
+ * All nodes trigger the exports, but the lease of the export and the end of the window exported last,
+ * which is stored in the database, ensure that each file is produced by one node only, even if the
+ * nodes do not share the spool directory. Files are written to a temporary name first and renamed
+ * once complete.
+ *
+ * @author Marko Voß
+ *
+ */
+@Component
+public class ExportSpoolComponent {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ExportSpoolComponent.class);
+
+  private static final String TASK_SPOOL_PREFIX = "EXPORT_SPOOL_";
+
+  private static final String SUFFIX_PARTIAL = ".part";
+
+  private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyyMMdd_HHmm")
+      .withZone(ZoneOffset.UTC);
+
+  @Autowired
+  private ExportProperties exportConfig;
+
+  @Autowired
+  private SurveyDataExportComponent exportComponent;
+
+  @Autowired
+  private LockerComponent lockerComponent;
+
+  @Autowired
+  private AsyncExecutor asyncExecutor;
+
+  @Autowired
+  private ExportAdmissionComponent exportAdmission;
+
+  @Autowired
+  private TaskScheduler taskScheduler;
+
+  @Autowired
+  private EntityManager entityManager;
+
+  private final List<ScheduledFuture<?>> futures = new ArrayList<>();
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void start() throws IOException {
+
+    final List<SpoolJob> jobs = this.exportConfig.getSpool().getJobs();
+
+    if (jobs == null || jobs.isEmpty())
+      return;
+
+    ExportFiles.createPrivateDirectory(getDirectory());
+
+    for (final SpoolJob job : jobs) {
+
+      // Fail early on invalid formats
+      ExportFormat.fromValue(job.getFormat());
+
+      LOG.info("Scheduling recurring export '{}' [cron: {}]", job.getName(), job.getCron());
+
+      final ScheduledTrigger trigger =
+          new ScheduledTrigger(new CronTrigger(job.getCron(), TimeZone.getTimeZone(ZoneOffset.UTC)));
+
+      this.futures.add(this.taskScheduler.schedule(() -> trigger(job, trigger), trigger));
+    }
+  }
+
+  @PreDestroy
+  public void stop() {
+    this.futures.forEach(future -> future.cancel(false));
+  }
+
+  /*
+   * The scheduler only triggers the export, which is performed by the bounded export executor
+   */
+  void trigger(final SpoolJob job, final ScheduledTrigger trigger) {
+
+    // All nodes must derive the same file from the same trigger, even if the scheduler is late
+    final Instant endTime = trigger.getScheduledTime().truncatedTo(ChronoUnit.MINUTES);
+
+    try {
+      // Recurring exports may use the slots reserved for them, so streamed exports cannot starve them
+      this.exportAdmission.acquire(true);
+
+    } catch (final RejectedExecutionException e) {
+      LOG.warn("Recurring export '{}' SKIPPED: Export executor saturated.", job.getName());
+      return;
+    }
+
+    try {
+      this.asyncExecutor.executeExport(() -> {
+        try {
+          spool(job, endTime);
+          return null;
+        } finally {
+          this.exportAdmission.release();
+        }
+      });
+
+    } catch (final TaskRejectedException e) {
+      this.exportAdmission.release();
+      LOG.warn("Recurring export '{}' SKIPPED: Export executor saturated.", job.getName());
+    }
+  }
+
+  private void spool(final SpoolJob job, final Instant endTime) throws IOException {
+
+    final Lease lease = this.lockerComponent.acquire(TASK_SPOOL_PREFIX + job.getName());
+
+    if (lease == null)
+      return;
+
+    try {
+      final ExportFormat format = ExportFormat.fromValue(job.getFormat());
+      final Path file = getDirectory().resolve(
+          job.getName() + "_" + FORMATTER.format(endTime) + "." + format.getFileExtension());
+
+      final ExportSpoolState state = this.lockerComponent.executeFenced(lease,
+          status -> this.entityManager.find(ExportSpoolState.class, job.getName()));
+
+      // Another node exported the window already, possibly into its own spool directory
+      if (state != null && !state.getEndTime().isBefore(endTime))
+        return;
+
+      LOG.debug("Recurring export '{}' START [file: {}]", job.getName(), file);
+
+      final Path partial = file.resolveSibling(file.getFileName() + SUFFIX_PARTIAL);
+      final AtomicLong rowsWritten = new AtomicLong();
+
+      try {
+        try (final OutputStream outStream = Files.newOutputStream(partial)) {
+          this.exportComponent.export(endTime.minus(job.getWindow()), endTime,
+              ExportOptions.builder().format(format).build(), outStream, rowsWritten);
+        }
+
+        // Do not publish the file if another node took over meanwhile. The file gets published within
+        // the fenced transaction, so the window is not recorded as exported unless it has been published.
+        this.lockerComponent.executeFencedWithoutResult(lease, status -> {
+
+          this.entityManager.merge(ExportSpoolState.builder()
+              .name(job.getName())
+              .endTime(endTime)
+              .updatedAt(Instant.now())
+              .build());
+
+          status.flush();
+
+          try {
+            Files.move(partial, file, StandardCopyOption.ATOMIC_MOVE);
+          } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+          }
+        });
+
+      } finally {
+        Files.deleteIfExists(partial);
+      }
+
+      LOG.debug("Recurring export '{}' DONE [rows: {}]", job.getName(), rowsWritten.get());
+
+      deleteExpiredFiles(job, format);
+
+    } catch (final IOException | RuntimeException e) {
+      LOG.error("Recurring export '" + job.getName() + "' FAILED", e);
+      throw e;
+
+    } finally {
+      this.lockerComponent.release(lease);
+    }
+  }
+
+  /*
+   * File names sort by their time, so the oldest files come first. Only the file names of the job
+   * itself match, e.g. not those of the job daily_eu for the job daily.
+   */
+  private void deleteExpiredFiles(final SpoolJob job, final ExportFormat format) throws IOException {
+
+    final Pattern pattern = Pattern.compile(
+        Pattern.quote(job.getName()) + "_\\d{8}_\\d{4}" + Pattern.quote("." + format.getFileExtension()));
+
+    final List<Path> files;
+
+    try (final Stream<Path> stream = Files.list(getDirectory())) {
+      files = stream
+          .filter(f -> pattern.matcher(f.getFileName().toString()).matches())
+          .sorted()
+          .collect(Collectors.toList());
+    }
+
+    final Instant minModified = job.getMaxAge() == null ? null : Instant.now().minus(job.getMaxAge());
+    final List<Path> expired = new ArrayList<>(files.subList(0, Math.max(0, files.size() - job.getMaxFiles())));
+
+    if (minModified != null)
+      for (final Path file : files.subList(expired.size(), files.size()))
+        if (Files.getLastModifiedTime(file).toInstant().isBefore(minModified))
+          expired.add(file);
+
+    for (final Path file : expired) {
+      LOG.debug("Recurring export '{}' EXPIRED [file: {}]", job.getName(), file);
+      Files.deleteIfExists(file);
+    }
+  }
+
+  private Path getDirectory() {
+    return Paths.get(this.exportConfig.getSpool().getDirectory());
+  }
+
+  /**
+   * Records the execution time the scheduler computed last, which is the scheduled time of the
+   * execution running, as the next one is only computed once it completed.
+   */
+  static final class ScheduledTrigger implements Trigger {
+
+    private final Trigger trigger;
+
+    private volatile Date scheduledTime;
+
+    ScheduledTrigger(final Trigger trigger) {
+      this.trigger = trigger;
+    }
+
+    @Override
+    public Date nextExecutionTime(final TriggerContext triggerContext) {
+      this.scheduledTime = this.trigger.nextExecutionTime(triggerContext);
+      return this.scheduledTime;
+    }
+
+    Instant getScheduledTime() {
+      return this.scheduledTime.toInstant();
+    }
+  }
+}
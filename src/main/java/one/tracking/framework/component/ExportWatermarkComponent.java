@@ -0,0 +1,144 @@
+/**
+ *
+ */
+package one.tracking.framework.component;
+
+import java.time.Instant;
+import java.util.List;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceException;
+import javax.persistence.Query;
+import javax.persistence.TypedQuery;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import one.tracking.framework.config.ServicesConfig;
+import one.tracking.framework.domain.ExportPosition;
+import one.tracking.framework.domain.Lease;
+import one.tracking.framework.entity.ExportWatermark;
+import one.tracking.framework.exception.ConflictException;
+import one.tracking.framework.exception.LeaseLostException;
+
+/**
+ * Stores the watermarks of incremental exports. A watermark gets advanced by a compare-and-set on its
+ * revision fenced by the lease of the export, so that only one of several concurrent exports of the
+ * same consumer advances it.
+ *
+ * @author Marko Voß
+ *
+ */
+@Component
+public class ExportWatermarkComponent {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ExportWatermarkComponent.class);
+
+  @Autowired
+  @Qualifier(ServicesConfig.READ_COMMITTED_TRANSACTION_TEMPLATE)
+  private TransactionTemplate readCommittedTransactionTemplate;
+
+  @Autowired
+  private EntityManager entityManager;
+
+  @Autowired
+  private LockerComponent lockerComponent;
+
+  /**
+   * @param consumer
+   * @return the watermark of the specified consumer or a new, not persisted watermark with revision
+   *         <code>0</code>
+   */
+  public ExportWatermark getWatermark(final String consumer) {
+
+    // Watermarks inserted by exports rolled back later must not be read
+    final List<ExportWatermark> result = this.readCommittedTransactionTemplate.execute(status -> {
+
+      final TypedQuery<ExportWatermark> query = this.entityManager.createQuery(
+          "SELECT w FROM ExportWatermark w WHERE w.consumer = ?1", ExportWatermark.class);
+      query.setParameter(1, consumer);
+
+      return query.getResultList();
+    });
+
+    if (!result.isEmpty())
+      return result.get(0);
+
+    return ExportWatermark.builder()
+        .consumer(consumer)
+        .revision(0)
+        .updatedAt(Instant.EPOCH)
+        .build();
+  }
+
+  /**
+   * Advances the specified watermark to the specified positions, if it has not been advanced since it
+   * has been read and the specified lease is still held. Positions being <code>null</code> are kept.
+   *
+   * @param lease the lease of the export of the consumer
+   * @param watermark the watermark as read by {@link #getWatermark(String)}
+   * @param surveyResponse
+   * @param stepCount
+   * @throws ConflictException if the watermark has been advanced concurrently
+   * @throws LeaseLostException if the lease has been lost
+   */
+  public void advance(final Lease lease, final ExportWatermark watermark, final ExportPosition surveyResponse,
+      final ExportPosition stepCount) {
+
+    final ExportWatermark advanced = watermark.toBuilder()
+        .revision(watermark.getRevision() + 1)
+        .updatedAt(Instant.now())
+        .build();
+
+    if (surveyResponse != null) {
+      advanced.setSurveyResponseCreatedAt(surveyResponse.getCreatedAt());
+      advanced.setSurveyResponseId(surveyResponse.getId());
+    }
+
+    if (stepCount != null) {
+      advanced.setStepCountCreatedAt(stepCount.getCreatedAt());
+      advanced.setStepCountId(stepCount.getId());
+    }
+
+    final boolean updated = watermark.getRevision() == 0 ? insert(lease, advanced) : update(lease, advanced);
+
+    if (!updated)
+      throw new ConflictException("Watermark of consumer " + watermark.getConsumer() + " has been advanced"
+          + " concurrently. The exported rows will be exported again.");
+
+    LOG.debug("Advanced watermark of consumer: {} [revision: {}]", advanced.getConsumer(), advanced.getRevision());
+  }
+
+  private boolean insert(final Lease lease, final ExportWatermark watermark) {
+
+    try {
+      this.lockerComponent.executeFencedWithoutResult(lease, status -> this.entityManager.persist(watermark));
+      return true;
+
+    } catch (final DataIntegrityViolationException | PersistenceException e) {
+      // Another export of the same consumer created the watermark concurrently
+      LOG.debug("Expected violation: {}", e.getMessage());
+      return false;
+    }
+  }
+
+  private boolean update(final Lease lease, final ExportWatermark watermark) {
+
+    final Query update = this.entityManager.createQuery(
+        "UPDATE ExportWatermark w SET w.surveyResponseCreatedAt = ?1, w.surveyResponseId = ?2,"
+            + " w.stepCountCreatedAt = ?3, w.stepCountId = ?4, w.revision = ?5, w.updatedAt = ?6"
+            + " WHERE w.consumer = ?7 AND w.revision = ?8");
+    update.setParameter(1, watermark.getSurveyResponseCreatedAt());
+    update.setParameter(2, watermark.getSurveyResponseId());
+    update.setParameter(3, watermark.getStepCountCreatedAt());
+    update.setParameter(4, watermark.getStepCountId());
+    update.setParameter(5, watermark.getRevision());
+    update.setParameter(6, watermark.getUpdatedAt());
+    update.setParameter(7, watermark.getConsumer());
+    update.setParameter(8, watermark.getRevision() - 1);
+
+    return this.lockerComponent.executeFenced(lease, status -> update.executeUpdate()) > 0;
+  }
+}
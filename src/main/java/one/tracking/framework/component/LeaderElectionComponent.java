@@ -0,0 +1,126 @@
+/**
+ *
+ */
+package one.tracking.framework.component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.ScheduledFuture;
+import javax.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Component;
+import one.tracking.framework.config.TimeoutProperties;
+import one.tracking.framework.domain.Lease;
+import one.tracking.framework.domain.LeadershipChangedEvent;
+
+/**
+ * Elects one node as the leader for scheduled tasks by holding the lease {@value #LEADER_TASK}. All
+ * nodes poll for the lease every third of <code>app.timeout.taskLock</code>. The leader keeps the
+ * lease alive by the heartbeat of the {@link LockerComponent} and releases it on shutdown, so that
+ * another node takes over with its next poll. Changes of the leadership are published as
+ * {@link LeadershipChangedEvent}.
+ *
+ * @author Marko Voß
+ *
+ */
+@Component
+public class LeaderElectionComponent {
+
+  private static final Logger LOG = LoggerFactory.getLogger(LeaderElectionComponent.class);
+
+  public static final String LEADER_TASK = "LEADER_REMINDER";
+
+  @Autowired
+  private LockerComponent lockerComponent;
+
+  @Autowired
+  private TimeoutProperties timeoutConfig;
+
+  @Autowired
+  private ApplicationEventPublisher eventPublisher;
+
+  private ThreadPoolTaskScheduler pollScheduler;
+
+  private ScheduledFuture<?> pollFuture;
+
+  private volatile Lease lease;
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void start() {
+
+    this.pollScheduler = new ThreadPoolTaskScheduler();
+    this.pollScheduler.setPoolSize(1);
+    this.pollScheduler.setThreadNamePrefix("LeaderElection-");
+    this.pollScheduler.setDaemon(true);
+    this.pollScheduler.initialize();
+
+    final Duration interval = this.timeoutConfig.getTaskLock().dividedBy(3);
+    this.pollFuture = this.pollScheduler.scheduleAtFixedRate(this::poll, interval);
+  }
+
+  @PreDestroy
+  public void stop() {
+
+    if (this.pollFuture != null)
+      this.pollFuture.cancel(false);
+
+    if (this.pollScheduler != null)
+      this.pollScheduler.shutdown();
+
+    final Lease current = this.lease;
+    if (current != null) {
+      this.lease = null;
+      this.lockerComponent.release(current);
+      LOG.info("Resigned leadership.");
+    }
+  }
+
+  /**
+   * @return <code>true</code> if this node currently holds the leadership
+   */
+  public boolean isLeader() {
+    return isValid(this.lease);
+  }
+
+  private void poll() {
+
+    try {
+      final Lease current = this.lease;
+
+      if (current != null) {
+
+        if (isValid(current))
+          return;
+
+        LOG.warn("Lost leadership [token: {}]", current.getToken());
+        this.lease = null;
+        this.eventPublisher.publishEvent(new LeadershipChangedEvent(false));
+      }
+
+      final Lease acquired = this.lockerComponent.acquire(LEADER_TASK);
+
+      if (acquired != null) {
+        LOG.info("Gained leadership [token: {}]", acquired.getToken());
+        this.lease = acquired;
+        this.eventPublisher.publishEvent(new LeadershipChangedEvent(true));
+      }
+
+    } catch (final Exception e) {
+      LOG.error(e.getMessage(), e);
+    }
+  }
+
+  /*
+   * A lease is considered invalid once it expired, as the heartbeat might have stopped without
+   * marking it as lost, e.g. if the database was not reachable.
+   */
+  private static boolean isValid(final Lease lease) {
+    return lease != null && !lease.isLost() && lease.getExpiresAt().isAfter(Instant.now());
+  }
+}
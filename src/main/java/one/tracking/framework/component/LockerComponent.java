@@ -3,21 +3,41 @@
  */
 package one.tracking.framework.component;
 
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
 import java.time.Instant;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.function.Consumer;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.persistence.EntityManager;
-import javax.persistence.NoResultException;
 import javax.persistence.Query;
 import javax.persistence.TypedQuery;
+import javax.sql.DataSource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
 import org.springframework.transaction.support.TransactionTemplate;
 import one.tracking.framework.config.TimeoutProperties;
-import one.tracking.framework.entity.SchedulerLock;
+import one.tracking.framework.domain.Lease;
+import one.tracking.framework.exception.LeaseLostException;
 
 /**
+ * Provides leases for scheduled tasks, so that a task will be executed by one node only. An acquired
+ * lease is valid for <code>app.timeout.taskLock</code> and gets renewed by a heartbeat every third of
+ * that timeout as long as it is not released. Every acquisition increases the fencing token of the
+ * task, which allows writers to detect that their lease has been taken over by another node.
+ *
  * @author Marko Voß
  *
  */
@@ -35,71 +55,286 @@ public class LockerComponent {
   @Autowired
   private EntityManager entityManager;
 
-  public boolean lock(final String task) {
+  @Autowired
+  private DataSource dataSource;
+
+  /*
+   * Identifies this instance as the owner of leases. Must be unique for every instance even if
+   * multiple instances are running within the same JVM.
+   */
+  private final String owner = UUID.randomUUID().toString();
+
+  private final Map<Lease, ScheduledFuture<?>> heartbeats = new ConcurrentHashMap<>();
+
+  private final Set<String> seededTasks = ConcurrentHashMap.newKeySet();
+
+  private ThreadPoolTaskScheduler heartbeatScheduler;
+
+  private boolean mysql;
+
+  @PostConstruct
+  public void init() throws SQLException {
+
+    try (Connection connection = this.dataSource.getConnection()) {
+      this.mysql = connection.getMetaData().getDatabaseProductName().toLowerCase().contains("mysql");
+    }
+
+    this.heartbeatScheduler = new ThreadPoolTaskScheduler();
+    this.heartbeatScheduler.setPoolSize(1);
+    this.heartbeatScheduler.setThreadNamePrefix("LeaseHeartbeat-");
+    this.heartbeatScheduler.setDaemon(true);
+    this.heartbeatScheduler.initialize();
+  }
+
+  @PreDestroy
+  public void destroy() {
+    this.heartbeatScheduler.shutdown();
+  }
+
+  /**
+   * Try to acquire the lease of the specified task. The lease will be renewed until
+   * {@link #release(Lease)} gets called.
+   *
+   * @param taskName
+   * @return the acquired lease or <code>null</code> if another node holds the lease
+   */
+  public Lease acquire(final String taskName) {
+
+    if (!this.seededTasks.contains(taskName))
+      seed(taskName);
+
+    final Instant now = Instant.now();
+    final Instant expiresAt = now.plus(this.timeoutConfig.getTaskLock());
+
+    /*
+     * Claim the lease with a single conditional update, which only succeeds if the current lease has
+     * expired or has been released. The row lock of the update makes the read of the new token
+     * consistent within the same transaction.
+     */
+    final Query update = this.entityManager.createQuery(
+        "UPDATE SchedulerLease l SET l.token = l.token + 1, l.owner = ?1, l.acquiredAt = ?2, l.expiresAt = ?3"
+            + " WHERE l.taskName = ?4 AND l.expiresAt < ?2");
+    update.setParameter(1, this.owner);
+    update.setParameter(2, now);
+    update.setParameter(3, expiresAt);
+    update.setParameter(4, taskName);
+
+    final TypedQuery<Long> tokenQuery = this.entityManager.createQuery(
+        "SELECT l.token FROM SchedulerLease l WHERE l.taskName = ?1", Long.class);
+    tokenQuery.setParameter(1, taskName);
+
+    final Long token = this.transactionTemplate.execute(status -> {
+      if (update.executeUpdate() == 0)
+        return null;
+      return tokenQuery.getSingleResult();
+    });
+
+    if (token == null)
+      return null;
+
+    LOG.debug("Acquired lease for task: {} [token: {}]", taskName, token);
+
+    final Lease lease = toLease(taskName, token, expiresAt);
+    startHeartbeat(lease);
+    return lease;
+  }
+
+  /**
+   * Create the row of the specified task as a released lease, if it does not exist yet. This is
+   * required only once per task, so that acquiring the lease is always a single conditional update.
+   *
+   * @param taskName
+   */
+  private void seed(final String taskName) {
+
+    final Query insert = this.entityManager.createNativeQuery(this.mysql
+        ? "INSERT IGNORE INTO scheduler_lease (task_name, token, acquired_at, expires_at) VALUES (?1, 0, ?2, ?2)"
+        : "MERGE INTO scheduler_lease t USING (SELECT CAST(?1 AS VARCHAR(191)) AS task_name) s"
+            + " ON (t.task_name = s.task_name)"
+            + " WHEN NOT MATCHED THEN INSERT (task_name, token, acquired_at, expires_at) VALUES (?1, 0, ?2, ?2)");
+    insert.setParameter(1, taskName);
+    insert.setParameter(2, Instant.EPOCH);
 
     try {
-      return lockInternal(task);
+      this.transactionTemplate.executeWithoutResult(status -> insert.executeUpdate());
 
     } catch (final DataIntegrityViolationException e) {
-      // In case of concurrency by multiple instances, failing to store the same entry is valid
-      // Unique index or primary key violation is to be expected
+      // Another instance seeded the same task concurrently
       LOG.debug("Expected violation: {}", e.getMessage());
     }
 
-    return false;
+    this.seededTasks.add(taskName);
   }
 
-  private boolean lockInternal(final String taskName) {
+  private Lease toLease(final String taskName, final long token, final Instant expiresAt) {
 
-    final TypedQuery<SchedulerLock> query =
-        this.entityManager.createQuery("SELECT l FROM SchedulerLock l WHERE l.taskName = ?1", SchedulerLock.class);
-    query.setParameter(1, taskName);
+    return Lease.builder()
+        .taskName(taskName)
+        .owner(this.owner)
+        .token(token)
+        .expiresAt(expiresAt)
+        .build();
+  }
 
-    final SchedulerLock lock = this.transactionTemplate.execute(status -> {
-      status.flush();
-      try {
-        return query.getSingleResult();
-      } catch (final NoResultException e) {
-        return null;
+  private void startHeartbeat(final Lease lease) {
+
+    final Duration interval = this.timeoutConfig.getTaskLock().dividedBy(3);
+
+    this.heartbeats.put(lease, this.heartbeatScheduler.scheduleAtFixedRate(() -> {
+
+      if (!renew(lease)) {
+        LOG.warn("Lost lease for task: {} [token: {}]", lease.getTaskName(), lease.getToken());
+        stopHeartbeat(lease);
       }
-    });
 
-    if (lock == null) {
+    }, Instant.now().plus(interval), interval));
+  }
+
+  private void stopHeartbeat(final Lease lease) {
+
+    final ScheduledFuture<?> future = this.heartbeats.remove(lease);
+    if (future != null)
+      future.cancel(false);
+  }
 
-      LOG.debug("Creating lock for task: {}", taskName);
+  /**
+   * Extend the validity of the specified lease, if it is still held by this instance.
+   *
+   * @param lease
+   * @return <code>false</code> if the lease has been lost
+   */
+  public boolean renew(final Lease lease) {
 
-      this.transactionTemplate.executeWithoutResult(status -> {
-        this.entityManager.persist(SchedulerLock.builder()
-            .taskName(taskName)
-            .timeout((int) this.timeoutConfig.getTaskLock().toSeconds())
-            .build());
-        status.flush();
-      });
+    if (lease.isLost())
+      return false;
 
-      return true;
+    final Instant expiresAt = Instant.now().plus(this.timeoutConfig.getTaskLock());
 
-    } else if (Instant.now().isAfter(lock.getCreatedAt().plusSeconds(lock.getTimeout()))) {
+    final Query query = this.entityManager.createQuery(
+        "UPDATE SchedulerLease l SET l.expiresAt = ?1 WHERE l.taskName = ?2 AND l.token = ?3 AND l.owner = ?4");
+    query.setParameter(1, expiresAt);
+    query.setParameter(2, lease.getTaskName());
+    query.setParameter(3, lease.getToken());
+    query.setParameter(4, lease.getOwner());
 
-      LOG.debug("Updating lock for task: {}", taskName);
+    final boolean renewed = this.transactionTemplate.execute(status -> {
+      final int count = query.executeUpdate();
+      status.flush();
+      return count;
+    }) > 0;
 
-      this.transactionTemplate.executeWithoutResult(status -> {
-        this.entityManager.persist(lock.toBuilder()
-            .createdAt(Instant.now())
-            .timeout((int) this.timeoutConfig.getTaskLock().toSeconds())
-            .build());
-        status.flush();
-      });
+    if (renewed)
+      lease.setExpiresAt(expiresAt);
+    else
+      lease.setLost(true);
 
-      return true;
+    return renewed;
+  }
+
+  /**
+   * Check if the fencing token of the specified lease is still the current token of its task. This
+   * is a read only, so the lease may get lost right after the check. Writes to the database must be
+   * performed using {@link #executeFenced(Lease, TransactionCallback)} instead.
+   *
+   * @param lease
+   * @throws LeaseLostException if the lease has been lost
+   */
+  public void verify(final Lease lease) {
+
+    if (!lease.isLost()) {
+
+      final TypedQuery<Long> query = this.entityManager.createQuery(
+          "SELECT COUNT(l) FROM SchedulerLease l WHERE l.taskName = ?1 AND l.token = ?2 AND l.expiresAt > ?3",
+          Long.class);
+      query.setParameter(1, lease.getTaskName());
+      query.setParameter(2, lease.getToken());
+      query.setParameter(3, Instant.now());
+
+      if (this.transactionTemplate.execute(status -> query.getSingleResult()) > 0)
+        return;
+
+      lease.setLost(true);
     }
 
-    return false;
+    throw newLeaseLostException(lease);
+  }
+
+  /**
+   * Execute the specified writes within a single transaction fenced by the specified lease. The
+   * transaction first renews the lease by a conditional update on its fencing token, which locks the
+   * row of the lease until the transaction completes. Another node can therefore not take over the
+   * lease while the writes are performed, and writes of a lost lease are never committed. In
+   * contrast to {@link #verify(Lease)} this protects the writes themselves.
+   *
+   * @param lease
+   * @param action
+   * @return the result of the specified action
+   * @throws LeaseLostException if the lease has been lost
+   */
+  public <T> T executeFenced(final Lease lease, final TransactionCallback<T> action) {
+
+    if (lease.isLost())
+      throw newLeaseLostException(lease);
+
+    final Instant now = Instant.now();
+    final Instant expiresAt = now.plus(this.timeoutConfig.getTaskLock());
+
+    final Query fence = this.entityManager.createQuery(
+        "UPDATE SchedulerLease l SET l.expiresAt = ?1"
+            + " WHERE l.taskName = ?2 AND l.token = ?3 AND l.owner = ?4 AND l.expiresAt > ?5");
+    fence.setParameter(1, expiresAt);
+    fence.setParameter(2, lease.getTaskName());
+    fence.setParameter(3, lease.getToken());
+    fence.setParameter(4, lease.getOwner());
+    fence.setParameter(5, now);
+
+    final T result = this.transactionTemplate.execute(status -> {
+
+      if (fence.executeUpdate() == 0) {
+        // Roll back the transaction without performing any writes
+        lease.setLost(true);
+        throw newLeaseLostException(lease);
+      }
+
+      return action.doInTransaction(status);
+    });
+
+    lease.setExpiresAt(expiresAt);
+    return result;
   }
 
-  public boolean unlock(final String taskName) {
+  /**
+   * @see #executeFenced(Lease, TransactionCallback)
+   */
+  public void executeFencedWithoutResult(final Lease lease, final Consumer<TransactionStatus> action) {
 
-    final Query query = this.entityManager.createQuery("DELETE FROM SchedulerLock l WHERE l.taskName = ?1");
-    query.setParameter(1, taskName);
+    executeFenced(lease, status -> {
+      action.accept(status);
+      return null;
+    });
+  }
+
+  private static LeaseLostException newLeaseLostException(final Lease lease) {
+    return new LeaseLostException(
+        "Lease for task '" + lease.getTaskName() + "' with token " + lease.getToken() + " has been lost.");
+  }
+
+  /**
+   * Release the specified lease, so that the task can be acquired immediately again. The fencing
+   * token of the task is kept.
+   *
+   * @param lease
+   * @return <code>false</code> if the lease has been lost already
+   */
+  public boolean release(final Lease lease) {
+
+    stopHeartbeat(lease);
+
+    final Query query = this.entityManager.createQuery(
+        "UPDATE SchedulerLease l SET l.owner = NULL, l.expiresAt = ?1 WHERE l.taskName = ?2 AND l.token = ?3");
+    query.setParameter(1, Instant.now());
+    query.setParameter(2, lease.getTaskName());
+    query.setParameter(3, lease.getToken());
 
     return this.transactionTemplate.execute(status -> {
       final int count = query.executeUpdate();
@@ -108,7 +343,6 @@ public class LockerComponent {
     }) > 0;
   }
 
-
   // private boolean lockInternal(final String task) {
   //
   // final Optional<SchedulerLock> lockOp = this.schedulerLockRepository.findByTaskName(task);
@@ -11,6 +11,8 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import javax.persistence.EntityManager;
 import javax.persistence.NoResultException;
@@ -23,10 +25,12 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.transaction.support.TransactionTemplate;
-import com.google.firebase.messaging.BatchResponse;
-import com.google.firebase.messaging.SendResponse;
+import one.tracking.framework.config.StreamingProperties;
+import one.tracking.framework.domain.Lease;
 import one.tracking.framework.domain.Period;
+import one.tracking.framework.domain.PushBatchResponse;
 import one.tracking.framework.domain.PushNotificationRequest;
+import one.tracking.framework.domain.PushSendResponse;
 import one.tracking.framework.domain.ReminderBatchResult;
 import one.tracking.framework.domain.ReminderTaskResult;
 import one.tracking.framework.domain.ReminderTaskResult.StateType;
@@ -61,6 +65,12 @@ public class ReminderComponent {
 
   private static final String KEY_SURVEY_NAME_ID = "surveyNameId";
 
+  private static final String QUERY_DEVICE_TOKENS =
+      "SELECT d FROM DeviceToken d WHERE d.createdAt < ?1 ORDER BY d.id";
+
+  private static final String QUERY_DEVICE_TOKENS_AFTER =
+      "SELECT d FROM DeviceToken d WHERE d.createdAt < ?1 AND d.id > ?2 ORDER BY d.id";
+
   @Autowired
   private LockerComponent lockerComponent;
 
@@ -76,6 +86,12 @@ public class ReminderComponent {
   @Autowired
   private EntityManager entityManager;
 
+  @Autowired
+  private ThreadingComponent threadingComponent;
+
+  @Autowired
+  private StreamingProperties streamingConfig;
+
   @Value("${app.reminder.title}")
   private String reminderTitle;
 
@@ -126,19 +142,19 @@ public class ReminderComponent {
 
     final String taskName = TASK_REMINDER_PREFIX + nameId;
 
-    if (this.lockerComponent.lock(taskName)) {
+    final Lease lease = this.lockerComponent.acquire(taskName);
 
-      final ReminderTaskResult result = performSendReminder(nameId);
-
-      this.lockerComponent.unlock(taskName);
+    if (lease == null)
+      return ReminderTaskResult.NOOP;
 
-      return result;
+    try {
+      return performSendReminder(nameId, lease);
+    } finally {
+      this.lockerComponent.release(lease);
     }
-
-    return ReminderTaskResult.NOOP;
   }
 
-  private ReminderTaskResult performSendReminder(final String nameId) {
+  private ReminderTaskResult performSendReminder(final String nameId, final Lease lease) {
 
     LOG.debug("Sending reminders for survey '{}'...", nameId);
 
@@ -158,7 +174,7 @@ public class ReminderComponent {
     if (currentSurvey.getDependsOn() != null && dependsOnInstance == null)
       return ReminderTaskResult.empty(nameId);
 
-    return performSendReminder(currentSurvey, currentInstance, dependsOnInstance);
+    return performSendReminder(currentSurvey, currentInstance, dependsOnInstance, lease);
   }
 
   private SurveyInstance getCurrentSurveyInstance(final Survey survey, final boolean create) {
@@ -228,129 +244,193 @@ public class ReminderComponent {
     query.setMaxResults(this.batchSize);
     query.setParameter(1, maxTimestamp);
 
-    return this.transactionTemplate.execute(status -> {
+    return this.threadingComponent.callWithDbPermit(() -> this.transactionTemplate.execute(status -> {
       status.flush();
       return query.getResultList();
-    });
+    }));
+  }
+
+  /*
+   * Passes all DeviceTokens created before the specified timestamp in batches to the specified
+   * consumer. Each batch continues after the id of the last DeviceToken of the previous batch (keyset
+   * pagination) and is read within its own transaction. So unlike offset pages, batches are not
+   * affected by DeviceTokens deleted meanwhile, and no connection or DB permit is held while the
+   * consumer sends the batch and writes its results.
+   */
+  private void forEachDeviceTokenBatch(final Instant maxTimestamp, final Consumer<List<DeviceToken>> consumer) {
+
+    List<DeviceToken> batch = getDeviceTokensAfter(maxTimestamp, null);
+
+    while (!batch.isEmpty()) {
+
+      consumer.accept(batch);
+
+      if (batch.size() < this.batchSize)
+        break;
+
+      batch = getDeviceTokensAfter(maxTimestamp, batch.get(batch.size() - 1));
+    }
+  }
+
+  private List<DeviceToken> getDeviceTokensAfter(final Instant maxTimestamp, final DeviceToken last) {
+
+    final TypedQuery<DeviceToken> query = this.entityManager.createQuery(
+        last == null ? QUERY_DEVICE_TOKENS : QUERY_DEVICE_TOKENS_AFTER, DeviceToken.class);
+    query.setParameter(1, maxTimestamp);
+    if (last != null)
+      query.setParameter(2, last.getId());
+    query.setMaxResults(this.batchSize);
+
+    return this.threadingComponent.callWithDbPermit(() -> this.transactionTemplate.execute(status -> {
+      return query.getResultList();
+    }));
   }
 
   private ReminderTaskResult performSendReminder(
       final Survey currentSurvey,
       final SurveyInstance currentInstance,
-      final SurveyInstance dependsOnInstance) {
+      final SurveyInstance dependsOnInstance,
+      final Lease lease) {
 
     final Instant now = Instant.now();
-    final int batchSize = 1000;
 
-    int successCount = 0;
-    int tokenCount = 0;
-    int offset = 0;
+    final AtomicInteger successCount = new AtomicInteger();
+    final AtomicInteger tokenCount = new AtomicInteger();
 
-    List<DeviceToken> deviceTokens = getDeviceTokens(currentInstance, offset, now);
+    if (this.streamingConfig.getEnabled()) {
 
-    while (!deviceTokens.isEmpty()) {
+      forEachDeviceTokenBatch(now, deviceTokens -> sendReminderBatch(currentSurvey, currentInstance,
+          dependsOnInstance, lease, deviceTokens, successCount, tokenCount));
 
-      LOG.debug("{}: DeviceToken pages: Offset {} | Batch Size: {} | Page Size: {}",
-          currentSurvey.getNameId(),
-          offset,
-          batchSize,
-          deviceTokens.size());
+    } else {
 
-      final List<DeviceToken> inactiveDeviceTokens = checkDependsOnCompletion(
-          currentSurvey,
-          dependsOnInstance,
-          checkRemindersAndResponses(currentInstance, deviceTokens));
+      final int batchSize = 1000;
+      int offset = 0;
 
-      if (inactiveDeviceTokens.isEmpty()) {
+      List<DeviceToken> deviceTokens = getDeviceTokens(currentInstance, offset, now);
 
-        LOG.debug("{}: No DeviceTokens available to send messages to. Skipping sending messages.",
-            currentSurvey.getNameId());
-        offset += batchSize;
+      while (!deviceTokens.isEmpty()) {
 
-      } else {
+        LOG.debug("{}: DeviceToken pages: Offset {} | Batch Size: {} | Page Size: {}",
+            currentSurvey.getNameId(),
+            offset,
+            batchSize,
+            deviceTokens.size());
+
+        // Deleted DeviceTokens shift the following pages
+        offset += batchSize - sendReminderBatch(currentSurvey, currentInstance, dependsOnInstance, lease,
+            deviceTokens, successCount, tokenCount);
+
+        deviceTokens = getDeviceTokens(currentInstance, offset, now);
+      }
+    }
+
+    return ReminderTaskResult.builder()
+        .countDeviceTokens(tokenCount.get())
+        .countNotifications(successCount.get())
+        .state(StateType.EXECUTED)
+        .surveyNameId(currentSurvey.getNameId())
+        .build();
+  }
 
-        try {
-          final ReminderBatchResult batchResponse = performSendReminderBatch(currentSurvey, inactiveDeviceTokens);
+  /*
+   * Sends reminders to the specified DeviceTokens, which did not receive a reminder for the current
+   * instance yet. Returns the amount of DeviceTokens deleted for being invalid.
+   */
+  private int sendReminderBatch(
+      final Survey currentSurvey,
+      final SurveyInstance currentInstance,
+      final SurveyInstance dependsOnInstance,
+      final Lease lease,
+      final List<DeviceToken> deviceTokens,
+      final AtomicInteger successCount,
+      final AtomicInteger tokenCount) {
 
-          if (!batchResponse.getInvalidDeviceTokens().isEmpty()) {
+    final List<DeviceToken> inactiveDeviceTokens = checkDependsOnCompletion(
+        currentSurvey,
+        dependsOnInstance,
+        checkRemindersAndResponses(currentInstance, deviceTokens));
 
-            removeInvalidDeviceTokens(currentSurvey, batchResponse.getInvalidDeviceTokens());
+    if (inactiveDeviceTokens.isEmpty()) {
 
-            offset += batchSize - batchResponse.getInvalidDeviceTokens().size();
+      LOG.debug("{}: No DeviceTokens available to send messages to. Skipping sending messages.",
+          currentSurvey.getNameId());
+      return 0;
+    }
 
-          } else {
-            offset += batchSize;
-          }
+    // Do not send or store anything if another node took over the task meanwhile
+    this.lockerComponent.verify(lease);
 
-          if (!batchResponse.getValidDeviceTokens().isEmpty())
-            persistSentReminders(currentSurvey, currentInstance, batchResponse);
+    int removed = 0;
 
-          successCount += batchResponse.getBatchResponses().stream().mapToInt(f -> f.getSuccessCount()).sum();
+    try {
+      final ReminderBatchResult batchResponse = performSendReminderBatch(currentSurvey, inactiveDeviceTokens);
 
-        } catch (InterruptedException | ExecutionException e) {
-          offset += batchSize;
-          LOG.error(e.getMessage(), e);
-        }
-        tokenCount += inactiveDeviceTokens.size();
+      if (!batchResponse.getInvalidDeviceTokens().isEmpty()) {
 
+        removeInvalidDeviceTokens(currentSurvey, lease, batchResponse.getInvalidDeviceTokens());
+
+        removed = batchResponse.getInvalidDeviceTokens().size();
       }
 
-      deviceTokens = getDeviceTokens(currentInstance, offset, now);
+      if (!batchResponse.getValidDeviceTokens().isEmpty())
+        persistSentReminders(currentSurvey, currentInstance, lease, batchResponse);
+
+      successCount.addAndGet(batchResponse.getBatchResponses().stream().mapToInt(f -> f.getSuccessCount()).sum());
+
+    } catch (InterruptedException | ExecutionException e) {
+      LOG.error(e.getMessage(), e);
     }
+    tokenCount.addAndGet(inactiveDeviceTokens.size());
 
-    return ReminderTaskResult.builder()
-        .countDeviceTokens(tokenCount)
-        .countNotifications(successCount)
-        .state(StateType.EXECUTED)
-        .surveyNameId(currentSurvey.getNameId())
-        .build();
+    return removed;
   }
 
-  private void removeInvalidDeviceTokens(final Survey survey, final List<DeviceToken> deviceTokens) {
+  /*
+   * The writes are fenced by the lease, so nothing gets written once another node took over
+   */
+  private void removeInvalidDeviceTokens(final Survey survey, final Lease lease,
+      final List<DeviceToken> deviceTokens) {
 
-    LOG.debug("{}: Deleting reminders for {} invalid DeviceTokens", survey.getNameId(), deviceTokens.size());
+    LOG.debug("{}: Deleting {} invalid DeviceTokens and their reminders", survey.getNameId(), deviceTokens.size());
 
-    for (final DeviceToken deviceToken : deviceTokens) {
+    this.lockerComponent.executeFencedWithoutResult(lease, status -> {
 
-      this.transactionTemplate.executeWithoutResult(status -> {
+      for (final DeviceToken deviceToken : deviceTokens) {
         final Query query = this.entityManager.createNamedQuery("Reminder.deleteByDeviceTokenId");
         query.setParameter(1, deviceToken.getId());
         query.executeUpdate();
-        status.flush();
-      });
-    }
-
-    LOG.debug("{}: Deleting {} invalid DeviceTokens", survey.getNameId(), deviceTokens.size());
-
-    for (final DeviceToken deviceToken : deviceTokens) {
+      }
 
-      this.transactionTemplate.executeWithoutResult(status -> {
+      for (final DeviceToken deviceToken : deviceTokens) {
         final Query query = this.entityManager.createNamedQuery("DeviceToken.deleteById");
         query.setParameter(1, deviceToken.getId());
         query.executeUpdate();
-        status.flush();
-      });
-    }
+      }
 
-    LOG.debug("{}: Deletion completed", survey.getNameId(), deviceTokens.size());
+      status.flush();
+    });
+
+    LOG.debug("{}: Deletion completed", survey.getNameId());
   }
 
-  private void persistSentReminders(final Survey survey, final SurveyInstance instance,
+  private void persistSentReminders(final Survey survey, final SurveyInstance instance, final Lease lease,
       final ReminderBatchResult batchResponse) {
 
     LOG.debug("{}: Storing reminders for {} DeviceTokens", survey.getNameId(),
         batchResponse.getValidDeviceTokens().size());
 
-    for (final DeviceToken deviceToken : batchResponse.getValidDeviceTokens()) {
+    this.lockerComponent.executeFencedWithoutResult(lease, status -> {
 
-      this.transactionTemplate.executeWithoutResult(status -> {
+      for (final DeviceToken deviceToken : batchResponse.getValidDeviceTokens()) {
         this.entityManager.persist(Reminder.builder()
             .deviceToken(deviceToken)
             .surveyInstance(instance)
             .build());
-        status.flush();
-      });
-    }
+      }
+
+      status.flush();
+    });
 
     LOG.debug("{}: Storing reminders for {} DeviceTokens DONE", survey.getNameId(),
         batchResponse.getValidDeviceTokens().size());
@@ -480,7 +560,7 @@ public class ReminderComponent {
 
     LOG.debug("{}: Sending reminders for {} DeviceTokens.", survey.getNameId(), deviceTokens.size());
 
-    final List<BatchResponse> batchResponses = this.firebaseService.sendMessages(PushNotificationRequest.builder()
+    final List<PushBatchResponse> batchResponses = this.firebaseService.sendMessages(PushNotificationRequest.builder()
         .title(this.reminderTitle)
         .message(this.reminderMessage)
         .data(Collections.singletonMap(KEY_SURVEY_NAME_ID, survey.getNameId()))
@@ -490,19 +570,19 @@ public class ReminderComponent {
     final List<DeviceToken> validDeviceTokens = new ArrayList<>();
     final List<DeviceToken> invalidDeviceTokens = new ArrayList<>();
 
-    final List<SendResponse> sendResponses =
+    final List<PushSendResponse> sendResponses =
         batchResponses.stream().flatMap(f -> f.getResponses().stream()).collect(Collectors.toList());
 
     // Check, which DeviceTokens are in-/valid
     for (int i = 0; i < deviceTokens.size(); i++) {
 
-      final SendResponse response = sendResponses.get(i);
+      final PushSendResponse response = sendResponses.get(i);
       final DeviceToken currentToken = deviceTokens.get(i);
 
       if (!response.isSuccessful()) {
 
-        if (ERROR_CODE_INVALID_REGISTRATION_TOKEN.equals(response.getException().getErrorCode())
-            || ERROR_CODE_REGISTRATION_TOKEN_NOT_REGISTERED.equals(response.getException().getErrorCode())) {
+        if (ERROR_CODE_INVALID_REGISTRATION_TOKEN.equals(response.getErrorCode())
+            || ERROR_CODE_REGISTRATION_TOKEN_NOT_REGISTERED.equals(response.getErrorCode())) {
 
           LOG.debug("{}: Invalid DeviceToken: {}", survey.getNameId(), currentToken.getToken());
           invalidDeviceTokens.add(currentToken);
@@ -510,7 +590,7 @@ public class ReminderComponent {
         } else {
 
           LOG.warn("{}: Sending message to DeviceToken '{}' failed. Error code: {}", survey.getNameId(),
-              currentToken.getToken(), response.getException().getErrorCode());
+              currentToken.getToken(), response.getErrorCode());
           validDeviceTokens.add(currentToken);
         }
       } else {
@@ -0,0 +1,270 @@
+/**
+ *
+ */
+package one.tracking.framework.component;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import org.hibernate.jpa.QueryHints;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import one.tracking.framework.config.RollupProperties;
+import one.tracking.framework.config.StreamingProperties;
+import one.tracking.framework.domain.Lease;
+import one.tracking.framework.entity.RollupState;
+import one.tracking.framework.entity.StepCountDaily;
+import one.tracking.framework.entity.StepCountDailyId;
+
+/**
+ * Aggregates step counts into daily totals per user. Each run determines the users and days with
+ * changed step counts since the previous run and recomputes these days completely, so step counts
+ * updated after their creation are taken into account as well. Runs are executed by one node only.<br/>
+ * <br/>
+ * Deleted step counts cannot be detected by their timestamps, so each run additionally removes the
+ * totals of days within <code>app.rollup.reconcileWindow</code> having no step counts anymore. Runs
+ * are scheduled by a dedicated single thread scheduler, so that they neither delay nor get delayed
+ * by reminders.
+ *
+ * @author Marko Voß
+ *
+ */
+@Component
+public class StepCountRollupComponent {
+
+  private static final Logger LOG = LoggerFactory.getLogger(StepCountRollupComponent.class);
+
+  public static final String ROLLUP_TASK = "ROLLUP_STEP_COUNT_DAILY";
+
+  /*
+   * Created and updated step counts are queried separately, so that each query is served by the index
+   * of its timestamp. See db/rollup-tables.sql.
+   */
+  private static final String QUERY_CREATED_USERS =
+      "SELECT s.user.id, MIN(s.startTime), MAX(s.startTime) FROM StepCount s"
+          + " WHERE s.createdAt >= ?1 GROUP BY s.user.id";
+
+  private static final String QUERY_UPDATED_USERS =
+      "SELECT s.user.id, MIN(s.startTime), MAX(s.startTime) FROM StepCount s"
+          + " WHERE s.updatedAt >= ?1 GROUP BY s.user.id";
+
+  private static final String QUERY_USER_STEP_COUNTS =
+      "SELECT s.startTime, s.stepCount FROM StepCount s WHERE s.user.id = ?1"
+          + " AND s.startTime >= ?2 AND s.startTime < ?3";
+
+  private static final String QUERY_USER_DAYS =
+      "SELECT d FROM StepCountDaily d WHERE d.userId = ?1 AND d.day BETWEEN ?2 AND ?3";
+
+  private static final String DELETE_EMPTY_DAY =
+      "DELETE FROM StepCountDaily d WHERE d.day = ?1 AND NOT EXISTS (SELECT s.id FROM StepCount s"
+          + " WHERE s.user.id = d.userId AND s.startTime >= ?2 AND s.startTime < ?3)";
+
+  @Autowired
+  private RollupProperties rollupConfig;
+
+  @Autowired
+  private LockerComponent lockerComponent;
+
+  @Autowired
+  private TransactionTemplate transactionTemplate;
+
+  @Autowired
+  private StreamingProperties streamingConfig;
+
+  @Autowired
+  private EntityManager entityManager;
+
+  private ThreadPoolTaskScheduler taskScheduler;
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void start() {
+
+    if (!this.rollupConfig.getEnabled())
+      return;
+
+    this.taskScheduler = new ThreadPoolTaskScheduler();
+    this.taskScheduler.setPoolSize(1);
+    this.taskScheduler.setThreadNamePrefix("RollupScheduler-");
+    this.taskScheduler.initialize();
+
+    this.taskScheduler.scheduleWithFixedDelay(this::run, this.rollupConfig.getInterval());
+  }
+
+  @PreDestroy
+  public void stop() {
+
+    if (this.taskScheduler != null)
+      this.taskScheduler.shutdown();
+  }
+
+  /**
+   * Executes the rollup, if no other node is executing it.
+   */
+  public void run() {
+
+    final Lease lease = this.lockerComponent.acquire(ROLLUP_TASK);
+
+    if (lease == null)
+      return;
+
+    try {
+      rollup(lease);
+    } catch (final Exception e) {
+      LOG.error("Step count rollup FAILED", e);
+    } finally {
+      this.lockerComponent.release(lease);
+    }
+  }
+
+  private void rollup(final Lease lease) {
+
+    final Instant now = Instant.now();
+    final Instant processedUntil = getProcessedUntil();
+    final Instant since = processedUntil.equals(Instant.EPOCH)
+        ? Instant.EPOCH
+        : processedUntil.minus(this.rollupConfig.getOverlap());
+
+    LOG.debug("Step count rollup START [since: {}]", since);
+
+    // The first and last day with changes by user
+    final Map<String, LocalDate[]> users = new HashMap<>();
+    addChangedUsers(QUERY_CREATED_USERS, since, users);
+    addChangedUsers(QUERY_UPDATED_USERS, since, users);
+
+    for (final Map.Entry<String, LocalDate[]> user : users.entrySet())
+      rollupUser(lease, user.getKey(), user.getValue()[0], user.getValue()[1], now);
+
+    deleteEmptyDays(lease, now);
+
+    this.lockerComponent.executeFencedWithoutResult(lease, status -> this.entityManager.merge(RollupState.builder()
+        .name(ROLLUP_TASK)
+        .processedUntil(now)
+        .build()));
+
+    LOG.debug("Step count rollup DONE [users: {}]", users.size());
+  }
+
+  private void addChangedUsers(final String jpql, final Instant since, final Map<String, LocalDate[]> users) {
+
+    final TypedQuery<Object[]> query = this.entityManager.createQuery(jpql, Object[].class);
+    query.setParameter(1, since);
+
+    for (final Object[] user : this.transactionTemplate.execute(status -> query.getResultList())) {
+
+      final LocalDate firstDay = toDay((Instant) user[1]);
+      final LocalDate lastDay = toDay((Instant) user[2]);
+
+      users.merge((String) user[0], new LocalDate[] {firstDay, lastDay}, (a, b) -> new LocalDate[] {
+          a[0].isBefore(b[0]) ? a[0] : b[0],
+          a[1].isAfter(b[1]) ? a[1] : b[1]});
+    }
+  }
+
+  /*
+   * Removes the totals of days within the reconcile window, of which all step counts got deleted
+   */
+  private void deleteEmptyDays(final Lease lease, final Instant now) {
+
+    final LocalDate lastDay = toDay(now);
+    int deleted = 0;
+
+    for (LocalDate day = toDay(now.minus(this.rollupConfig.getReconcileWindow())); !day.isAfter(lastDay);
+        day = day.plusDays(1)) {
+
+      final LocalDate currentDay = day;
+
+      deleted += this.lockerComponent.executeFenced(lease, status -> this.entityManager
+          .createQuery(DELETE_EMPTY_DAY)
+          .setParameter(1, currentDay)
+          .setParameter(2, currentDay.atStartOfDay(ZoneOffset.UTC).toInstant())
+          .setParameter(3, currentDay.plusDays(1).atStartOfDay(ZoneOffset.UTC).toInstant())
+          .executeUpdate());
+    }
+
+    if (deleted > 0)
+      LOG.debug("Step count rollup removed empty days [count: {}]", deleted);
+  }
+
+  private Instant getProcessedUntil() {
+
+    final RollupState state = this.transactionTemplate.execute(
+        status -> this.entityManager.find(RollupState.class, ROLLUP_TASK));
+
+    return state == null ? Instant.EPOCH : state.getProcessedUntil();
+  }
+
+  /*
+   * Recomputes the specified days of the specified user within a single transaction, which is fenced
+   * by the lease, so that nothing gets written once another node took over. Totals of days without
+   * step counts anymore get deleted. The query is created within the transaction, so that it is bound
+   * to the transactional entity manager, whose connection gets released on commit.
+   */
+  private void rollupUser(final Lease lease, final String userId, final LocalDate firstDay, final LocalDate lastDay,
+      final Instant now) {
+
+    this.lockerComponent.executeFencedWithoutResult(lease, status -> {
+
+      final Map<LocalDate, Long> totals = new TreeMap<>();
+
+      final TypedQuery<Object[]> query = this.entityManager.createQuery(QUERY_USER_STEP_COUNTS, Object[].class);
+      query.setParameter(1, userId);
+      query.setParameter(2, firstDay.atStartOfDay(ZoneOffset.UTC).toInstant());
+      query.setParameter(3, lastDay.plusDays(1).atStartOfDay(ZoneOffset.UTC).toInstant());
+      query.setHint(QueryHints.HINT_FETCH_SIZE, this.streamingConfig.getFetchSize());
+      query.setHint(QueryHints.HINT_READONLY, true);
+
+      try (final Stream<Object[]> rows = query.getResultStream()) {
+        rows.filter(row -> row[1] != null)
+            .forEach(row -> totals.merge(toDay((Instant) row[0]), ((Number) row[1]).longValue(), Long::sum));
+      }
+
+      final List<StepCountDaily> existingDays = this.entityManager
+          .createQuery(QUERY_USER_DAYS, StepCountDaily.class)
+          .setParameter(1, userId)
+          .setParameter(2, firstDay)
+          .setParameter(3, lastDay)
+          .getResultList();
+
+      for (final StepCountDaily existing : existingDays)
+        if (!totals.containsKey(existing.getDay()))
+          this.entityManager.remove(existing);
+
+      for (final Map.Entry<LocalDate, Long> total : totals.entrySet()) {
+
+        final StepCountDaily existing =
+            this.entityManager.find(StepCountDaily.class, new StepCountDailyId(userId, total.getKey()));
+
+        if (existing == null)
+          this.entityManager.persist(StepCountDaily.builder()
+              .userId(userId)
+              .day(total.getKey())
+              .stepCount(total.getValue())
+              .updatedAt(now)
+              .build());
+
+        else if (existing.getStepCount() != total.getValue()) {
+          existing.setStepCount(total.getValue());
+          existing.setUpdatedAt(now);
+        }
+      }
+    });
+  }
+
+  private static LocalDate toDay(final Instant instant) {
+    return LocalDate.ofInstant(instant, ZoneOffset.UTC);
+  }
+}
@@ -5,28 +5,88 @@ package one.tracking.framework.component;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.Duration;
 import java.time.Instant;
-import java.time.LocalDateTime;
+import java.time.LocalDate;
 import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 import javax.persistence.EntityManager;
 import javax.persistence.TypedQuery;
-import org.apache.poi.ss.usermodel.Cell;
-import org.apache.poi.ss.usermodel.CellStyle;
-import org.apache.poi.ss.usermodel.CreationHelper;
-import org.apache.poi.ss.usermodel.Row;
-import org.apache.poi.ss.usermodel.Sheet;
-import org.apache.poi.ss.usermodel.Workbook;
-import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.hibernate.jpa.QueryHints;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.AsyncTaskExecutor;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.support.TransactionTemplate;
-import one.tracking.framework.domain.SurveyResponseData;
-import one.tracking.framework.entity.health.StepCount;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import one.tracking.framework.component.export.CountingExportWriter;
+import one.tracking.framework.component.export.CsvExportWriter;
+import one.tracking.framework.component.export.ExportWriter;
+import one.tracking.framework.component.export.ExportWriter.SheetWriter;
+import one.tracking.framework.component.export.JsonlExportWriter;
+import one.tracking.framework.component.export.WideSheetWriter;
+import one.tracking.framework.component.export.XlsxExportWriter;
+import one.tracking.framework.config.ExportProperties;
+import one.tracking.framework.config.ServicesConfig;
+import one.tracking.framework.config.StreamingProperties;
+import one.tracking.framework.domain.ExportColumn;
+import one.tracking.framework.domain.ExportCursor;
+import one.tracking.framework.domain.ExportFormat;
+import one.tracking.framework.domain.ExportLayout;
+import one.tracking.framework.domain.ExportOptions;
+import one.tracking.framework.domain.ExportPosition;
+import one.tracking.framework.domain.StepCountAggregation;
+import one.tracking.framework.domain.StepCountRow;
+import one.tracking.framework.domain.SurveyResponseRow;
+import one.tracking.framework.entity.meta.Survey;
+import one.tracking.framework.entity.meta.question.BooleanQuestion;
+import one.tracking.framework.entity.meta.question.ChecklistEntry;
+import one.tracking.framework.entity.meta.question.ChecklistQuestion;
+import one.tracking.framework.entity.meta.question.ChoiceQuestion;
+import one.tracking.framework.entity.meta.question.Question;
 
 /**
+ * Exports survey responses and step counts of an interval. Survey responses are read in pages ordered
+ * by <code>(createdAt, id)</code>. Each page continues after the last row of the previous page (keyset
+ * pagination), so the cost of reading a page does not depend on its position within the interval.
+ * Exports filtered by surveys read the pages of each matching survey instance and merge them.
+ * Step counts are read the same way as projections in pages of <code>app.streaming.fetchSize</code>
+ * rows.
+ * <br/>
+ * <br/>
+ * Survey responses and step counts are fetched and encoded concurrently. As each page is read within
+ * its own transaction, both datasets use separate connections.<br/>
+ * <br/>
+ * For formats supporting segmented sheets, the interval can be split into time slices, which are
+ * exported concurrently into segments. The segments are concatenated in order of their slices, so
+ * the rows stay sorted. Once a task of an export fails, its other tasks fail at their next row.<br/>
+ * <br/>
+ * The wide layout pivots the survey responses into one sheet per survey version, whose columns are
+ * derived from the questions of the survey version. Responses are read ordered by user, survey
+ * instance and answer version instead, so that each row can be written as soon as it is complete.
+ *
  * @author Marko Voß
  *
  */
@@ -35,168 +95,1241 @@ public class SurveyDataExportComponent {
 
   private static final Logger LOG = LoggerFactory.getLogger(SurveyDataExportComponent.class);
 
+  private static final int PAGE_SIZE = 500;
+
+  /*
+   * The minimum page size of a survey instance, if the survey responses of several survey instances are
+   * merged
+   */
+  private static final int MIN_INSTANCE_PAGE_SIZE = 50;
+
+  private static final String FROM_SURVEY_RESPONSES =
+      " FROM SurveyResponse r JOIN r.surveyInstance i JOIN i.survey s JOIN r.question q JOIN r.user u";
+
+  private static final String QUERY_SURVEYS =
+      "SELECT DISTINCT s FROM SurveyResponse r JOIN r.surveyInstance i JOIN i.survey s"
+          + " WHERE r.createdAt BETWEEN ?1 AND ?2";
+
+  private static final String QUERY_SURVEY_INSTANCES = "SELECT i.id FROM SurveyInstance i JOIN i.survey s";
+
+  /*
+   * Filtering by a single survey instance lets the index on (survey_instance_id, created_at, id) of the
+   * survey responses serve the order of the keyset. See db/export-indexes.sql.
+   */
+  private static final String CONDITION_SURVEY_INSTANCE = " AND r.surveyInstance.id = ?%d";
+
+  private static final Comparator<SurveyResponseRow> SURVEY_RESPONSE_ORDER =
+      Comparator.comparing(SurveyResponseRow::getCreatedAt).thenComparing(SurveyResponseRow::getId);
+
+  private static final String QUERY_WIDE_SURVEY_INSTANCES =
+      "SELECT i.id FROM SurveyInstance i WHERE i.survey.id = ?1 ORDER BY i.id";
+
+  /*
+   * The wide layout is read per survey instance, so that the index on (survey_instance_id, user_id,
+   * version, id, created_at) of the survey responses serves the order. See db/export-indexes.sql.
+   */
+  private static final String CONDITION_WIDE = " WHERE r.surveyInstance.id = ?1 AND r.createdAt BETWEEN ?2 AND ?3";
+
+  private static final String CONDITION_WIDE_KEYSET =
+      " AND (r.user.id > ?4 OR (r.user.id = ?4 AND (r.version > ?5 OR (r.version = ?5 AND r.id > ?6))))";
+
+  private static final String ORDER_WIDE = " ORDER BY r.user.id, r.version, r.id";
+
+  /*
+   * Sheet names of workbooks are limited to 31 characters
+   */
+  private static final int MAX_SHEET_NAME_LENGTH = 31;
+
+  private static final String SHEET_STEP_COUNT = "stepcount";
+
+  private static final String QUERY_STEP_COUNTS =
+      "SELECT s.id, u.id, s.startTime, s.endTime, s.stepCount, s.createdAt, s.updatedAt"
+          + " FROM StepCount s JOIN s.user u";
+
+  private static final String CONDITION_INTERVAL = " WHERE %1$s.createdAt BETWEEN ?1 AND ?2";
+
+  private static final String CONDITION_SLICE = " WHERE %1$s.createdAt >= ?1 AND %1$s.createdAt < ?2";
+
+  private static final String CONDITION_KEYSET =
+      " AND (%1$s.createdAt > ?3 OR (%1$s.createdAt = ?3 AND %1$s.id > ?4))";
+
+  private static final String ORDER_KEYSET = " ORDER BY %1$s.createdAt, %1$s.id";
+
+  private static final String QUERY_STEP_COUNTS_DAILY =
+      "SELECT d.userId, d.day, d.stepCount, d.updatedAt FROM StepCountDaily d WHERE d.day BETWEEN ?1 AND ?2";
+
+  private static final String CONDITION_STEP_COUNTS_DAILY_KEYSET =
+      " AND (d.day > ?3 OR (d.day = ?3 AND d.userId > ?4))";
+
+  private static final String ORDER_STEP_COUNTS_DAILY = " ORDER BY d.day, d.userId";
+
+  private static final String QUERY_VERSION_SURVEY_RESPONSES =
+      "SELECT COUNT(r), MAX(r.id), SUM(CASE WHEN r.valid = true THEN 1 ELSE 0 END),"
+          + " SUM(CASE WHEN r.skipped = true THEN 1 ELSE 0 END) FROM SurveyResponse r"
+          + " WHERE r.createdAt BETWEEN ?1 AND ?2";
+
+  private static final String QUERY_VERSION_STEP_COUNTS =
+      "SELECT COUNT(s), MAX(s.id), MAX(s.updatedAt), SUM(s.stepCount) FROM StepCount s"
+          + " WHERE s.createdAt BETWEEN ?1 AND ?2";
+
+  private static final String QUERY_VERSION_STEP_COUNTS_DAILY =
+      "SELECT COUNT(d), MAX(d.updatedAt), SUM(d.stepCount) FROM StepCountDaily d WHERE d.day BETWEEN ?1 AND ?2";
+
+  private static final List<String> HEADER_STEP_COUNT_DAILY = Arrays.asList(
+      "UserId", "Day", "StepCount", "Timestamp");
+
+  private static final List<String> HEADER_STEP_COUNT = Arrays.asList(
+      "UserId", "StartTime", "EndTime", "StepCount", "Timestamp");
+
   @Autowired
   private TransactionTemplate transactionTemplate;
 
+  /*
+   * Pages of survey responses and step counts must not contain rows of transactions rolled back
+   * later, as incremental exports advance their watermark past the rows exported last
+   */
+  @Autowired
+  @Qualifier(ServicesConfig.READ_COMMITTED_TRANSACTION_TEMPLATE)
+  private TransactionTemplate readCommittedTransactionTemplate;
+
+  @Autowired
+  private StreamingProperties streamingConfig;
+
   @Autowired
   private EntityManager entityManager;
 
-  public void export(final Instant startTime, final Instant endTime, final OutputStream outStream) throws IOException {
+  @Autowired
+  private ThreadingComponent threadingComponent;
 
-    LOG.debug("Exporting data for interval: {} - {}", startTime, endTime);
+  @Autowired
+  private ExportProperties exportConfig;
+
+  @Autowired
+  @Qualifier(ServicesConfig.EXPORT_WORKER_EXECUTOR)
+  private AsyncTaskExecutor exportWorkerExecutor;
+
+  @Getter
+  @AllArgsConstructor
+  private static final class QuestionInfo {
+
+    private final Integer order;
+    private final String type;
+    private final String question;
+    private final String checkListEntry;
+  }
+
+  /*
+   * The expressions selectable for survey responses
+   */
+  @Getter
+  @AllArgsConstructor
+  private enum Field {
+
+    ID("r.id"),
+    CREATED_AT("r.createdAt"),
+    NAME_ID("s.nameId"),
+    START_TIME("i.startTime"),
+    END_TIME("i.endTime"),
+    USER_ID("u.id"),
+    QUESTION_ID("q.id"),
+    BOOL_ANSWER("r.boolAnswer"),
+    TEXT_ANSWER("r.textAnswer"),
+    NUMBER_ANSWER("r.numberAnswer"),
+    VERSION("r.version"),
+    SKIPPED("r.skipped"),
+    VALID("r.valid"),
+    INSTANCE_ID("i.id");
+
+    private final String expression;
+  }
 
-    try (final Workbook workbook = new SXSSFWorkbook(1000)) {
+  /*
+   * The columns to write and the fields and survey instances to read. Only the fields required by the
+   * columns are selected, except for the id and creation time, which form the keyset.
+   */
+  @Getter
+  private static final class SurveyResponseSelection {
 
-      final CellStyle cellStyleDateTime = workbook.createCellStyle();
-      final CreationHelper createHelper = workbook.getCreationHelper();
-      cellStyleDateTime.setDataFormat(createHelper.createDataFormat().getFormat("m/d/yy h:mm"));
+    private static final SurveyResponseSelection ALL =
+        new SurveyResponseSelection(ExportColumn.DEFAULT, EnumSet.allOf(Field.class), null);
 
-      exportSurveyResponseData(workbook, startTime, endTime, cellStyleDateTime);
-      exportStepCounter(workbook, startTime, endTime, cellStyleDateTime);
+    private final List<ExportColumn> columns;
+    private final List<Field> fields;
+    private final int[] positions;
+    private final List<Long> instanceIds;
 
-      workbook.write(outStream);
+    private SurveyResponseSelection(final List<ExportColumn> columns, final Set<Field> fields,
+        final List<Long> instanceIds) {
+
+      this.columns = columns;
+      this.fields = new ArrayList<>(fields);
+      this.positions = new int[Field.values().length];
+      this.instanceIds = instanceIds;
+
+      Arrays.fill(this.positions, -1);
+      for (int i = 0; i < this.fields.size(); i++)
+        this.positions[this.fields.get(i).ordinal()] = i;
+    }
+
+    private String getSelect() {
+      return this.fields.stream().map(Field::getExpression).collect(Collectors.joining(", ", "SELECT ", ""));
+    }
+
+    private Object get(final Object[] tuple, final Field field) {
+      final int position = this.positions[field.ordinal()];
+      return position < 0 ? null : tuple[position];
+    }
+
+    /*
+     * No survey instance matches the filter, so there is nothing to read
+     */
+    private boolean isEmpty() {
+      return this.instanceIds != null && this.instanceIds.isEmpty();
     }
   }
 
-  private void exportStepCounter(final Workbook workbook, final Instant startTime, final Instant endTime,
-      final CellStyle cellStyleDateTime) {
+  /*
+   * A keyset page of the survey responses of a single survey instance or of all survey instances, if
+   * the instance id is null
+   */
+  @Getter
+  private static final class SurveyResponsePage {
 
-    final Sheet sheet = workbook.createSheet("stepcount");
-    // Create header
-    final Row headerRow = sheet.createRow(0);
-    headerRow.createCell(0).setCellValue("UserId");
-    headerRow.createCell(1).setCellValue("StartTime");
-    headerRow.createCell(2).setCellValue("EndTime");
-    headerRow.createCell(3).setCellValue("StepCount");
-    headerRow.createCell(4).setCellValue("Timestamp");
+    private final Long instanceId;
+    private final List<SurveyResponseRow> rows;
+    private final boolean full;
+    private int index;
 
-    int offset = 0;
-    int rowIndex = 1;
-    List<StepCount> stepCounts = getStepCountData(startTime, endTime, offset);
+    private SurveyResponsePage(final Long instanceId, final List<SurveyResponseRow> rows, final int pageSize) {
+      this.instanceId = instanceId;
+      this.rows = rows;
+      this.full = rows.size() >= pageSize;
+    }
 
-    while (!stepCounts.isEmpty()) {
+    private SurveyResponseRow peek() {
+      return this.rows.get(this.index);
+    }
 
-      for (final StepCount data : stepCounts) {
+    private SurveyResponseRow next() {
+      return this.rows.get(this.index++);
+    }
 
-        final Row row = sheet.createRow(rowIndex++);
+    private boolean hasNext() {
+      return this.index < this.rows.size();
+    }
+  }
+
+  @Getter
+  @AllArgsConstructor
+  private static final class WideLayout {
+
+    private final Long surveyId;
+    private final String sheetName;
+    private final List<Long> questionIds;
+    private final List<String> questionHeaders;
+  }
 
-        row.createCell(0).setCellValue(data.getUser().getId());
+  public void export(final Instant startTime, final Instant endTime, final ExportFormat format,
+      final OutputStream outStream) throws IOException {
 
-        Cell cell = row.createCell(1);
-        cell.setCellValue(LocalDateTime.ofInstant(data.getStartTime(), ZoneOffset.UTC));
-        cell.setCellStyle(cellStyleDateTime);
+    export(startTime, endTime, ExportOptions.builder().format(format).build(), outStream, new AtomicLong());
+  }
+
+  /**
+   * @param startTime
+   * @param endTime
+   * @param options
+   * @param outStream
+   * @param rowsWritten gets increased for every row written, so that the progress can be observed
+   * @throws IOException
+   */
+  public void export(final Instant startTime, final Instant endTime, final ExportOptions options,
+      final OutputStream outStream, final AtomicLong rowsWritten) throws IOException {
+
+    validate(options);
 
-        cell = row.createCell(2);
-        cell.setCellValue(LocalDateTime.ofInstant(data.getEndTime(), ZoneOffset.UTC));
-        cell.setCellStyle(cellStyleDateTime);
+    LOG.debug("Exporting data for interval: {} - {} [options: {}]", startTime, endTime, options);
+
+    export(split(startTime, endTime, options.getSlices()), null, options, outStream, rowsWritten);
+  }
 
-        row.createCell(3).setCellValue(data.getStepCount());
+  /**
+   * Exports all rows created after the specified cursor and up to the specified end time.
+   *
+   * @param after the positions of the rows exported last or <code>null</code> to export all rows
+   * @param endTime
+   * @param format
+   * @param outStream
+   * @return the positions of the rows exported last, which are kept for datasets without new rows
+   * @throws IOException
+   */
+  public ExportCursor exportAfter(final ExportCursor after, final Instant endTime, final ExportFormat format,
+      final OutputStream outStream) throws IOException {
 
-        cell = row.createCell(4);
-        cell.setCellValue(data.getUpdatedAt() == null
-            ? LocalDateTime.ofInstant(data.getCreatedAt(), ZoneOffset.UTC)
-            : LocalDateTime.ofInstant(data.getUpdatedAt(), ZoneOffset.UTC));
-        cell.setCellStyle(cellStyleDateTime);
+    LOG.debug("Exporting data after: {} [end: {}, format: {}]", after, endTime, format);
+
+    final ExportCursor last = export(Arrays.asList(Instant.EPOCH, endTime), after,
+        ExportOptions.builder().format(format).build(), outStream, new AtomicLong());
+
+    if (after == null)
+      return last;
+
+    return ExportCursor.builder()
+        .surveyResponse(last.getSurveyResponse() == null ? after.getSurveyResponse() : last.getSurveyResponse())
+        .stepCount(last.getStepCount() == null ? after.getStepCount() : last.getStepCount())
+        .build();
+  }
+
+  /*
+   * Exports each slice of the specified bounds concurrently. The cursor applies to the first slice.
+   */
+  private ExportCursor export(final List<Instant> bounds, final ExportCursor after, final ExportOptions options,
+      final OutputStream outStream, final AtomicLong rowsWritten) throws IOException {
+
+    final int slices = bounds.size() - 1;
+
+    final ExportPosition[] lastSurveyResponses = new ExportPosition[slices];
+    final ExportPosition[] lastStepCounts = new ExportPosition[slices];
+
+    try (final ExportWriter writer =
+        new CountingExportWriter(createWriter(options.getFormat(), outStream), rowsWritten)) {
+
+      if (options.getLayout() == ExportLayout.WIDE) {
+        exportWide(writer, bounds.get(0), bounds.get(1), options);
+        return ExportCursor.builder().build();
+      }
+
+      final SurveyResponseSelection selection = getSelection(options);
+      final ExportTasks tasks = new ExportTasks();
+
+      // Sheets are created up front to keep their order independent from their completion
+      final List<SheetWriter> surveySheets = tasks.guard(createSheets(writer, "survey", selection.getColumns()
+          .stream()
+          .map(ExportColumn::getHeader)
+          .collect(Collectors.toList()), slices));
+      final List<SheetWriter> stepCountSheets =
+          tasks.guard(createSheets(writer, SHEET_STEP_COUNT, getStepCountHeader(options), slices));
+
+      final Map<Long, QuestionInfo> questions = getQuestionInfos();
+
+      for (int i = 0; i < slices; i++) {
+
+        final int slice = i;
+        final Instant sliceEnd = bounds.get(i + 1);
+        final boolean endExclusive = i < slices - 1;
+        final ExportPosition surveyResponseAfter = i == 0 && after != null ? after.getSurveyResponse() : null;
+        final ExportPosition stepCountAfter = i == 0 && after != null ? after.getStepCount() : null;
+
+        final Runnable surveyTask = () -> lastSurveyResponses[slice] = exportSurveyResponseData(
+            surveySheets.get(slice), bounds.get(slice), sliceEnd, endExclusive, surveyResponseAfter, selection,
+            questions);
+
+        // The first survey slice is exported by the current thread
+        if (i > 0)
+          tasks.runAsync(surveyTask);
+
+        if (options.getStepCounts() == StepCountAggregation.DAILY)
+          tasks.runAsync(() -> exportDailyStepCounts(stepCountSheets.get(slice), bounds.get(slice), sliceEnd));
+        else
+          tasks.runAsync(() -> lastStepCounts[slice] = exportStepCounter(
+              stepCountSheets.get(slice), bounds.get(slice), sliceEnd, endExclusive, stepCountAfter));
       }
 
-      offset += stepCounts.size();
-      stepCounts = getStepCountData(startTime, endTime, offset);
+      // Do not finish or close the writer while other slices are still being written
+      tasks.runAndJoinAll(() -> lastSurveyResponses[0] = exportSurveyResponseData(surveySheets.get(0),
+          bounds.get(0), bounds.get(1), slices > 1, after == null ? null : after.getSurveyResponse(), selection,
+          questions));
+
+      writer.finish();
+
+    } catch (final UncheckedIOException e) {
+      throw e.getCause();
     }
+
+    return ExportCursor.builder()
+        .surveyResponse(getLast(lastSurveyResponses))
+        .stepCount(getLast(lastStepCounts))
+        .build();
+  }
+
+  private static ExportPosition getLast(final ExportPosition[] positions) {
+
+    for (int i = positions.length - 1; i >= 0; i--)
+      if (positions[i] != null)
+        return positions[i];
+
+    return null;
+  }
+
+  /**
+   * Returns the version of the data of the specified interval. The version changes whenever rows of
+   * the interval get added or deleted, or their validity, skipped state or step count changes, e.g.
+   * due to late commits or the step count rollup. The filters of the options are not considered, so
+   * the version may change without the export changing.
+   *
+   * @param startTime
+   * @param endTime
+   * @param options
+   * @return the version, which is meant to be part of cache keys
+   */
+  public String getDataVersion(final Instant startTime, final Instant endTime, final ExportOptions options) {
+
+    final TypedQuery<Object[]> surveyResponses =
+        this.entityManager.createQuery(QUERY_VERSION_SURVEY_RESPONSES, Object[].class);
+    surveyResponses.setParameter(1, startTime);
+    surveyResponses.setParameter(2, endTime);
+
+    final TypedQuery<Object[]> stepCounts;
+
+    if (options.getStepCounts() == StepCountAggregation.DAILY) {
+      stepCounts = this.entityManager.createQuery(QUERY_VERSION_STEP_COUNTS_DAILY, Object[].class);
+      stepCounts.setParameter(1, LocalDate.ofInstant(startTime, ZoneOffset.UTC));
+      stepCounts.setParameter(2, LocalDate.ofInstant(endTime, ZoneOffset.UTC));
+    } else {
+      stepCounts = this.entityManager.createQuery(QUERY_VERSION_STEP_COUNTS, Object[].class);
+      stepCounts.setParameter(1, startTime);
+      stepCounts.setParameter(2, endTime);
+    }
+
+    return this.threadingComponent.callWithDbPermit(() -> this.transactionTemplate.execute(status ->
+        Arrays.toString(surveyResponses.getSingleResult()) + "|" + Arrays.toString(stepCounts.getSingleResult())));
+  }
+
+  /**
+   * @param options
+   * @throws IllegalArgumentException if the specified options cannot be combined
+   */
+  public void validate(final ExportOptions options) {
+
+    final int slices = options.getSlices();
+
+    if (slices < 1 || slices > this.exportConfig.getMaxSlices())
+      throw new IllegalArgumentException(
+          "The amount of slices must be between 1 and " + this.exportConfig.getMaxSlices() + ".");
+
+    if (slices > 1 && !options.getFormat().isSegmentable())
+      throw new IllegalArgumentException(
+          "Export format " + options.getFormat().getValue() + " does not support slices.");
+
+    if (slices > 1 && options.getLayout() == ExportLayout.WIDE)
+      throw new IllegalArgumentException("The wide layout does not support slices.");
+
+    if (slices > 1 && options.getStepCounts() == StepCountAggregation.DAILY)
+      throw new IllegalArgumentException("Daily step counts do not support slices.");
+
+    if (options.getNameIds() != null && options.getNameIds().isEmpty())
+      throw new IllegalArgumentException("The survey filter must not be empty.");
+
+    if (options.getVersions() != null && options.getVersions().isEmpty())
+      throw new IllegalArgumentException("The version filter must not be empty.");
+
+    if (options.getColumns() != null && options.getColumns().isEmpty())
+      throw new IllegalArgumentException("At least one column must be exported.");
+
+    if (options.getLayout() == ExportLayout.WIDE && options.getColumns() != null)
+      throw new IllegalArgumentException("The wide layout does not support the selection of columns.");
+  }
+
+  /*
+   * Resolves the survey filter to the matching survey instances, which are few compared to the
+   * survey responses
+   */
+  private SurveyResponseSelection getSelection(final ExportOptions options) {
+
+    final List<ExportColumn> columns = getColumns(options);
+    final Set<Field> fields = EnumSet.of(Field.ID, Field.CREATED_AT);
+
+    for (final ExportColumn column : columns)
+      fields.addAll(getFields(column));
+
+    final List<String> conditions = getSurveyConditions(options, 1);
+
+    if (conditions.isEmpty())
+      return new SurveyResponseSelection(columns, fields, null);
+
+    final TypedQuery<Long> query = this.entityManager.createQuery(
+        QUERY_SURVEY_INSTANCES + " WHERE " + String.join(" AND ", conditions), Long.class);
+    setSurveyParameters(query, options, 1);
+
+    final List<Long> instanceIds = this.threadingComponent.callWithDbPermit(
+        () -> this.transactionTemplate.execute(status -> query.getResultList()));
+
+    return new SurveyResponseSelection(columns, fields, instanceIds);
+  }
+
+  private static List<ExportColumn> getColumns(final ExportOptions options) {
+
+    if (options.getColumns() != null)
+      return options.getColumns();
+
+    return options.getFormat().isTyped() ? ExportColumn.TYPED : ExportColumn.DEFAULT;
+  }
+
+  private static Set<Field> getFields(final ExportColumn column) {
+
+    switch (column) {
+      case SURVEY:
+        return EnumSet.of(Field.NAME_ID);
+      case START_TIME:
+        return EnumSet.of(Field.START_TIME);
+      case END_TIME:
+        return EnumSet.of(Field.END_TIME);
+      case USER_ID:
+        return EnumSet.of(Field.USER_ID);
+      case QUESTION_ORDER:
+      case QUESTION_TYPE:
+      case QUESTION:
+        return EnumSet.of(Field.QUESTION_ID);
+      case ANSWER:
+        return EnumSet.of(Field.BOOL_ANSWER, Field.TEXT_ANSWER, Field.NUMBER_ANSWER);
+      case BOOL_ANSWER:
+        return EnumSet.of(Field.BOOL_ANSWER);
+      case NUMBER_ANSWER:
+        return EnumSet.of(Field.NUMBER_ANSWER);
+      case TEXT_ANSWER:
+        return EnumSet.of(Field.TEXT_ANSWER);
+      case PREDEFINED_ANSWER:
+        // Predefined answers are looked up separately
+        return EnumSet.noneOf(Field.class);
+      case ANSWER_VERSION:
+        return EnumSet.of(Field.VERSION);
+      case SKIPPED:
+        return EnumSet.of(Field.SKIPPED);
+      case VALID:
+        return EnumSet.of(Field.VALID);
+      case ANSWER_TIMESTAMP:
+      default:
+        return EnumSet.of(Field.CREATED_AT);
+    }
+  }
+
+  /*
+   * The conditions of the survey filter using the parameters starting at the specified position
+   */
+  private static List<String> getSurveyConditions(final ExportOptions options, final int position) {
+
+    final List<String> conditions = new ArrayList<>(2);
+    int next = position;
+
+    if (options.getNameIds() != null)
+      conditions.add("s.nameId IN ?" + next++);
+
+    if (options.getVersions() != null)
+      conditions.add("s.version IN ?" + next);
+
+    return conditions;
   }
 
-  private void exportSurveyResponseData(final Workbook workbook, final Instant startTime, final Instant endTime,
-      final CellStyle cellStyleDateTime) {
+  private static void setSurveyParameters(final TypedQuery<?> query, final ExportOptions options,
+      final int position) {
 
-    final Sheet sheet = workbook.createSheet("survey");
-    // Create header
-    final Row headerRow = sheet.createRow(0);
-    headerRow.createCell(0).setCellValue("Survey");
-    headerRow.createCell(1).setCellValue("StartTime");
-    headerRow.createCell(2).setCellValue("EndTime");
-    headerRow.createCell(3).setCellValue("UserId");
-    headerRow.createCell(4).setCellValue("QuestionOrder");
-    headerRow.createCell(5).setCellValue("QuestionType");
-    headerRow.createCell(6).setCellValue("Question");
-    headerRow.createCell(7).setCellValue("Answer");
-    headerRow.createCell(8).setCellValue("AnswerVersion");
-    headerRow.createCell(9).setCellValue("Skipped");
-    headerRow.createCell(10).setCellValue("Valid");
-    headerRow.createCell(11).setCellValue("AnswerTimestamp");
+    int next = position;
 
-    int offset = 0;
-    int rowIndex = 1;
-    List<SurveyResponseData> responses = getSurveyResponseData(startTime, endTime, offset);
+    if (options.getNameIds() != null)
+      query.setParameter(next++, options.getNameIds());
 
-    while (!responses.isEmpty()) {
+    if (options.getVersions() != null)
+      query.setParameter(next, options.getVersions());
+  }
 
-      for (final SurveyResponseData data : responses) {
+  private static List<String> getStepCountHeader(final ExportOptions options) {
+    return options.getStepCounts() == StepCountAggregation.DAILY ? HEADER_STEP_COUNT_DAILY : HEADER_STEP_COUNT;
+  }
+
+  /*
+   * Creates one sheet per survey version followed by the step count sheet. The survey sheets are
+   * written by the current thread while the step counts are written concurrently.
+   */
+  private void exportWide(final ExportWriter writer, final Instant startTime, final Instant endTime,
+      final ExportOptions options) throws IOException {
 
-        final Row row = sheet.createRow(rowIndex++);
-        row.createCell(0).setCellValue(data.getNameId());
+    final List<WideLayout> layouts = getWideLayouts(startTime, endTime, options);
+    final List<WideSheetWriter> surveySheets = new ArrayList<>(layouts.size());
+    final ExportTasks tasks = new ExportTasks();
 
-        Cell cell = row.createCell(1);
-        cell.setCellValue(data.getStartTime().toInstant().atZone(ZoneOffset.UTC).toLocalDateTime());
-        cell.setCellStyle(cellStyleDateTime);
+    for (final WideLayout layout : layouts)
+      surveySheets.add(new WideSheetWriter(tasks.guard(
+          writer.createSheet(layout.getSheetName(), WideSheetWriter.getHeader(layout.getQuestionHeaders()))),
+          layout.getQuestionIds()));
 
-        cell = row.createCell(2);
-        cell.setCellValue(data.getEndTime().toInstant().atZone(ZoneOffset.UTC).toLocalDateTime());
-        cell.setCellStyle(cellStyleDateTime);
+    final SheetWriter stepCountSheet = tasks.guard(writer.createSheet(SHEET_STEP_COUNT, getStepCountHeader(options)));
 
-        row.createCell(3).setCellValue(data.getUserId());
-        row.createCell(4).setCellValue(data.getOrder().toString());
-        row.createCell(5).setCellValue(data.getQuestionType());
+    if (options.getStepCounts() == StepCountAggregation.DAILY)
+      tasks.runAsync(() -> exportDailyStepCounts(stepCountSheet, startTime, endTime));
+    else
+      tasks.runAsync(() -> exportStepCounter(stepCountSheet, startTime, endTime, false, null));
 
-        row.createCell(6).setCellValue(data.getCheckListEntry() == null ? data.getQuestion()
-            : data.getQuestion() + ": " + data.getCheckListEntry());
+    // Do not finish or close the writer while the step counts are still being written
+    tasks.runAndJoinAll(() -> {
 
-        row.createCell(7).setCellValue(
-            data.getBoolAnswer() != null ? data.getBoolAnswer().toString()
-                : data.getTextAnswer() != null ? data.getTextAnswer()
-                    : data.getNumberAnswer() != null ? data.getNumberAnswer().toString()
-                        : data.getPredefinedAnswer() != null ? data.getPredefinedAnswer() : null);
+      final Map<Long, QuestionInfo> questions = getQuestionInfos();
 
-        row.createCell(8).setCellValue(data.getVersion().toString());
+      for (int i = 0; i < layouts.size(); i++)
+        exportWideSurveyResponseData(surveySheets.get(i), layouts.get(i).getSurveyId(), startTime, endTime,
+            questions);
+    });
+
+    writer.finish();
+  }
 
-        row.createCell(9).setCellValue(data.getSkipped());
-        row.createCell(10).setCellValue(data.getValid());
+  /*
+   * Rows are written ordered by survey instance, user and answer version
+   */
+  private void exportWideSurveyResponseData(final WideSheetWriter sheet, final Long surveyId,
+      final Instant startTime, final Instant endTime, final Map<Long, QuestionInfo> questions) {
 
-        cell = row.createCell(11);
-        cell.setCellValue(data.getCreatedAt().toInstant().atZone(ZoneOffset.UTC).toLocalDateTime());
-        cell.setCellStyle(cellStyleDateTime);
+    final TypedQuery<Long> instanceQuery = this.entityManager.createQuery(QUERY_WIDE_SURVEY_INSTANCES, Long.class);
+    instanceQuery.setParameter(1, surveyId);
+
+    final List<Long> instanceIds = this.threadingComponent.callWithDbPermit(
+        () -> this.transactionTemplate.execute(status -> instanceQuery.getResultList()));
+
+    try {
+      for (final Long instanceId : instanceIds) {
+
+        List<SurveyResponseRow> responses =
+            getWideSurveyResponseData(instanceId, startTime, endTime, null, questions);
+
+        while (!responses.isEmpty()) {
+
+          for (final SurveyResponseRow response : responses)
+            sheet.write(response);
+
+          responses = getWideSurveyResponseData(instanceId, startTime, endTime,
+              responses.get(responses.size() - 1), questions);
+        }
       }
 
-      offset += responses.size();
-      responses = getSurveyResponseData(startTime, endTime, offset);
+      sheet.close();
+
+    } catch (final IOException e) {
+      throw new UncheckedIOException(e);
     }
   }
 
-  private List<SurveyResponseData> getSurveyResponseData(final Instant startTime, final Instant endTime,
-      final int offset) {
+  private List<SurveyResponseRow> getWideSurveyResponseData(final Long instanceId, final Instant startTime,
+      final Instant endTime, final SurveyResponseRow last, final Map<Long, QuestionInfo> questions) {
+
+    final SurveyResponseSelection selection = SurveyResponseSelection.ALL;
 
-    final TypedQuery<SurveyResponseData> query = this.entityManager.createNamedQuery(
-        "SurveyResponse.nativeFindByCreatedAtBetween", SurveyResponseData.class);
+    return readSurveyResponseRows(() -> {
+
+      final TypedQuery<Object[]> query = this.entityManager.createQuery(selection.getSelect()
+          + FROM_SURVEY_RESPONSES + CONDITION_WIDE + (last == null ? "" : CONDITION_WIDE_KEYSET) + ORDER_WIDE,
+          Object[].class);
+      query.setParameter(1, instanceId);
+      query.setParameter(2, startTime);
+      query.setParameter(3, endTime);
+      if (last != null) {
+        query.setParameter(4, last.getUserId());
+        query.setParameter(5, last.getVersion());
+        query.setParameter(6, last.getId());
+      }
+      query.setMaxResults(PAGE_SIZE);
+      return query;
+
+    }, selection, questions);
+  }
+
+  /*
+   * The columns of each survey version having responses within the specified interval. Columns are
+   * ordered like the questions of the survey. Sub questions follow their parent question.
+   */
+  private List<WideLayout> getWideLayouts(final Instant startTime, final Instant endTime,
+      final ExportOptions options) {
+
+    final TypedQuery<Survey> query = this.entityManager.createQuery(QUERY_SURVEYS
+        + getSurveyConditions(options, 3).stream().map(c -> " AND " + c).collect(Collectors.joining()),
+        Survey.class);
     query.setParameter(1, startTime);
     query.setParameter(2, endTime);
-    query.setFirstResult(offset);
-    query.setMaxResults(500);
+    setSurveyParameters(query, options, 3);
 
-    return this.transactionTemplate.execute(status -> {
-      return query.getResultList();
+    // Sheet names must be unique within the export
+    final Set<String> sheetNames = new HashSet<>();
+    sheetNames.add(SHEET_STEP_COUNT);
+
+    return this.threadingComponent.callWithDbPermit(() -> this.transactionTemplate.execute(status -> {
+
+      return query.getResultList().stream()
+          .sorted(Comparator.comparing(Survey::getNameId).thenComparing(Survey::getVersion))
+          .map(survey -> {
+
+            final List<Long> questionIds = new ArrayList<>();
+            final List<String> questionHeaders = new ArrayList<>();
+            addColumns(survey.getQuestions(), questionIds, questionHeaders);
+
+            return new WideLayout(survey.getId(), getSheetName(survey, sheetNames), questionIds, questionHeaders);
+          })
+          .collect(Collectors.toList());
+    }));
+  }
+
+  private static void addColumns(final List<Question> questions, final List<Long> questionIds,
+      final List<String> questionHeaders) {
+
+    if (questions == null)
+      return;
+
+    final List<Question> sorted = new ArrayList<>(questions);
+    sorted.sort(Comparator.comparing(Question::getRanking));
+
+    for (final Question question : sorted) {
+
+      if (question instanceof ChecklistQuestion) {
+
+        // Responses to checklists refer to the checklist entries
+        for (final ChecklistEntry entry : ((ChecklistQuestion) question).getEntries()) {
+          questionIds.add(entry.getId());
+          questionHeaders.add(question.getQuestion() + ": " + entry.getQuestion());
+        }
+
+      } else {
+        questionIds.add(question.getId());
+        questionHeaders.add(question.getQuestion());
+      }
+
+      if (question instanceof BooleanQuestion && ((BooleanQuestion) question).getContainer() != null)
+        addColumns(((BooleanQuestion) question).getContainer().getQuestions(), questionIds, questionHeaders);
+
+      if (question instanceof ChoiceQuestion && ((ChoiceQuestion) question).getContainer() != null)
+        addColumns(((ChoiceQuestion) question).getContainer().getQuestions(), questionIds, questionHeaders);
+    }
+  }
+
+  /*
+   * Different nameIds may result in the same sheet name once sanitized and truncated, so a counter
+   * gets appended to duplicates. Workbooks compare sheet names case-insensitively.
+   */
+  private static String getSheetName(final Survey survey, final Set<String> usedNames) {
+
+    final String name = survey.getNameId().replaceAll("[^A-Za-z0-9_-]", "_");
+    String suffix = "_v" + survey.getVersion();
+
+    for (int i = 2;; i++) {
+
+      final String result =
+          name.substring(0, Math.min(name.length(), MAX_SHEET_NAME_LENGTH - suffix.length())) + suffix;
+
+      if (usedNames.add(result.toLowerCase(Locale.ROOT)))
+        return result;
+
+      suffix = "_v" + survey.getVersion() + "_" + i;
+    }
+  }
+
+  private static List<Instant> split(final Instant startTime, final Instant endTime, final int slices) {
+
+    final Duration duration = Duration.between(startTime, endTime);
+    final List<Instant> result = new ArrayList<>(slices + 1);
+
+    for (int i = 0; i < slices; i++)
+      result.add(startTime.plus(duration.multipliedBy(i).dividedBy(slices)));
+
+    result.add(endTime);
+    return result;
+  }
+
+  private static List<SheetWriter> createSheets(final ExportWriter writer, final String name,
+      final List<String> header, final int slices) throws IOException {
+
+    if (slices == 1)
+      return Collections.singletonList(writer.createSheet(name, header));
+
+    return writer.createSegmentedSheet(name, header, slices);
+  }
+
+  /*
+   * The concurrent tasks of a single export. Once a task failed, the other tasks fail at their next
+   * row, so that the export does not wait for them to complete before closing its writer.
+   */
+  private final class ExportTasks {
+
+    private final List<CompletableFuture<Void>> tasks = new ArrayList<>();
+
+    private volatile boolean failed;
+
+    private SheetWriter guard(final SheetWriter sheet) {
+
+      return new SheetWriter() {
+
+        @Override
+        public void writeRow(final Object... values) throws IOException {
+
+          if (ExportTasks.this.failed)
+            throw new CancellationException("Export cancelled due to a failure of a concurrent task.");
+
+          sheet.writeRow(values);
+        }
+
+        @Override
+        public void close() throws IOException {
+          sheet.close();
+        }
+      };
+    }
+
+    private List<SheetWriter> guard(final List<SheetWriter> sheets) {
+      return sheets.stream().map(this::guard).collect(Collectors.toList());
+    }
+
+    private void runAsync(final Runnable task) {
+      this.tasks.add(CompletableFuture.runAsync(() -> run(task),
+          SurveyDataExportComponent.this.threadingComponent.getExecutor(
+              SurveyDataExportComponent.this.exportWorkerExecutor)));
+    }
+
+    private void run(final Runnable task) {
+
+      try {
+        task.run();
+      } catch (final RuntimeException e) {
+        this.failed = true;
+        throw e;
+      }
+    }
+
+    /*
+     * Runs the specified task by the current thread, waits for all other tasks and rethrows the first
+     * failure. Cancellations caused by a failure are not reported.
+     */
+    private void runAndJoinAll(final Runnable task) {
+
+      RuntimeException failure = null;
+
+      try {
+        run(task);
+      } catch (final RuntimeException e) {
+        failure = e;
+      }
+
+      for (final CompletableFuture<Void> future : this.tasks) {
+        try {
+          future.join();
+        } catch (final CompletionException e) {
+          final RuntimeException cause =
+              e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+
+          if (failure == null
+              || failure instanceof CancellationException && !(cause instanceof CancellationException))
+            failure = cause;
+        }
+      }
+
+      if (failure != null)
+        throw failure;
+    }
+  }
+
+  private static ExportWriter createWriter(final ExportFormat format, final OutputStream outStream)
+      throws IOException {
+
+    switch (format) {
+      case CSV:
+        return new CsvExportWriter(outStream, false);
+      case CSV_GZ:
+        return new CsvExportWriter(outStream, true);
+      case JSONL:
+        return new JsonlExportWriter(outStream, false);
+      case JSONL_GZ:
+        return new JsonlExportWriter(outStream, true);
+      case XLSX:
+      default:
+        return new XlsxExportWriter(outStream);
+    }
+  }
+
+  /*
+   * Returns the position of the last exported row or null, if no rows have been exported
+   */
+  private ExportPosition exportStepCounter(final SheetWriter sheet, final Instant startTime, final Instant endTime,
+      final boolean endExclusive, final ExportPosition after) {
+
+    final ExportPosition[] last = new ExportPosition[1];
+
+    forEachStepCount(startTime, endTime, endExclusive, after, data -> {
+
+      write(sheet,
+          data.getUserId(),
+          data.getStartTime(),
+          data.getEndTime(),
+          data.getStepCount(),
+          data.getTimestamp());
+
+      last[0] = new ExportPosition(data.getCreatedAt(), data.getId());
     });
+
+    close(sheet);
+    return last[0];
   }
 
-  private List<StepCount> getStepCountData(final Instant startTime, final Instant endTime,
-      final int offset) {
+  /*
+   * Exports the daily totals of all days (UTC) overlapping the specified interval. Like the step
+   * counts, the totals are read in keyset pages of the fetch size.
+   */
+  private void exportDailyStepCounts(final SheetWriter sheet, final Instant startTime, final Instant endTime) {
 
-    final TypedQuery<StepCount> query = this.entityManager.createNamedQuery(
-        "StepCount.findByCreatedAtBetween", StepCount.class);
-    query.setParameter(1, startTime);
-    query.setParameter(2, endTime);
-    query.setFirstResult(offset);
-    query.setMaxResults(500);
+    final LocalDate startDay = LocalDate.ofInstant(startTime, ZoneOffset.UTC);
+    final LocalDate endDay = LocalDate.ofInstant(endTime, ZoneOffset.UTC);
+    final int pageSize = this.streamingConfig.getFetchSize();
+
+    List<Object[]> page = getDailyStepCountData(startDay, endDay, null, pageSize);
+
+    while (!page.isEmpty()) {
+
+      for (final Object[] row : page)
+        write(sheet, row[0], row[1].toString(), row[2], row[3]);
 
-    return this.transactionTemplate.execute(status -> {
+      if (page.size() < pageSize)
+        break;
+
+      page = getDailyStepCountData(startDay, endDay, page.get(page.size() - 1), pageSize);
+    }
+
+    close(sheet);
+  }
+
+  private List<Object[]> getDailyStepCountData(final LocalDate startDay, final LocalDate endDay,
+      final Object[] last, final int pageSize) {
+
+    final TypedQuery<Object[]> query = this.entityManager.createQuery(QUERY_STEP_COUNTS_DAILY
+        + (last == null ? "" : CONDITION_STEP_COUNTS_DAILY_KEYSET) + ORDER_STEP_COUNTS_DAILY, Object[].class);
+    query.setParameter(1, startDay);
+    query.setParameter(2, endDay);
+    if (last != null) {
+      query.setParameter(3, last[1]);
+      query.setParameter(4, last[0]);
+    }
+    query.setHint(QueryHints.HINT_READONLY, true);
+    query.setMaxResults(pageSize);
+
+    return this.threadingComponent.callWithDbPermit(() -> this.transactionTemplate.execute(status -> {
       return query.getResultList();
+    }));
+  }
+
+  private ExportPosition exportSurveyResponseData(final SheetWriter sheet, final Instant startTime,
+      final Instant endTime, final boolean endExclusive, final ExportPosition after,
+      final SurveyResponseSelection selection, final Map<Long, QuestionInfo> questions) {
+
+    final ExportPosition[] last = new ExportPosition[1];
+    final List<ExportColumn> columns = selection.getColumns();
+
+    forEachSurveyResponse(startTime, endTime, endExclusive, after, selection, questions, data -> {
+
+      final Object[] values = new Object[columns.size()];
+      for (int i = 0; i < values.length; i++)
+        values[i] = columns.get(i).getValue(data);
+
+      write(sheet, values);
+
+      last[0] = new ExportPosition(data.getCreatedAt(), data.getId());
     });
+
+    close(sheet);
+    return last[0];
+  }
+
+  private static void write(final SheetWriter sheet, final Object... values) {
+
+    try {
+      sheet.writeRow(values);
+    } catch (final IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static void close(final SheetWriter sheet) {
+
+    try {
+      sheet.close();
+    } catch (final IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Reads all survey responses created within the specified interval ordered by creation time.
+   *
+   * @param startTime
+   * @param endTime
+   * @param consumer
+   */
+  public void forEachSurveyResponse(final Instant startTime, final Instant endTime,
+      final Consumer<SurveyResponseRow> consumer) {
+
+    forEachSurveyResponse(startTime, endTime, false, null, SurveyResponseSelection.ALL, getQuestionInfos(),
+        consumer);
+  }
+
+  /*
+   * No index serves the order of the keyset across several survey instances, so filtered exports read
+   * the keyset pages of each survey instance and merge them by (createdAt, id). The page size is split
+   * between the survey instances, so the rows held in memory stay close to a single page.
+   */
+  private void forEachSurveyResponse(final Instant startTime, final Instant endTime, final boolean endExclusive,
+      final ExportPosition after, final SurveyResponseSelection selection, final Map<Long, QuestionInfo> questions,
+      final Consumer<SurveyResponseRow> consumer) {
+
+    if (selection.isEmpty())
+      return;
+
+    final Instant start = after == null ? startTime : after.getCreatedAt();
+
+    final List<Long> instanceIds = selection.getInstanceIds() == null
+        ? Collections.singletonList(null)
+        : selection.getInstanceIds();
+    final int pageSize = instanceIds.size() == 1
+        ? PAGE_SIZE
+        : Math.max(PAGE_SIZE / instanceIds.size(), MIN_INSTANCE_PAGE_SIZE);
+
+    final PriorityQueue<SurveyResponsePage> pages = new PriorityQueue<>(instanceIds.size(),
+        Comparator.comparing(SurveyResponsePage::peek, SURVEY_RESPONSE_ORDER));
+
+    for (final Long instanceId : instanceIds)
+      addPage(pages, new SurveyResponsePage(instanceId,
+          getSurveyResponseData(start, endTime, endExclusive, after, instanceId, pageSize, selection, questions),
+          pageSize));
+
+    while (!pages.isEmpty()) {
+
+      final SurveyResponsePage page = pages.poll();
+      final SurveyResponseRow row = page.next();
+
+      consumer.accept(row);
+
+      if (page.hasNext())
+        pages.add(page);
+
+      else if (page.isFull())
+        addPage(pages, new SurveyResponsePage(page.getInstanceId(),
+            getSurveyResponseData(start, endTime, endExclusive, new ExportPosition(row.getCreatedAt(), row.getId()),
+                page.getInstanceId(), pageSize, selection, questions),
+            pageSize));
+    }
+  }
+
+  private static void addPage(final PriorityQueue<SurveyResponsePage> pages, final SurveyResponsePage page) {
+    if (page.hasNext())
+      pages.add(page);
+  }
+
+  /**
+   * Reads all step counts created within the specified interval ordered by creation time.
+   *
+   * @param startTime
+   * @param endTime
+   * @param consumer
+   */
+  public void forEachStepCount(final Instant startTime, final Instant endTime,
+      final Consumer<StepCountRow> consumer) {
+
+    forEachStepCount(startTime, endTime, false, null, consumer);
+  }
+
+  /*
+   * Step counts are the largest dataset. They are read as projection in keyset pages of the fetch
+   * size, so that no entities get managed. Each page is read by its own transaction and the consumer
+   * is called outside of it, so that slow clients do not hold a connection or DB permit.
+   */
+  private void forEachStepCount(final Instant startTime, final Instant endTime, final boolean endExclusive,
+      final ExportPosition after, final Consumer<StepCountRow> consumer) {
+
+    final Instant start = after == null ? startTime : after.getCreatedAt();
+    final int pageSize = this.streamingConfig.getFetchSize();
+
+    List<StepCountRow> page = getStepCountData(start, endTime, endExclusive, after, pageSize);
+
+    while (!page.isEmpty()) {
+
+      page.forEach(consumer);
+
+      if (page.size() < pageSize)
+        break;
+
+      final StepCountRow last = page.get(page.size() - 1);
+      page = getStepCountData(start, endTime, endExclusive, new ExportPosition(last.getCreatedAt(), last.getId()),
+          pageSize);
+    }
+  }
+
+  private List<StepCountRow> getStepCountData(final Instant startTime, final Instant endTime,
+      final boolean endExclusive, final ExportPosition last, final int pageSize) {
+
+    return this.threadingComponent.callWithDbPermit(() -> this.readCommittedTransactionTemplate.execute(status -> {
+
+      final TypedQuery<Object[]> query = this.entityManager.createQuery(
+          keyset(QUERY_STEP_COUNTS, "s", endExclusive, last != null, ""), Object[].class);
+      query.setParameter(1, startTime);
+      query.setParameter(2, endTime);
+      if (last != null) {
+        query.setParameter(3, last.getCreatedAt());
+        query.setParameter(4, last.getId());
+      }
+      query.setHint(QueryHints.HINT_READONLY, true);
+      query.setMaxResults(pageSize);
+
+      return query.getResultList().stream()
+          .map(SurveyDataExportComponent::toStepCountRow)
+          .collect(Collectors.toList());
+    }));
+  }
+
+  /*
+   * Questions are resolved once per export instead of joining them for every response. Responses to
+   * checklists refer to the checklist entry, so these get resolved to their checklist.
+   */
+  private Map<Long, QuestionInfo> getQuestionInfos() {
+
+    final TypedQuery<Question> query = this.entityManager.createQuery("SELECT q FROM Question q", Question.class);
+
+    return this.threadingComponent.callWithDbPermit(() -> this.transactionTemplate.execute(status -> {
+
+      final List<Question> questions = query.getResultList();
+      final Map<Long, QuestionInfo> result = new HashMap<>();
+
+      for (final Question question : questions) {
+
+        result.putIfAbsent(question.getId(), new QuestionInfo(
+            question.getRanking(), question.getType().toString(), question.getQuestion(), null));
+
+        if (question instanceof ChecklistQuestion) {
+          for (final ChecklistEntry entry : ((ChecklistQuestion) question).getEntries()) {
+            result.put(entry.getId(), new QuestionInfo(
+                question.getRanking(), question.getType().toString(), question.getQuestion(), entry.getQuestion()));
+          }
+        }
+      }
+      return result;
+    }));
+  }
+
+  private List<SurveyResponseRow> getSurveyResponseData(final Instant startTime, final Instant endTime,
+      final boolean endExclusive, final ExportPosition last, final Long instanceId, final int pageSize,
+      final SurveyResponseSelection selection, final Map<Long, QuestionInfo> questions) {
+
+    // The survey instance follows the parameters of the interval and the keyset
+    final int instancePosition = last == null ? 3 : 5;
+    final String condition = instanceId == null
+        ? ""
+        : String.format(CONDITION_SURVEY_INSTANCE, instancePosition);
+
+    return readSurveyResponseRows(() -> {
+
+      final TypedQuery<Object[]> query = this.entityManager.createQuery(
+          keyset(selection.getSelect() + FROM_SURVEY_RESPONSES, "r", endExclusive, last != null, condition),
+          Object[].class);
+      query.setParameter(1, startTime);
+      query.setParameter(2, endTime);
+      if (last != null) {
+        query.setParameter(3, last.getCreatedAt());
+        query.setParameter(4, last.getId());
+      }
+      if (instanceId != null)
+        query.setParameter(instancePosition, instanceId);
+      query.setMaxResults(pageSize);
+      return query;
+
+    }, selection, questions);
+  }
+
+  /*
+   * The query gets created within the transaction, so that it is bound to it
+   */
+  private List<SurveyResponseRow> readSurveyResponseRows(final Supplier<TypedQuery<Object[]>> query,
+      final SurveyResponseSelection selection, final Map<Long, QuestionInfo> questions) {
+
+    return this.threadingComponent.callWithDbPermit(() -> this.readCommittedTransactionTemplate.execute(status -> {
+
+      final List<SurveyResponseRow> rows = query.get().getResultList().stream()
+          .map(tuple -> toSurveyResponseRow(tuple, selection, questions))
+          .collect(Collectors.toList());
+
+      if (selection.getColumns().contains(ExportColumn.ANSWER)
+          || selection.getColumns().contains(ExportColumn.PREDEFINED_ANSWER))
+        addPredefinedAnswers(rows);
+
+      return rows;
+    }));
+  }
+
+  private void addPredefinedAnswers(final List<SurveyResponseRow> rows) {
+
+    if (rows.isEmpty())
+      return;
+
+    final TypedQuery<Object[]> query = this.entityManager.createQuery(
+        "SELECT r.id, a.value FROM SurveyResponse r JOIN r.answers a WHERE r.id IN ?1", Object[].class);
+    query.setParameter(1, rows.stream().map(SurveyResponseRow::getId).collect(Collectors.toList()));
+
+    final Map<Long, String> answers = query.getResultList().stream().collect(Collectors.toMap(
+        tuple -> ((Number) tuple[0]).longValue(),
+        tuple -> (String) tuple[1],
+        (a, b) -> a + ", " + b));
+
+    for (final SurveyResponseRow row : rows)
+      row.setPredefinedAnswer(answers.get(row.getId()));
+  }
+
+  private static SurveyResponseRow toSurveyResponseRow(final Object[] tuple,
+      final SurveyResponseSelection selection, final Map<Long, QuestionInfo> questions) {
+
+    final Long questionId = toLong(selection.get(tuple, Field.QUESTION_ID));
+    final QuestionInfo question = questionId == null ? null : questions.get(questionId);
+
+    return SurveyResponseRow.builder()
+        .id(toLong(selection.get(tuple, Field.ID)))
+        .createdAt((Instant) selection.get(tuple, Field.CREATED_AT))
+        .nameId((String) selection.get(tuple, Field.NAME_ID))
+        .startTime((Instant) selection.get(tuple, Field.START_TIME))
+        .endTime((Instant) selection.get(tuple, Field.END_TIME))
+        .userId((String) selection.get(tuple, Field.USER_ID))
+        .questionId(questionId)
+        .order(question == null ? null : question.getOrder())
+        .questionType(question == null ? null : question.getType())
+        .question(question == null ? null : question.getQuestion())
+        .checkListEntry(question == null ? null : question.getCheckListEntry())
+        .boolAnswer((Boolean) selection.get(tuple, Field.BOOL_ANSWER))
+        .textAnswer((String) selection.get(tuple, Field.TEXT_ANSWER))
+        .numberAnswer(toInteger(selection.get(tuple, Field.NUMBER_ANSWER)))
+        .version(toInteger(selection.get(tuple, Field.VERSION)))
+        .skipped((Boolean) selection.get(tuple, Field.SKIPPED))
+        .valid((Boolean) selection.get(tuple, Field.VALID))
+        .instanceId(toLong(selection.get(tuple, Field.INSTANCE_ID)))
+        .build();
+  }
+
+  private static Long toLong(final Object value) {
+    return value == null ? null : ((Number) value).longValue();
+  }
+
+  private static Integer toInteger(final Object value) {
+    return value == null ? null : ((Number) value).intValue();
+  }
+
+  private static StepCountRow toStepCountRow(final Object[] tuple) {
+
+    return StepCountRow.builder()
+        .id(((Number) tuple[0]).longValue())
+        .userId((String) tuple[1])
+        .startTime((Instant) tuple[2])
+        .endTime((Instant) tuple[3])
+        .stepCount(tuple[4] == null ? null : ((Number) tuple[4]).intValue())
+        .createdAt((Instant) tuple[5])
+        .updatedAt((Instant) tuple[6])
+        .build();
+  }
+
+  /*
+   * Slices other than the last one exclude their end, as it is the start of the next slice
+   */
+  private static String keyset(final String query, final String alias, final boolean endExclusive,
+      final boolean continued, final String condition) {
+
+    return query
+        + String.format(endExclusive ? CONDITION_SLICE : CONDITION_INTERVAL, alias)
+        + (continued ? String.format(CONDITION_KEYSET, alias) : "")
+        + condition
+        + String.format(ORDER_KEYSET, alias);
   }
 }
@@ -0,0 +1,222 @@
+/**
+ *
+ */
+package one.tracking.framework.component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import one.tracking.framework.component.export.ExportWriter;
+import one.tracking.framework.component.export.ExportWriter.SheetWriter;
+import one.tracking.framework.component.export.XlsxExportWriter;
+import one.tracking.framework.dto.AnswerCountDto;
+import one.tracking.framework.dto.InstanceReportDto;
+import one.tracking.framework.dto.RangeStatisticsDto;
+import one.tracking.framework.dto.ReportDto;
+
+/**
+ * Computes aggregates of the survey responses per survey instance. All aggregates are computed by the
+ * database, so that only one row per instance, question and answer gets transferred.<br/>
+ * <br/>
+ * Only valid responses are considered. Of the answer versions of a user to the same question of the
+ * same instance, only the latest version created until the end of the interval is considered.
+ *
+ * @author Marko Voß
+ *
+ */
+@Component
+public class SurveyReportComponent {
+
+  /*
+   * Served by the index on (user_id, survey_instance_id, question_id, version) of the survey
+   * responses. See db/export-indexes.sql.
+   */
+  private static final String CONDITION_CURRENT =
+      " WHERE r.createdAt BETWEEN ?1 AND ?2 AND r.valid = true"
+          + " AND NOT EXISTS (SELECT n.id FROM SurveyResponse n WHERE n.user = r.user"
+          + " AND n.surveyInstance = r.surveyInstance AND n.question = r.question AND n.valid = true"
+          + " AND n.version > r.version AND n.createdAt <= ?2)";
+
+  private static final String FROM_RESPONSES =
+      " FROM SurveyResponse r JOIN r.surveyInstance i JOIN i.survey s JOIN r.question q JOIN r.user u"
+          + CONDITION_CURRENT;
+
+  private static final String QUERY_INSTANCES =
+      "SELECT s.nameId, s.version, i.id, i.startTime, i.endTime,"
+          + " COUNT(DISTINCT u.id), COUNT(r), SUM(CASE WHEN r.skipped = true THEN 1 ELSE 0 END)"
+          + FROM_RESPONSES
+          + " GROUP BY s.nameId, s.version, i.id, i.startTime, i.endTime"
+          + " ORDER BY s.nameId, s.version, i.startTime";
+
+  private static final String QUERY_CHOICE_ANSWERS =
+      "SELECT i.id, q.id, q.question, a.value, COUNT(r)"
+          + " FROM SurveyResponse r JOIN r.surveyInstance i JOIN r.question q JOIN r.answers a"
+          + CONDITION_CURRENT
+          + " GROUP BY i.id, q.id, q.question, a.value";
+
+  private static final String QUERY_BOOL_ANSWERS =
+      "SELECT i.id, q.id, q.question, r.boolAnswer, COUNT(r)"
+          + FROM_RESPONSES + " AND r.boolAnswer IS NOT NULL"
+          + " GROUP BY i.id, q.id, q.question, r.boolAnswer";
+
+  private static final String QUERY_RANGE_STATISTICS =
+      "SELECT i.id, q.id, q.question, COUNT(r.numberAnswer), AVG(r.numberAnswer), MIN(r.numberAnswer),"
+          + " MAX(r.numberAnswer)"
+          + FROM_RESPONSES + " AND r.numberAnswer IS NOT NULL"
+          + " GROUP BY i.id, q.id, q.question";
+
+  private static final List<String> HEADER_INSTANCES = Arrays.asList(
+      "Survey", "Version", "InstanceId", "StartTime", "EndTime", "Participants", "Responses", "Skipped",
+      "AnsweredRate");
+
+  private static final List<String> HEADER_ANSWERS = Arrays.asList(
+      "Survey", "Version", "InstanceId", "QuestionId", "Question", "Answer", "Count");
+
+  private static final List<String> HEADER_RANGES = Arrays.asList(
+      "Survey", "Version", "InstanceId", "QuestionId", "Question", "Count", "Mean", "Min", "Max");
+
+  @Autowired
+  private TransactionTemplate transactionTemplate;
+
+  @Autowired
+  private EntityManager entityManager;
+
+  @Autowired
+  private ThreadingComponent threadingComponent;
+
+  /**
+   * @param startTime
+   * @param endTime
+   * @return the aggregates of all survey responses created within the specified interval
+   */
+  public ReportDto getReport(final Instant startTime, final Instant endTime) {
+
+    final List<InstanceReportDto> instances = query(QUERY_INSTANCES, startTime, endTime).stream()
+        .map(tuple -> {
+
+          final long responses = ((Number) tuple[6]).longValue();
+          final long skipped = tuple[7] == null ? 0 : ((Number) tuple[7]).longValue();
+
+          return InstanceReportDto.builder()
+              .nameId((String) tuple[0])
+              .version(((Number) tuple[1]).intValue())
+              .instanceId(((Number) tuple[2]).longValue())
+              .startTime((Instant) tuple[3])
+              .endTime((Instant) tuple[4])
+              .participants(((Number) tuple[5]).longValue())
+              .responses(responses)
+              .skipped(skipped)
+              .answeredRate(responses == 0 ? 0 : (double) (responses - skipped) / responses)
+              .answerCounts(new ArrayList<>())
+              .rangeStatistics(new ArrayList<>())
+              .build();
+        })
+        .collect(Collectors.toList());
+
+    final Map<Long, InstanceReportDto> instancesById = new HashMap<>();
+    for (final InstanceReportDto instance : instances)
+      instancesById.put(instance.getInstanceId(), instance);
+
+    for (final Object[] tuple : query(QUERY_BOOL_ANSWERS, startTime, endTime))
+      addAnswerCount(instancesById, tuple);
+
+    for (final Object[] tuple : query(QUERY_CHOICE_ANSWERS, startTime, endTime))
+      addAnswerCount(instancesById, tuple);
+
+    for (final Object[] tuple : query(QUERY_RANGE_STATISTICS, startTime, endTime)) {
+
+      final InstanceReportDto instance = instancesById.get(((Number) tuple[0]).longValue());
+      if (instance == null)
+        continue;
+
+      instance.getRangeStatistics().add(RangeStatisticsDto.builder()
+          .questionId(((Number) tuple[1]).longValue())
+          .question((String) tuple[2])
+          .count(((Number) tuple[3]).longValue())
+          .mean(tuple[4] == null ? null : ((Number) tuple[4]).doubleValue())
+          .min(tuple[5] == null ? null : ((Number) tuple[5]).intValue())
+          .max(tuple[6] == null ? null : ((Number) tuple[6]).intValue())
+          .build());
+    }
+
+    return ReportDto.builder()
+        .startTime(startTime)
+        .endTime(endTime)
+        .instances(instances)
+        .build();
+  }
+
+  private static void addAnswerCount(final Map<Long, InstanceReportDto> instancesById, final Object[] tuple) {
+
+    // Responses created concurrently to the instance query may belong to an unknown instance
+    final InstanceReportDto instance = instancesById.get(((Number) tuple[0]).longValue());
+    if (instance == null)
+      return;
+
+    instance.getAnswerCounts().add(AnswerCountDto.builder()
+        .questionId(((Number) tuple[1]).longValue())
+        .question((String) tuple[2])
+        .answer(tuple[3] == null ? null : tuple[3].toString())
+        .count(((Number) tuple[4]).longValue())
+        .build());
+  }
+
+  private List<Object[]> query(final String jpql, final Instant startTime, final Instant endTime) {
+
+    final TypedQuery<Object[]> query = this.entityManager.createQuery(jpql, Object[].class);
+    query.setParameter(1, startTime);
+    query.setParameter(2, endTime);
+
+    return this.threadingComponent.callWithDbPermit(() -> this.transactionTemplate.execute(status -> {
+      return query.getResultList();
+    }));
+  }
+
+  /**
+   * Writes the specified report as workbook containing one sheet per aggregate.
+   *
+   * @param report
+   * @param outStream
+   * @throws IOException
+   */
+  public void writeXlsx(final ReportDto report, final OutputStream outStream) throws IOException {
+
+    try (final ExportWriter writer = new XlsxExportWriter(outStream)) {
+
+      try (final SheetWriter sheet = writer.createSheet("instances", HEADER_INSTANCES)) {
+        for (final InstanceReportDto instance : report.getInstances())
+          sheet.writeRow(instance.getNameId(), instance.getVersion(), instance.getInstanceId(),
+              instance.getStartTime(), instance.getEndTime(), instance.getParticipants(), instance.getResponses(),
+              instance.getSkipped(), instance.getAnsweredRate());
+      }
+
+      try (final SheetWriter sheet = writer.createSheet("answers", HEADER_ANSWERS)) {
+        for (final InstanceReportDto instance : report.getInstances())
+          for (final AnswerCountDto answer : instance.getAnswerCounts())
+            sheet.writeRow(instance.getNameId(), instance.getVersion(), instance.getInstanceId(),
+                answer.getQuestionId(), answer.getQuestion(), answer.getAnswer(), answer.getCount());
+      }
+
+      try (final SheetWriter sheet = writer.createSheet("ranges", HEADER_RANGES)) {
+        for (final InstanceReportDto instance : report.getInstances())
+          for (final RangeStatisticsDto range : instance.getRangeStatistics())
+            sheet.writeRow(instance.getNameId(), instance.getVersion(), instance.getInstanceId(),
+                range.getQuestionId(), range.getQuestion(), range.getCount(), range.getMean(), range.getMin(),
+                range.getMax());
+      }
+
+      writer.finish();
+    }
+  }
+}
@@ -0,0 +1,159 @@
+/**
+ *
+ */
+package one.tracking.framework.component;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import one.tracking.framework.config.ThreadingProperties;
+
+/**
+ * Provides the virtual thread executor, if enabled by <code>app.threads.virtual</code>, and limits
+ * the concurrency of blocking database and HTTP calls. The limits apply in both modes, but they are
+ * essential when running on virtual threads, as the amount of virtual threads is not bounded.
+ *
+ * @author Marko Voß
+ *
+ */
+@Component
+public class ThreadingComponent {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ThreadingComponent.class);
+
+  @FunctionalInterface
+  public interface BlockingCall<V, E extends Exception> {
+
+    V call() throws E;
+  }
+
+  @Autowired
+  private ThreadingProperties threadingConfig;
+
+  private Semaphore dbPermits;
+
+  private Semaphore httpPermits;
+
+  private ExecutorService virtualExecutor;
+
+  @PostConstruct
+  public void init() {
+
+    this.dbPermits = new Semaphore(this.threadingConfig.getDbPermits(), true);
+    this.httpPermits = new Semaphore(this.threadingConfig.getHttpPermits(), true);
+
+    if (this.threadingConfig.getVirtual()) {
+
+      this.virtualExecutor = newVirtualThreadExecutor("Virtual-");
+
+      if (this.virtualExecutor == null)
+        LOG.warn("Virtual threads are not supported by this runtime ({}). Using platform threads.",
+            Runtime.version());
+      else
+        LOG.info("Using virtual threads for asynchronous tasks.");
+    }
+  }
+
+  @PreDestroy
+  public void destroy() {
+
+    if (this.virtualExecutor != null)
+      this.virtualExecutor.shutdown();
+  }
+
+  /**
+   * @return <code>true</code> if virtual threads are enabled and supported by the runtime
+   */
+  public boolean isVirtual() {
+    return this.virtualExecutor != null;
+  }
+
+  /**
+   * @param platformExecutor the executor to use if virtual threads are not enabled
+   * @return the virtual thread executor if enabled, otherwise the specified platform executor
+   */
+  public Executor getExecutor(final Executor platformExecutor) {
+    return this.virtualExecutor == null ? platformExecutor : this.virtualExecutor;
+  }
+
+  public <V, E extends Exception> V callWithDbPermit(final BlockingCall<V, E> call) throws E {
+    return callWithPermit(this.dbPermits, call);
+  }
+
+  public <V, E extends Exception> V callWithHttpPermit(final BlockingCall<V, E> call) throws E {
+    return callWithPermit(this.httpPermits, call);
+  }
+
+  private static <V, E extends Exception> V callWithPermit(final Semaphore permits, final BlockingCall<V, E> call)
+      throws E {
+
+    try {
+      permits.acquire();
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting for a permit.", e);
+    }
+
+    try {
+      return call.call();
+    } finally {
+      permits.release();
+    }
+  }
+
+  /**
+   * Creates an executor, which starts a new named virtual thread for each task. Uses reflection, as
+   * the application is compiled for Java 11.
+   *
+   * @param namePrefix
+   * @return the executor or <code>null</code> if virtual threads are not supported by the runtime
+   */
+  public static ExecutorService newVirtualThreadExecutor(final String namePrefix) {
+
+    final ThreadFactory threadFactory = newVirtualThreadFactory(namePrefix);
+
+    if (threadFactory == null)
+      return null;
+
+    try {
+      return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+          .invoke(null, threadFactory);
+
+    } catch (final ReflectiveOperationException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Creates a factory for named virtual threads. Uses reflection, as the application is compiled for
+   * Java 11.
+   *
+   * @param namePrefix
+   * @return the thread factory or <code>null</code> if virtual threads are not supported by the
+   *         runtime
+   */
+  public static ThreadFactory newVirtualThreadFactory(final String namePrefix) {
+
+    try {
+      final Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+      final Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+
+      final Method name = builderType.getMethod("name", String.class, long.class);
+      final Method factory = builderType.getMethod("factory");
+
+      return (ThreadFactory) factory.invoke(name.invoke(builder, namePrefix, 0L));
+
+    } catch (final ReflectiveOperationException e) {
+      return null;
+    }
+  }
+}
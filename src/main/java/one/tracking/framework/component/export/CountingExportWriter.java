@@ -0,0 +1,69 @@
+/**
+ *
+ */
+package one.tracking.framework.component.export;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Counts the data rows written by the delegate.
+ *
+ * @author Marko Voß
+ *
+ */
+public class CountingExportWriter implements ExportWriter {
+
+  private final ExportWriter delegate;
+
+  private final AtomicLong rowsWritten;
+
+  public CountingExportWriter(final ExportWriter delegate, final AtomicLong rowsWritten) {
+    this.delegate = delegate;
+    this.rowsWritten = rowsWritten;
+  }
+
+  @Override
+  public SheetWriter createSheet(final String name, final List<String> header) throws IOException {
+
+    return count(this.delegate.createSheet(name, header));
+  }
+
+  @Override
+  public List<SheetWriter> createSegmentedSheet(final String name, final List<String> header, final int segments)
+      throws IOException {
+
+    return this.delegate.createSegmentedSheet(name, header, segments).stream()
+        .map(this::count)
+        .collect(Collectors.toList());
+  }
+
+  private SheetWriter count(final SheetWriter sheet) {
+
+    return new SheetWriter() {
+
+      @Override
+      public void writeRow(final Object... values) throws IOException {
+        sheet.writeRow(values);
+        CountingExportWriter.this.rowsWritten.incrementAndGet();
+      }
+
+      @Override
+      public void close() throws IOException {
+        sheet.close();
+      }
+    };
+  }
+
+  @Override
+  public void finish() throws IOException {
+    this.delegate.finish();
+  }
+
+  @Override
+  public void close() throws IOException {
+    this.delegate.close();
+  }
+}
@@ -0,0 +1,297 @@
+/**
+ *
+ */
+package one.tracking.framework.component.export;
+
+import java.io.BufferedWriter;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Writes each dataset as a CSV file (RFC 4180) into a ZIP archive, which is streamed to the target
+ * stream while writing. Memory usage does not depend on the amount of rows. If compressed, each file
+ * is written as gzip file and the ZIP entries are stored without further compression.<br/>
+ * <br/>
+ * Sheets consist of one or more segments, which are assembled in order. The first segment of a sheet
+ * is written directly into the archive, if all preceding sheets are complete. All other segments are
+ * spooled into temporary files and appended to the archive as soon as all preceding segments are
+ * complete. A gzip file consisting of several segments is valid as well, as a gzip file may consist
+ * of several members.<br/>
+ * <br/>
+ * Closing the writer before all sheets are complete discards the incomplete sheets including their
+ * temporary files.
+ *
+ * @author Marko Voß
+ *
+ */
+public class CsvExportWriter implements ExportWriter {
+
+  private static final char SEPARATOR = ',';
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private final ZipOutputStream zipStream;
+
+  private final boolean gzip;
+
+  /**
+   * The sheets not yet appended completely in order of their creation.
+   */
+  private final List<Sheet> sheets = new ArrayList<>();
+
+  private SegmentWriter directSegment;
+
+  public CsvExportWriter(final OutputStream outStream, final boolean gzip) {
+
+    this.zipStream = new ZipOutputStream(outStream, StandardCharsets.UTF_8);
+    this.gzip = gzip;
+
+    if (gzip)
+      this.zipStream.setLevel(Deflater.NO_COMPRESSION);
+  }
+
+  @Override
+  public SheetWriter createSheet(final String name, final List<String> header) throws IOException {
+    return createSegmentedSheet(name, header, 1).get(0);
+  }
+
+  @Override
+  public synchronized List<SheetWriter> createSegmentedSheet(final String name, final List<String> header,
+      final int segments) throws IOException {
+
+    final boolean direct = this.sheets.isEmpty();
+
+    final Sheet sheet = new Sheet(name + (this.gzip ? ".csv.gz" : ".csv"));
+    this.sheets.add(sheet);
+
+    for (int i = 0; i < segments; i++) {
+
+      if (i == 0 && direct) {
+        this.zipStream.putNextEntry(new ZipEntry(sheet.entryName));
+        sheet.entryOpen = true;
+
+        this.directSegment = new SegmentWriter(null, new FilterOutputStream(this.zipStream) {
+
+          @Override
+          public void write(final byte[] b, final int off, final int len) throws IOException {
+            this.out.write(b, off, len);
+          }
+
+          // Closing the segment must not close the archive
+          @Override
+          public void close() throws IOException {
+            flush();
+          }
+        });
+        sheet.segments.add(this.directSegment);
+
+      } else {
+        final Path file = Files.createTempFile("export", ".csv");
+
+        try {
+          sheet.segments.add(new SegmentWriter(file, Files.newOutputStream(file)));
+        } catch (final IOException e) {
+          Files.deleteIfExists(file);
+          throw e;
+        }
+      }
+    }
+
+    final List<SheetWriter> result = new ArrayList<>(sheet.segments);
+    result.get(0).writeRow(header.toArray());
+    return result;
+  }
+
+  private synchronized void closeSegment(final SegmentWriter segment) throws IOException {
+
+    segment.closed = true;
+
+    if (segment == this.directSegment)
+      this.directSegment = null;
+
+    appendSegments();
+  }
+
+  /*
+   * Appends the closed segments in order of their sheets and segments until reaching a segment, which
+   * is still being written
+   */
+  private void appendSegments() throws IOException {
+
+    while (this.directSegment == null && !this.sheets.isEmpty()) {
+
+      final Sheet sheet = this.sheets.get(0);
+
+      if (!sheet.entryOpen) {
+        this.zipStream.putNextEntry(new ZipEntry(sheet.entryName));
+        sheet.entryOpen = true;
+      }
+
+      while (sheet.appended < sheet.segments.size()) {
+
+        final SegmentWriter segment = sheet.segments.get(sheet.appended);
+
+        if (!segment.closed)
+          return;
+
+        if (segment.file != null) {
+          Files.copy(segment.file, this.zipStream);
+          Files.deleteIfExists(segment.file);
+        }
+
+        sheet.appended++;
+      }
+
+      this.zipStream.closeEntry();
+      this.sheets.remove(0);
+    }
+  }
+
+  @Override
+  public synchronized void finish() throws IOException {
+
+    if (!this.sheets.isEmpty())
+      throw new IllegalStateException("All sheets must be closed before finishing the export.");
+
+    this.zipStream.finish();
+    this.zipStream.flush();
+  }
+
+  /*
+   * The target stream is owned by the caller, only discard the incomplete sheets
+   */
+  @Override
+  public synchronized void close() throws IOException {
+
+    IOException failure = null;
+
+    for (final Sheet sheet : this.sheets)
+      for (final SegmentWriter segment : sheet.segments.subList(sheet.appended, sheet.segments.size())) {
+        try {
+          segment.discard();
+        } catch (final IOException e) {
+          if (failure == null)
+            failure = e;
+        }
+      }
+
+    this.sheets.clear();
+    this.directSegment = null;
+
+    if (failure != null)
+      throw failure;
+  }
+
+  private static final class Sheet {
+
+    private final String entryName;
+
+    private final List<SegmentWriter> segments = new ArrayList<>();
+
+    private boolean entryOpen;
+
+    private int appended;
+
+    private Sheet(final String entryName) {
+      this.entryName = entryName;
+    }
+  }
+
+  private final class SegmentWriter implements SheetWriter {
+
+    /**
+     * The temporary file or <code>null</code> if written directly into the archive.
+     */
+    private final Path file;
+
+    private final Writer writer;
+
+    private boolean closed;
+
+    private SegmentWriter(final Path file, final OutputStream outStream) throws IOException {
+
+      this.file = file;
+      this.writer = new BufferedWriter(new OutputStreamWriter(
+          CsvExportWriter.this.gzip ? new GZIPOutputStream(outStream, BUFFER_SIZE) : outStream,
+          StandardCharsets.UTF_8), BUFFER_SIZE);
+    }
+    @Override
+    public void writeRow(final Object... values) throws IOException {
+
+      for (int i = 0; i < values.length; i++) {
+
+        if (i > 0)
+          this.writer.write(SEPARATOR);
+
+        writeValue(values[i]);
+      }
+
+      this.writer.write("\r\n");
+    }
+
+    private void writeValue(final Object value) throws IOException {
+
+      if (value == null)
+        return;
+
+      if (value instanceof Instant) {
+        this.writer.write(DateTimeFormatter.ISO_INSTANT.format((Instant) value));
+        return;
+      }
+
+      final String text = value.toString();
+
+      if (text.indexOf(SEPARATOR) < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0
+          && text.indexOf('\r') < 0) {
+        this.writer.write(text);
+        return;
+      }
+
+      this.writer.write('"');
+      this.writer.write(text.replace("\"", "\"\""));
+      this.writer.write('"');
+    }
+
+    @Override
+    public void close() throws IOException {
+
+      if (this.closed)
+        return;
+
+      // Finishes the gzip stream, if any
+      this.writer.close();
+
+      closeSegment(this);
+    }
+
+    /*
+     * Releases the stream of an incomplete segment without appending it
+     */
+    private void discard() throws IOException {
+
+      try {
+        if (!this.closed) {
+          this.closed = true;
+          this.writer.close();
+        }
+      } finally {
+        if (this.file != null)
+          Files.deleteIfExists(this.file);
+      }
+    }
+  }
+}
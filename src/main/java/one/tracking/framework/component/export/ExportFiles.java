@@ -0,0 +1,44 @@
+/**
+ *
+ */
+package one.tracking.framework.component.export;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Set;
+
+/**
+ * Helpers for the directories exports are written to.
+ *
+ * @author Marko Voß
+ *
+ */
+public final class ExportFiles {
+
+  private static final Set<PosixFilePermission> OWNER_ONLY = PosixFilePermissions.fromString("rwx------");
+
+  private ExportFiles() {}
+
+  /**
+   * Creates the specified directory including its missing parents. Exports contain personal data, so
+   * the directory is restricted to its owner on file systems supporting POSIX permissions, even if it
+   * existed already.
+   *
+   * @param directory
+   * @return the directory
+   * @throws IOException if the directory cannot be created or its permissions cannot be set
+   */
+  public static Path createPrivateDirectory(final Path directory) throws IOException {
+
+    Files.createDirectories(directory);
+
+    if (Files.getFileStore(directory).supportsFileAttributeView(PosixFileAttributeView.class))
+      Files.setPosixFilePermissions(directory, OWNER_ONLY);
+
+    return directory;
+  }
+}
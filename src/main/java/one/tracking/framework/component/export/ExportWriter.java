@@ -0,0 +1,65 @@
+/**
+ *
+ */
+package one.tracking.framework.component.export;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Writes the datasets of an export as sheets of a specific file format. Supported cell values are
+ * {@link String}, {@link Boolean}, {@link Number}, {@link java.time.Instant} and <code>null</code>.
+ * <br/>
+ * <br/>
+ * Different sheets may be written concurrently by different threads. The sheets are assembled in
+ * order of their creation.
+ *
+ * @author Marko Voß
+ *
+ */
+public interface ExportWriter extends Closeable {
+
+  /**
+   * Creates the next sheet. The sheet is complete once it got closed.
+   *
+   * @param name
+   * @param header
+   * @return
+   * @throws IOException
+   */
+  SheetWriter createSheet(String name, List<String> header) throws IOException;
+
+  /**
+   * Creates the next sheet, whose rows are written by the specified amount of segments. Segments may
+   * be written concurrently and are assembled in order. The header is written by the first segment.
+   * The sheet is complete once all segments got closed.
+   *
+   * @param name
+   * @param header
+   * @param segments
+   * @return
+   * @throws IOException
+   * @throws IllegalArgumentException if the format does not support segmented sheets
+   */
+  default List<SheetWriter> createSegmentedSheet(final String name, final List<String> header, final int segments)
+      throws IOException {
+    throw new IllegalArgumentException("Segmented sheets are not supported by " + getClass().getSimpleName());
+  }
+
+  /**
+   * Writes all remaining data to the target stream after all sheets have been closed. The target
+   * stream will not be closed.
+   *
+   * @throws IOException
+   */
+  void finish() throws IOException;
+
+  /**
+   * Writes the rows of a single sheet. Must be used by one thread at a time.
+   */
+  interface SheetWriter extends Closeable {
+
+    void writeRow(Object... values) throws IOException;
+  }
+}
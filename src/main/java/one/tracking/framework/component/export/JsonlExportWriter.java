@@ -0,0 +1,199 @@
+/**
+ *
+ */
+package one.tracking.framework.component.export;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * Writes all datasets as JSON Lines into a single stream, optionally gzip compressed. Each row is
+ * written as one JSON object, whose field <code>dataset</code> contains the name of its sheet. The
+ * other field names are derived from the header, e.g. <code>UserId</code> becomes
+ * <code>userId</code>. Duplicate field names, e.g. of questions with the same text in the wide layout,
+ * get a counter suffix like <code>_2</code>. Values keep their types and <code>null</code> values are
+ * omitted.<br/>
+ * <br/>
+ * Rows are written directly to the target stream using a streaming {@link JsonGenerator}, so memory
+ * usage does not depend on the amount of rows. Sheets and segments written concurrently are
+ * interleaved row by row, which needs no spooling as every line is self-contained.
+ *
+ * @author Marko Voß
+ *
+ */
+public class JsonlExportWriter implements ExportWriter {
+
+  private static final String FIELD_DATASET = "dataset";
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private static final JsonFactory JSON_FACTORY = new JsonFactory()
+      // The target stream is owned by the caller
+      .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+      // Lines are terminated explicitly instead
+      .setRootValueSeparator(null);
+
+  private final OutputStream outStream;
+
+  private final GzipStream gzipStream;
+
+  private final JsonGenerator generator;
+
+  public JsonlExportWriter(final OutputStream outStream, final boolean gzip) throws IOException {
+
+    this.outStream = outStream;
+    this.gzipStream = gzip ? new GzipStream(outStream) : null;
+    this.generator = JSON_FACTORY.createGenerator(gzip ? this.gzipStream : outStream, JsonEncoding.UTF8);
+  }
+
+  @Override
+  public SheetWriter createSheet(final String name, final List<String> header) {
+    return new LineWriter(name, getFieldNames(header));
+  }
+
+  @Override
+  public List<SheetWriter> createSegmentedSheet(final String name, final List<String> header,
+      final int segments) {
+
+    final String[] fieldNames = getFieldNames(header);
+    final List<SheetWriter> result = new ArrayList<>(segments);
+
+    for (int i = 0; i < segments; i++)
+      result.add(new LineWriter(name, fieldNames));
+
+    return result;
+  }
+
+  private static String[] getFieldNames(final List<String> header) {
+
+    final String[] result = new String[header.size()];
+    final Set<String> usedNames = new HashSet<>(Collections.singleton(FIELD_DATASET));
+
+    for (int i = 0; i < result.length; i++) {
+
+      final String name = header.get(i);
+      final String fieldName = name.isEmpty() ? name : Character.toLowerCase(name.charAt(0)) + name.substring(1);
+
+      String uniqueName = fieldName;
+      for (int j = 2; !usedNames.add(uniqueName); j++)
+        uniqueName = fieldName + "_" + j;
+
+      result[i] = uniqueName;
+    }
+
+    return result;
+  }
+
+  private synchronized void writeLine(final String dataset, final String[] fieldNames, final Object[] values)
+      throws IOException {
+
+    this.generator.writeStartObject();
+    this.generator.writeStringField(FIELD_DATASET, dataset);
+
+    for (int i = 0; i < values.length; i++) {
+
+      if (values[i] == null)
+        continue;
+
+      this.generator.writeFieldName(fieldNames[i]);
+      writeValue(values[i]);
+    }
+
+    this.generator.writeEndObject();
+    this.generator.writeRaw('\n');
+  }
+
+  private void writeValue(final Object value) throws IOException {
+
+    if (value instanceof Instant)
+      this.generator.writeString(DateTimeFormatter.ISO_INSTANT.format((Instant) value));
+
+    else if (value instanceof Boolean)
+      this.generator.writeBoolean((Boolean) value);
+
+    else if (value instanceof Integer)
+      this.generator.writeNumber((Integer) value);
+
+    else if (value instanceof Long)
+      this.generator.writeNumber((Long) value);
+
+    else if (value instanceof Number)
+      this.generator.writeNumber(((Number) value).doubleValue());
+
+    else
+      this.generator.writeString(value.toString());
+  }
+
+  @Override
+  public synchronized void finish() throws IOException {
+
+    this.generator.flush();
+
+    if (this.gzipStream != null)
+      this.gzipStream.finish();
+
+    this.outStream.flush();
+  }
+
+  /**
+   * Releases the deflater of the gzip stream, even if the export failed before it has been finished.
+   * The target stream stays open.
+   */
+  @Override
+  public synchronized void close() throws IOException {
+
+    try {
+      this.generator.close();
+    } finally {
+      if (this.gzipStream != null)
+        this.gzipStream.end();
+    }
+  }
+
+  /*
+   * Closing a GZIPOutputStream would close the target stream as well, which is owned by the caller
+   */
+  private static final class GzipStream extends GZIPOutputStream {
+
+    private GzipStream(final OutputStream outStream) throws IOException {
+      super(outStream, BUFFER_SIZE);
+    }
+
+    private void end() {
+      this.def.end();
+    }
+  }
+
+  private final class LineWriter implements SheetWriter {
+
+    private final String dataset;
+
+    private final String[] fieldNames;
+
+    private LineWriter(final String dataset, final String[] fieldNames) {
+      this.dataset = dataset;
+      this.fieldNames = fieldNames;
+    }
+
+    @Override
+    public void writeRow(final Object... values) throws IOException {
+      writeLine(this.dataset, this.fieldNames, values);
+    }
+
+    @Override
+    public void close() {
+      // Rows are written directly, nothing to complete
+    }
+  }
+}
@@ -0,0 +1,76 @@
+/**
+ *
+ */
+package one.tracking.framework.component.export;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes to a primary and a secondary stream at the same time. Failures of the secondary stream do not
+ * affect the primary stream: The secondary stream is not written to anymore and
+ * {@link #isSecondaryFailed()} returns <code>true</code>. Neither stream gets closed.
+ *
+ * @author Marko Voß
+ *
+ */
+public class TeeOutputStream extends FilterOutputStream {
+
+  private final OutputStream secondary;
+
+  private boolean secondaryFailed;
+
+  public TeeOutputStream(final OutputStream primary, final OutputStream secondary) {
+    super(primary);
+    this.secondary = secondary;
+  }
+
+  public boolean isSecondaryFailed() {
+    return this.secondaryFailed;
+  }
+
+  @Override
+  public void write(final int b) throws IOException {
+    this.out.write(b);
+
+    if (!this.secondaryFailed)
+      try {
+        this.secondary.write(b);
+      } catch (final IOException e) {
+        this.secondaryFailed = true;
+      }
+  }
+
+  @Override
+  public void write(final byte[] b, final int off, final int len) throws IOException {
+    this.out.write(b, off, len);
+
+    if (!this.secondaryFailed)
+      try {
+        this.secondary.write(b, off, len);
+      } catch (final IOException e) {
+        this.secondaryFailed = true;
+      }
+  }
+
+  @Override
+  public void flush() throws IOException {
+    this.out.flush();
+
+    if (!this.secondaryFailed)
+      try {
+        this.secondary.flush();
+      } catch (final IOException e) {
+        this.secondaryFailed = true;
+      }
+  }
+
+  /**
+   * Flushes both streams without closing them.
+   */
+  @Override
+  public void close() throws IOException {
+    flush();
+  }
+}
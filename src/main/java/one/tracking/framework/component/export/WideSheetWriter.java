@@ -0,0 +1,117 @@
+/**
+ *
+ */
+package one.tracking.framework.component.export;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import one.tracking.framework.component.export.ExportWriter.SheetWriter;
+import one.tracking.framework.domain.SurveyResponseRow;
+
+/**
+ * Pivots survey responses into one row per user, survey instance and answer version with one column
+ * per question. Responses of the same user, survey instance and answer version must be passed
+ * consecutively, e.g. ordered by survey instance, user and answer version, so that only the current
+ * row is kept in memory.
+ *
+ * @author Marko Voß
+ *
+ */
+public class WideSheetWriter implements Closeable {
+
+  private static final List<String> HEADER_PREFIX = Arrays.asList(
+      "UserId", "StartTime", "EndTime", "AnswerVersion", "AnswerTimestamp");
+
+  private final SheetWriter sheet;
+
+  private final Map<Long, Integer> columns = new HashMap<>();
+
+  private final Object[] values;
+
+  private SurveyResponseRow current;
+
+  /**
+   * @param sheet the sheet to write the pivoted rows into
+   * @param questionIds the ids of the questions and checklist entries in column order
+   */
+  public WideSheetWriter(final SheetWriter sheet, final List<Long> questionIds) {
+
+    this.sheet = sheet;
+    this.values = new Object[HEADER_PREFIX.size() + questionIds.size()];
+
+    for (int i = 0; i < questionIds.size(); i++)
+      this.columns.put(questionIds.get(i), HEADER_PREFIX.size() + i);
+  }
+
+  /**
+   * @param questionHeaders the headers of the question columns
+   * @return the header of a wide sheet
+   */
+  public static List<String> getHeader(final List<String> questionHeaders) {
+
+    final List<String> header = new ArrayList<>(HEADER_PREFIX.size() + questionHeaders.size());
+    header.addAll(HEADER_PREFIX);
+    header.addAll(questionHeaders);
+    return header;
+  }
+
+  public void write(final SurveyResponseRow response) throws IOException {
+
+    if (this.current != null && !isSameRow(this.current, response))
+      flush();
+
+    if (this.current == null) {
+      this.current = response;
+      this.values[0] = response.getUserId();
+      this.values[1] = response.getStartTime();
+      this.values[2] = response.getEndTime();
+      this.values[3] = response.getVersion();
+    }
+
+    this.values[4] = max((Instant) this.values[4], response.getCreatedAt());
+
+    final Integer column = this.columns.get(response.getQuestionId());
+
+    // Questions, which are not part of the survey version anymore, are omitted
+    if (column != null)
+      this.values[column] = response.getAnswer();
+  }
+
+  private static boolean isSameRow(final SurveyResponseRow a, final SurveyResponseRow b) {
+
+    return Objects.equals(a.getUserId(), b.getUserId())
+        && Objects.equals(a.getInstanceId(), b.getInstanceId())
+        && Objects.equals(a.getVersion(), b.getVersion());
+  }
+
+  private static Instant max(final Instant a, final Instant b) {
+    return a == null || b != null && b.isAfter(a) ? b : a;
+  }
+
+  private void flush() throws IOException {
+
+    this.sheet.writeRow(this.values);
+
+    Arrays.fill(this.values, null);
+    this.current = null;
+  }
+
+  /**
+   * Writes the last row and closes the sheet.
+   */
+  @Override
+  public void close() throws IOException {
+
+    if (this.current != null)
+      flush();
+
+    this.sheet.close();
+  }
+}
@@ -0,0 +1,105 @@
+/**
+ *
+ */
+package one.tracking.framework.component.export;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.CreationHelper;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+/**
+ * Writes each dataset as a sheet of a streamed workbook. Rows are flushed to temporary files, so the
+ * workbook can only be written once all sheets are complete.<br/>
+ * <br/>
+ * Each sheet of a streamed workbook buffers its rows in its own temporary file and strings are
+ * written inline, so different sheets can be filled concurrently. Sheets are created sequentially
+ * though, as this modifies the workbook.
+ *
+ * @author Marko Voß
+ *
+ */
+public class XlsxExportWriter implements ExportWriter {
+
+  private final OutputStream outStream;
+
+  private final SXSSFWorkbook workbook;
+
+  private final CellStyle cellStyleDateTime;
+
+  public XlsxExportWriter(final OutputStream outStream) {
+
+    this.outStream = outStream;
+    this.workbook = new SXSSFWorkbook(1000);
+
+    this.cellStyleDateTime = this.workbook.createCellStyle();
+    final CreationHelper createHelper = this.workbook.getCreationHelper();
+    this.cellStyleDateTime.setDataFormat(createHelper.createDataFormat().getFormat("m/d/yy h:mm"));
+  }
+
+  @Override
+  public synchronized SheetWriter createSheet(final String name, final List<String> header) {
+
+    final Sheet sheet = this.workbook.createSheet(name);
+
+    final Row headerRow = sheet.createRow(0);
+    for (int i = 0; i < header.size(); i++)
+      headerRow.createCell(i).setCellValue(header.get(i));
+
+    return new SheetWriter() {
+
+      private int rowIndex = 1;
+
+      @Override
+      public void writeRow(final Object... values) {
+        XlsxExportWriter.this.writeRow(sheet.createRow(this.rowIndex++), values);
+      }
+
+      @Override
+      public void close() {
+        // Rows are kept by the workbook until it gets written
+      }
+    };
+  }
+
+  private void writeRow(final Row row, final Object... values) {
+
+    for (int i = 0; i < values.length; i++) {
+
+      final Object value = values[i];
+      final Cell cell = row.createCell(i);
+
+      if (value == null)
+        continue;
+
+      if (value instanceof Instant) {
+        cell.setCellValue(LocalDateTime.ofInstant((Instant) value, ZoneOffset.UTC));
+        cell.setCellStyle(this.cellStyleDateTime);
+      } else if (value instanceof Boolean)
+        cell.setCellValue((Boolean) value);
+      else if (value instanceof Number)
+        cell.setCellValue(((Number) value).doubleValue());
+      else
+        cell.setCellValue(value.toString());
+    }
+  }
+
+  @Override
+  public void finish() throws IOException {
+    this.workbook.write(this.outStream);
+  }
+
+  @Override
+  public void close() throws IOException {
+    this.workbook.dispose();
+    this.workbook.close();
+  }
+}
@@ -0,0 +1,279 @@
+/**
+ *
+ */
+package one.tracking.framework.component.push;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import javax.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutureCallback;
+import com.google.api.core.ApiFutures;
+import com.google.auth.oauth2.GoogleCredentials;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.firebase.FirebaseApp;
+import com.google.firebase.FirebaseOptions;
+import com.google.firebase.ThreadManager;
+import com.google.firebase.messaging.AndroidConfig;
+import com.google.firebase.messaging.AndroidNotification;
+import com.google.firebase.messaging.ApnsConfig;
+import com.google.firebase.messaging.Aps;
+import com.google.firebase.messaging.BatchResponse;
+import com.google.firebase.messaging.FirebaseMessaging;
+import com.google.firebase.messaging.Message;
+import com.google.firebase.messaging.MulticastMessage;
+import com.google.firebase.messaging.Notification;
+import com.google.firebase.messaging.SendResponse;
+import one.tracking.framework.config.FirebaseProperties;
+import one.tracking.framework.config.PushProperties;
+import one.tracking.framework.domain.NotificationParameter;
+import one.tracking.framework.domain.PushBatchResponse;
+import one.tracking.framework.domain.PushNotificationRequest;
+import one.tracking.framework.domain.PushSendResponse;
+
+/**
+ * {@link PushTransport} sending messages via Firebase Cloud Messaging using multicast messages.
+ *
+ * @author Marko Voß
+ *
+ */
+@Component
+@ConditionalOnProperty(name = "app.push.transport", havingValue = "fcm", matchIfMissing = true)
+public class FcmPushTransport implements PushTransport {
+
+  private static final Logger LOG = LoggerFactory.getLogger(FcmPushTransport.class);
+
+  private static final String APP_NAME = "survey-mgmt-push";
+
+  @Autowired
+  private ResourceLoader resourceLoader;
+
+  @Autowired
+  private FirebaseProperties config;
+
+  @Autowired
+  private PushProperties pushProperties;
+
+  private FirebaseMessaging messaging;
+
+  private Semaphore connections;
+
+  @PostConstruct
+  public void initialize() {
+
+    this.connections = new Semaphore(this.pushProperties.getFcm().getMaxConnections());
+
+    if (this.config.getConfigFile() == null && this.config.getConfigJson() == null) {
+      LOG.warn("Firebase config file or json not set. Skipping FCM setup.");
+      return;
+    }
+
+    InputStream stream = null;
+
+    if (this.config.getConfigFile() != null) {
+      try {
+        stream = this.resourceLoader.getResource(this.config.getConfigFile()).getInputStream();
+      } catch (final IOException e) {
+        LOG.error(e.getMessage(), e);
+        return;
+      }
+    } else if (this.config.getConfigJson() != null) {
+      stream = new ByteArrayInputStream(this.config.getConfigJson().getBytes());
+    }
+
+    try {
+
+      final PushProperties.Fcm fcm = this.pushProperties.getFcm();
+
+      final FirebaseOptions options = new FirebaseOptions.Builder()
+          .setCredentials(GoogleCredentials.fromStream(stream))
+          .setThreadManager(new PooledThreadManager(fcm.getThreads()))
+          .setConnectTimeout(toMillis(fcm.getConnectTimeout()))
+          .setReadTimeout(toMillis(fcm.getReadTimeout()))
+          .build();
+
+      this.messaging = FirebaseMessaging.getInstance(getOrInitializeApp(options));
+
+      LOG.info("Firebase application has been initialized: {} [batch size: {}, threads: {}, connections: {}]",
+          APP_NAME, this.config.getBatchSize(), fcm.getThreads(), fcm.getMaxConnections());
+
+    } catch (final Exception e) {
+      LOG.error(e.getMessage(), e);
+    }
+  }
+
+  private static FirebaseApp getOrInitializeApp(final FirebaseOptions options) {
+
+    return FirebaseApp.getApps().stream()
+        .filter(app -> APP_NAME.equals(app.getName()))
+        .findFirst()
+        .orElseGet(() -> FirebaseApp.initializeApp(options, APP_NAME));
+  }
+
+  private static int toMillis(final Duration duration) {
+    return (int) Math.min(Integer.MAX_VALUE, duration.toMillis());
+  }
+
+  @Override
+  public boolean isAvailable() {
+    return this.messaging != null;
+  }
+
+  @Override
+  public ApiFuture<PushBatchResponse> sendMulticastAsync(final PushNotificationRequest request,
+      final List<String> tokens) {
+
+    final MulticastMessage message = MulticastMessage.builder()
+        .setAndroidConfig(getAndroidConfig(request.getGroup()))
+        .setApnsConfig(getApnsConfig(request.getGroup()))
+        .setNotification(Notification.builder()
+            .setTitle(request.getTitle())
+            .setBody(request.getMessage())
+            .build())
+        .putAllData(request.getData())
+        .addAllTokens(tokens)
+        .build();
+
+    return ApiFutures.transform(
+        send(() -> this.messaging.sendMulticastAsync(message)),
+        FcmPushTransport::toPushBatchResponse,
+        MoreExecutors.directExecutor());
+  }
+
+  @Override
+  public ApiFuture<String> sendAsync(final PushNotificationRequest request, final String token) {
+
+    final Message message = Message.builder()
+        .setApnsConfig(getApnsConfig(request.getGroup()))
+        .setAndroidConfig(getAndroidConfig(request.getGroup()))
+        .setNotification(Notification.builder()
+            .setTitle(request.getTitle())
+            .setBody(request.getMessage())
+            .build())
+        .setToken(token)
+        .putAllData(request.getData())
+        .build();
+
+    return send(() -> this.messaging.sendAsync(message));
+  }
+
+  /*
+   * The connection permit gets released once the request completes or fails synchronously
+   */
+  private <V> ApiFuture<V> send(final Supplier<ApiFuture<V>> request) {
+
+    this.connections.acquireUninterruptibly();
+
+    final ApiFuture<V> future;
+    try {
+      future = request.get();
+    } catch (final RuntimeException e) {
+      this.connections.release();
+      throw e;
+    }
+
+    ApiFutures.addCallback(future, new ApiFutureCallback<V>() {
+
+      @Override
+      public void onFailure(final Throwable t) {
+        FcmPushTransport.this.connections.release();
+      }
+
+      @Override
+      public void onSuccess(final V result) {
+        FcmPushTransport.this.connections.release();
+      }
+    }, MoreExecutors.directExecutor());
+
+    return future;
+  }
+
+  private static PushBatchResponse toPushBatchResponse(final BatchResponse response) {
+
+    return PushBatchResponse.builder()
+        .responses(response.getResponses().stream()
+            .map(FcmPushTransport::toPushSendResponse)
+            .collect(Collectors.toList()))
+        .build();
+  }
+
+  private static PushSendResponse toPushSendResponse(final SendResponse response) {
+
+    return PushSendResponse.builder()
+        .successful(response.isSuccessful())
+        .messageId(response.getMessageId())
+        .errorCode(response.getException() == null ? null : response.getException().getErrorCode())
+        .build();
+  }
+
+  private AndroidConfig getAndroidConfig(final String topic) {
+
+    return AndroidConfig.builder()
+        .setTtl(Duration.ofMinutes(2).toMillis())
+        .setCollapseKey(topic)
+        .setPriority(AndroidConfig.Priority.HIGH)
+        .setNotification(AndroidNotification.builder()
+            .setSound(NotificationParameter.SOUND.getValue())
+            .setColor(NotificationParameter.COLOR.getValue())
+            .setTag(topic)
+            .build())
+        .build();
+  }
+
+  private ApnsConfig getApnsConfig(final String topic) {
+
+    return ApnsConfig.builder()
+        .setAps(Aps.builder()
+            .setCategory(topic)
+            .setThreadId(topic)
+            .build())
+        .build();
+  }
+
+  /**
+   * {@link ThreadManager} providing a fixed size thread pool instead of the unbounded default pool
+   * of the Firebase SDK.
+   */
+  private static class PooledThreadManager extends ThreadManager {
+
+    private final int threads;
+
+    private final CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("FcmPushTransport-");
+
+    PooledThreadManager(final int threads) {
+      this.threads = threads;
+      this.threadFactory.setDaemon(true);
+    }
+
+    @Override
+    protected ExecutorService getExecutor(final FirebaseApp app) {
+      return Executors.newFixedThreadPool(this.threads, this.threadFactory);
+    }
+
+    @Override
+    protected void releaseExecutor(final FirebaseApp app, final ExecutorService executor) {
+      executor.shutdownNow();
+    }
+
+    @Override
+    protected ThreadFactory getThreadFactory() {
+      return this.threadFactory;
+    }
+  }
+}
@@ -0,0 +1,194 @@
+/**
+ *
+ */
+package one.tracking.framework.component.push;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Collectors;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.api.core.ApiFuture;
+import com.google.api.core.SettableApiFuture;
+import one.tracking.framework.config.PushProperties;
+import one.tracking.framework.domain.PushBatchResponse;
+import one.tracking.framework.domain.PushNotificationRequest;
+import one.tracking.framework.domain.PushSendResponse;
+
+/**
+ * {@link PushTransport} posting messages as JSON to a local HTTP stand-in of FCM. The endpoint
+ * receives the tokens, title, message, group and data of each request and may answer with a
+ * {@link PushBatchResponse} document. Responses without body are considered as successful for all
+ * tokens.
+ *
+ * @author Marko Voß
+ *
+ */
+@Component
+@ConditionalOnProperty(name = "app.push.transport", havingValue = "http")
+public class HttpPushTransport implements PushTransport {
+
+  private static final Logger LOG = LoggerFactory.getLogger(HttpPushTransport.class);
+
+  @Autowired
+  private PushProperties pushProperties;
+
+  @Autowired
+  private ObjectMapper objectMapper;
+
+  private ExecutorService executor;
+
+  private HttpClient client;
+
+  private Semaphore connections;
+
+  private URI uri;
+
+  @PostConstruct
+  public void initialize() {
+
+    final PushProperties.Http http = this.pushProperties.getHttp();
+
+    if (http.getUrl() == null) {
+      LOG.warn("HTTP push transport url not set. Skipping HTTP push transport setup.");
+      return;
+    }
+
+    this.uri = URI.create(http.getUrl());
+    this.connections = new Semaphore(http.getMaxConnections());
+    this.executor = Executors.newFixedThreadPool(http.getThreads(), new CustomizableThreadFactory("HttpPushTransport-"));
+    this.client = HttpClient.newBuilder()
+        .version(HttpClient.Version.HTTP_1_1)
+        .connectTimeout(http.getConnectTimeout())
+        .executor(this.executor)
+        .build();
+
+    LOG.info("HTTP push transport has been initialized: {} [threads: {}, connections: {}]",
+        this.uri, http.getThreads(), http.getMaxConnections());
+  }
+
+  @PreDestroy
+  public void destroy() {
+
+    if (this.executor != null)
+      this.executor.shutdownNow();
+  }
+
+  @Override
+  public boolean isAvailable() {
+    return this.client != null;
+  }
+
+  @Override
+  public ApiFuture<PushBatchResponse> sendMulticastAsync(final PushNotificationRequest request,
+      final List<String> tokens) {
+
+    return send(request, tokens);
+  }
+
+  @Override
+  public ApiFuture<String> sendAsync(final PushNotificationRequest request, final String token) {
+
+    final SettableApiFuture<String> result = SettableApiFuture.create();
+    final ApiFuture<PushBatchResponse> future = send(request, Collections.singletonList(token));
+
+    future.addListener(() -> {
+      try {
+        result.set(future.get().getResponses().get(0).getMessageId());
+      } catch (final Exception e) {
+        result.setException(e.getCause() == null ? e : e.getCause());
+      }
+    }, Runnable::run);
+
+    return result;
+  }
+
+  private ApiFuture<PushBatchResponse> send(final PushNotificationRequest request, final List<String> tokens) {
+
+    final SettableApiFuture<PushBatchResponse> result = SettableApiFuture.create();
+
+    final Map<String, Object> body = new LinkedHashMap<>();
+    body.put("tokens", tokens);
+    body.put("title", request.getTitle());
+    body.put("message", request.getMessage());
+    body.put("group", request.getGroup());
+    body.put("data", request.getData());
+
+    final HttpRequest httpRequest;
+    try {
+      httpRequest = HttpRequest.newBuilder(this.uri)
+          .timeout(this.pushProperties.getHttp().getRequestTimeout())
+          .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+          .POST(HttpRequest.BodyPublishers.ofByteArray(this.objectMapper.writeValueAsBytes(body)))
+          .build();
+    } catch (final IOException e) {
+      result.setException(e);
+      return result;
+    }
+
+    this.connections.acquireUninterruptibly();
+
+    final CompletableFuture<HttpResponse<byte[]>> future;
+    try {
+      future = this.client.sendAsync(httpRequest, HttpResponse.BodyHandlers.ofByteArray());
+    } catch (final RuntimeException e) {
+      this.connections.release();
+      result.setException(e);
+      return result;
+    }
+
+    future.whenComplete((response, e) -> {
+
+      this.connections.release();
+
+      if (e != null) {
+        result.setException(e);
+        return;
+      }
+
+      try {
+        result.set(toPushBatchResponse(response, tokens));
+      } catch (final IOException ex) {
+        result.setException(ex);
+      }
+    });
+
+    return result;
+  }
+
+  private PushBatchResponse toPushBatchResponse(final HttpResponse<byte[]> response, final List<String> tokens)
+      throws IOException {
+
+    if (response.statusCode() < 200 || response.statusCode() >= 300)
+      throw new IOException("HTTP push transport responded with status code: " + response.statusCode());
+
+    if (response.body() != null && response.body().length > 0)
+      return this.objectMapper.readValue(response.body(), PushBatchResponse.class);
+
+    return PushBatchResponse.builder()
+        .responses(tokens.stream()
+            .map(token -> PushSendResponse.builder().successful(true).messageId(token).build())
+            .collect(Collectors.toList()))
+        .build();
+  }
+}
@@ -0,0 +1,43 @@
+/**
+ *
+ */
+package one.tracking.framework.component.push;
+
+import java.util.List;
+import com.google.api.core.ApiFuture;
+import one.tracking.framework.domain.PushBatchResponse;
+import one.tracking.framework.domain.PushNotificationRequest;
+
+/**
+ * Transport used for sending push notifications to device tokens. Exactly one implementation will be
+ * active depending on the property <code>app.push.transport</code>.
+ *
+ * @author Marko Voß
+ *
+ */
+public interface PushTransport {
+
+  /**
+   * @return <code>true</code> if the transport is configured and able to send messages
+   */
+  boolean isAvailable();
+
+  /**
+   * Send the specified request to all of the specified tokens as one request. The caller is
+   * responsible to respect the maximum amount of tokens per request.
+   *
+   * @param request
+   * @param tokens
+   * @return
+   */
+  ApiFuture<PushBatchResponse> sendMulticastAsync(PushNotificationRequest request, List<String> tokens);
+
+  /**
+   * Send the specified request to a single token.
+   *
+   * @param request
+   * @param token
+   * @return the message id
+   */
+  ApiFuture<String> sendAsync(PushNotificationRequest request, String token);
+}
@@ -0,0 +1,155 @@
+/**
+ *
+ */
+package one.tracking.framework.component.push;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import com.google.api.core.ApiFuture;
+import com.google.api.core.SettableApiFuture;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import one.tracking.framework.config.PushProperties;
+import one.tracking.framework.domain.PushBatchResponse;
+import one.tracking.framework.domain.PushNotificationRequest;
+import one.tracking.framework.domain.PushSendResponse;
+
+/**
+ * {@link PushTransport} keeping all messages in memory instead of sending them. Each message is
+ * considered as successfully sent after the configured latency.
+ *
+ * @author Marko Voß
+ *
+ */
+@Component
+@ConditionalOnProperty(name = "app.push.transport", havingValue = "recording")
+public class RecordingPushTransport implements PushTransport {
+
+  private static final Logger LOG = LoggerFactory.getLogger(RecordingPushTransport.class);
+
+  @Data
+  @AllArgsConstructor
+  public static class RecordedMessage {
+
+    private PushNotificationRequest request;
+    private List<String> tokens;
+    private Instant timestamp;
+  }
+
+  @Autowired
+  private PushProperties pushProperties;
+
+  private final ConcurrentLinkedDeque<RecordedMessage> messages = new ConcurrentLinkedDeque<>();
+
+  private final AtomicInteger size = new AtomicInteger();
+
+  private final AtomicLong messageIds = new AtomicLong();
+
+  private ExecutorService executor;
+
+  @PostConstruct
+  public void initialize() {
+
+    final PushProperties.Recording recording = this.pushProperties.getRecording();
+
+    this.executor = Executors.newFixedThreadPool(recording.getThreads(),
+        new CustomizableThreadFactory("RecordingPushTransport-"));
+
+    LOG.info("Recording push transport has been initialized [threads: {}, capacity: {}, latency: {}]",
+        recording.getThreads(), recording.getCapacity(), recording.getLatency());
+  }
+
+  @PreDestroy
+  public void destroy() {
+    this.executor.shutdownNow();
+  }
+
+  @Override
+  public boolean isAvailable() {
+    return true;
+  }
+
+  @Override
+  public ApiFuture<PushBatchResponse> sendMulticastAsync(final PushNotificationRequest request,
+      final List<String> tokens) {
+
+    final SettableApiFuture<PushBatchResponse> result = SettableApiFuture.create();
+
+    this.executor.execute(() -> {
+      try {
+        result.set(PushBatchResponse.builder()
+            .responses(record(request, tokens).stream()
+                .map(messageId -> PushSendResponse.builder().successful(true).messageId(messageId).build())
+                .collect(Collectors.toList()))
+            .build());
+      } catch (final InterruptedException e) {
+        Thread.currentThread().interrupt();
+        result.setException(e);
+      }
+    });
+
+    return result;
+  }
+
+  @Override
+  public ApiFuture<String> sendAsync(final PushNotificationRequest request, final String token) {
+
+    final SettableApiFuture<String> result = SettableApiFuture.create();
+
+    this.executor.execute(() -> {
+      try {
+        result.set(record(request, Collections.singletonList(token)).get(0));
+      } catch (final InterruptedException e) {
+        Thread.currentThread().interrupt();
+        result.setException(e);
+      }
+    });
+
+    return result;
+  }
+
+  private List<String> record(final PushNotificationRequest request, final List<String> tokens)
+      throws InterruptedException {
+
+    final long latency = this.pushProperties.getRecording().getLatency().toMillis();
+    if (latency > 0)
+      Thread.sleep(latency);
+
+    this.messages.addLast(new RecordedMessage(request, new ArrayList<>(tokens), Instant.now()));
+
+    // Drop the oldest messages exceeding the capacity
+    if (this.size.incrementAndGet() > this.pushProperties.getRecording().getCapacity()
+        && this.messages.pollFirst() != null)
+      this.size.decrementAndGet();
+
+    return tokens.stream().map(token -> "recorded-" + this.messageIds.incrementAndGet()).collect(Collectors.toList());
+  }
+
+  /**
+   * @return a snapshot of the recorded messages, oldest first
+   */
+  public List<RecordedMessage> getMessages() {
+    return new ArrayList<>(this.messages);
+  }
+
+  public void clear() {
+    this.messages.clear();
+    this.size.set(0);
+  }
+}
@@ -0,0 +1,66 @@
+/**
+ *
+ */
+package one.tracking.framework.config;
+
+import javax.validation.Valid;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.ConstructorBinding;
+import org.springframework.validation.annotation.Validated;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Immutable configuration of the bounded thread pools used for participant imports and data
+ * exports and of the limit of emails sent concurrently.
+ *
+ * @author Marko Voß
+ *
+ */
+@Getter
+@AllArgsConstructor
+@ToString
+@EqualsAndHashCode
+@ConfigurationProperties(prefix = "app.executor")
+@ConstructorBinding
+@Validated
+public class ExecutorProperties {
+
+  @NotNull
+  @Valid
+  private final Pool participantImport;
+
+  @NotNull
+  @Valid
+  private final Pool export;
+
+  @NotNull
+  @Valid
+  private final Pool email;
+
+  @Getter
+  @AllArgsConstructor
+  @ToString
+  @EqualsAndHashCode
+  public static class Pool {
+
+    @NotNull
+    @Min(1)
+    private final Integer coreSize;
+
+    @NotNull
+    @Min(1)
+    private final Integer maxSize;
+
+    /**
+     * The amount of tasks waiting for a thread. Further tasks are rejected.
+     */
+    @NotNull
+    @Min(0)
+    private final Integer queueCapacity;
+  }
+}
@@ -0,0 +1,186 @@
+/**
+ *
+ */
+package one.tracking.framework.config;
+
+import java.time.Duration;
+import java.util.List;
+import javax.validation.Valid;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Pattern;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.ConstructorBinding;
+import org.springframework.util.unit.DataSize;
+import org.springframework.validation.annotation.Validated;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Immutable configuration of the data export.
+ *
+ * @author Marko Voß
+ *
+ */
+@Getter
+@AllArgsConstructor
+@ToString
+@EqualsAndHashCode
+@ConfigurationProperties(prefix = "app.export")
+@ConstructorBinding
+@Validated
+public class ExportProperties {
+
+  /**
+   * The maximum amount of time slices an export may be split into.
+   */
+  @NotNull
+  @Min(1)
+  private final Integer maxSlices;
+
+  /**
+   * The amount of slots of the export executor (threads and queue) only available to export jobs and
+   * recurring exports, so that streamed exports cannot starve them.
+   */
+  @NotNull
+  @Min(0)
+  private final Integer reservedSlots;
+
+  @NotNull
+  @Valid
+  private final Cache cache;
+
+  @NotNull
+  @Valid
+  private final Spool spool;
+
+  @NotNull
+  @Valid
+  private final Job job;
+
+  @NotNull
+  @Valid
+  private final Incremental incremental;
+
+  @Getter
+  @AllArgsConstructor
+  @ToString
+  @EqualsAndHashCode
+  public static class Cache {
+
+    /**
+     * Whether exports of closed intervals are cached.
+     */
+    @NotNull
+    private final Boolean enabled;
+
+    /**
+     * The local directory containing the cached exports.
+     */
+    @NotBlank
+    private final String directory;
+
+    /**
+     * The total size of the cached exports. Least recently used exports get evicted first.
+     */
+    @NotNull
+    private final DataSize maxSize;
+  }
+
+  @Getter
+  @AllArgsConstructor
+  @ToString
+  @EqualsAndHashCode
+  public static class Spool {
+
+    /**
+     * The directory the recurring exports are written to. Should be shared by all nodes, as each file
+     * is produced by one node only.
+     */
+    @NotBlank
+    private final String directory;
+
+    /**
+     * The recurring exports. May be <code>null</code>.
+     */
+    @Valid
+    private final List<SpoolJob> jobs;
+  }
+
+  @Getter
+  @AllArgsConstructor
+  @ToString
+  @EqualsAndHashCode
+  public static class Job {
+
+    /**
+     * The directory export jobs write their files to. Should be shared by all nodes, so that any node
+     * can serve the download of a job.
+     */
+    @NotBlank
+    private final String directory;
+  }
+
+  @Getter
+  @AllArgsConstructor
+  @ToString
+  @EqualsAndHashCode
+  public static class Incremental {
+
+    /**
+     * Rows created within this duration before an incremental export are left to the next export, as
+     * their transactions may not have been committed yet. Must exceed the duration of the transactions
+     * creating survey responses and step counts.
+     */
+    @NotNull
+    private final Duration commitLag;
+  }
+
+  @Getter
+  @AllArgsConstructor
+  @ToString
+  @EqualsAndHashCode
+  public static class SpoolJob {
+
+    /**
+     * The prefix of the file names.
+     */
+    @NotBlank
+    @Pattern(regexp = "[A-Za-z0-9_-]+")
+    private final String name;
+
+    /**
+     * The cron expression triggering the export evaluated in UTC, e.g. <code>0 0 2 * * *</code>.
+     * Triggers are meant to fire at full minutes.
+     */
+    @NotBlank
+    private final String cron;
+
+    /**
+     * The value of an export format, e.g. <code>csv.gz</code>.
+     */
+    @NotBlank
+    private final String format;
+
+    /**
+     * The exported interval ending at the scheduled time of the trigger.
+     */
+    @NotNull
+    private final Duration window;
+
+    /**
+     * The amount of files kept. Older files get deleted.
+     */
+    @NotNull
+    @Min(1)
+    private final Integer maxFiles;
+
+    /**
+     * The maximum age of the files kept. May be <code>null</code>.
+     */
+    private final Duration maxAge;
+  }
+}
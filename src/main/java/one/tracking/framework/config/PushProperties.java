@@ -0,0 +1,136 @@
+/**
+ *
+ */
+package one.tracking.framework.config;
+
+import java.time.Duration;
+import javax.validation.Valid;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.ConstructorBinding;
+import org.springframework.validation.annotation.Validated;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+import one.tracking.framework.component.push.PushTransport;
+import one.tracking.framework.domain.PushTransportType;
+
+/**
+ * Immutable configuration for the {@link PushTransport} selection and the connection and thread
+ * settings of each transport.
+ *
+ * @author Marko Voß
+ *
+ */
+@Getter
+@AllArgsConstructor
+@ToString
+@EqualsAndHashCode
+@ConfigurationProperties(prefix = "app.push")
+@ConstructorBinding
+@Validated
+public class PushProperties {
+
+  @NotNull
+  private final PushTransportType transport;
+
+  @NotNull
+  @Valid
+  private final Fcm fcm;
+
+  @NotNull
+  @Valid
+  private final Http http;
+
+  @NotNull
+  @Valid
+  private final Recording recording;
+
+  @Getter
+  @AllArgsConstructor
+  @ToString
+  @EqualsAndHashCode
+  public static class Fcm {
+
+    /**
+     * The amount of threads used by the Firebase application for sending messages.
+     */
+    @NotNull
+    @Min(1)
+    private final Integer threads;
+
+    /**
+     * The maximum amount of concurrent requests sent to FCM.
+     */
+    @NotNull
+    @Min(1)
+    private final Integer maxConnections;
+
+    @NotNull
+    private final Duration connectTimeout;
+
+    @NotNull
+    private final Duration readTimeout;
+  }
+
+  @Getter
+  @AllArgsConstructor
+  @ToString
+  @EqualsAndHashCode
+  public static class Http {
+
+    /**
+     * The endpoint of the local HTTP stand-in receiving the messages.
+     */
+    private final String url;
+
+    /**
+     * The amount of threads used by the HTTP client.
+     */
+    @NotNull
+    @Min(1)
+    private final Integer threads;
+
+    /**
+     * The maximum amount of concurrent requests sent to the endpoint.
+     */
+    @NotNull
+    @Min(1)
+    private final Integer maxConnections;
+
+    @NotNull
+    private final Duration connectTimeout;
+
+    @NotNull
+    private final Duration requestTimeout;
+  }
+
+  @Getter
+  @AllArgsConstructor
+  @ToString
+  @EqualsAndHashCode
+  public static class Recording {
+
+    /**
+     * The amount of threads used for completing the recorded messages.
+     */
+    @NotNull
+    @Min(1)
+    private final Integer threads;
+
+    /**
+     * The maximum amount of messages kept in memory. Older messages will be dropped.
+     */
+    @NotNull
+    @Min(1)
+    private final Integer capacity;
+
+    /**
+     * The simulated latency per request.
+     */
+    @NotNull
+    private final Duration latency;
+  }
+}
@@ -3,31 +3,42 @@
  */
 package one.tracking.framework.config;
 
+import java.time.Duration;
 import java.time.Instant;
 import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
 import java.time.temporal.ChronoUnit;
 import java.time.temporal.WeekFields;
-import java.util.ArrayList;
 import java.util.Date;
-import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import javax.persistence.TypedQuery;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.scheduling.TaskScheduler;
 import org.springframework.scheduling.annotation.EnableScheduling;
-import org.springframework.scheduling.annotation.SchedulingConfigurer;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
-import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.util.Assert;
+import one.tracking.framework.component.LeaderElectionComponent;
 import one.tracking.framework.component.ReminderComponent;
+import one.tracking.framework.component.ThreadingComponent;
+import one.tracking.framework.domain.LeadershipChangedEvent;
+import one.tracking.framework.domain.MisfirePolicy;
+import one.tracking.framework.domain.SurveyChangedEvent;
+import one.tracking.framework.entity.ReminderSchedule;
 import one.tracking.framework.entity.meta.IntervalType;
 import one.tracking.framework.entity.meta.ReleaseStatusType;
 import one.tracking.framework.entity.meta.ReminderType;
@@ -35,12 +46,17 @@ import one.tracking.framework.entity.meta.Survey;
 import one.tracking.framework.repo.SurveyRepository;
 
 /**
+ * The next fire times of the reminder tasks are stored in the table {@link ReminderSchedule}, which
+ * gets updated on every survey change. The leader polls the table for due tasks, so that the
+ * schedule survives restarts. Runs, which have been missed while no node was running, are handled
+ * according to <code>app.schedule.misfirePolicy</code>.
+ *
  * @author Marko Voß
  *
  */
 @Configuration
 @EnableScheduling
-public class ReminderConfig implements SchedulingConfigurer {
+public class ReminderConfig {
 
   private static final Logger LOG = LoggerFactory.getLogger(ReminderConfig.class);
 
@@ -50,7 +66,22 @@ public class ReminderConfig implements SchedulingConfigurer {
   @Autowired
   private SurveyRepository surveyRepository;
 
-  private final Map<String, ScheduledFuture<?>> futures = new HashMap<>();
+  @Autowired
+  private LeaderElectionComponent leaderElectionComponent;
+
+  @Autowired
+  private ScheduleProperties scheduleConfig;
+
+  @Autowired
+  private ThreadingComponent threadingComponent;
+
+  @Autowired
+  private TransactionTemplate transactionTemplate;
+
+  @Autowired
+  private EntityManager entityManager;
+
+  private ScheduledFuture<?> pollFuture;
 
   @Bean
   public TaskScheduler reminderTaskScheduler() {
@@ -62,71 +93,229 @@ public class ReminderConfig implements SchedulingConfigurer {
   }
 
   /*
-   * This method is called on application startup
+   * Only the leader polls the schedule. All other nodes keep processing requests.
    */
-  @Override
-  public void configureTasks(final ScheduledTaskRegistrar taskRegistrar) {
-    updateSchedule();
+  @EventListener
+  void handleEvent(final LeadershipChangedEvent event) {
+
+    if (event.isLeader()) {
+      // Initial setup only, the schedule is kept up to date by survey changes afterwards
+      if (countSchedules() == 0)
+        updateSchedule();
+      startPolling();
+    } else
+      cancelSchedule();
+  }
+
+  @EventListener
+  void handleEvent(final SurveyChangedEvent event) {
+    reschedule(event.getNameId());
   }
 
   public Map<String, Long> getSchedule(final TimeUnit timeUnit) {
 
     Assert.notNull(timeUnit, "TimeUnit must not be null");
 
-    return this.futures.entrySet().stream().collect(Collectors.toMap(
+    final long now = System.currentTimeMillis();
+
+    return getNextFireTimes().entrySet().stream().collect(Collectors.toMap(
         e -> e.getKey(),
-        e -> e.getValue().getDelay(timeUnit)));
+        e -> timeUnit.convert(e.getValue().toEpochMilli() - now, TimeUnit.MILLISECONDS)));
   }
 
-  public void updateSchedule() {
+  /**
+   * @return the next fire time of every scheduled reminder task by survey nameId
+   */
+  public Map<String, Instant> getNextFireTimes() {
+
+    final TypedQuery<ReminderSchedule> query =
+        this.entityManager.createQuery("SELECT s FROM ReminderSchedule s", ReminderSchedule.class);
+
+    return this.transactionTemplate.execute(status -> query.getResultList()).stream()
+        .collect(Collectors.toMap(ReminderSchedule::getNameId, ReminderSchedule::getNextFireAt));
+  }
 
-    if (!this.reminderComponent.isAvailable()) {
-      LOG.debug("Reminder component is not available. Skipping scheduler setup.");
+  /**
+   * Stop polling the schedule on this node. The stored schedule is kept.
+   */
+  public synchronized void cancelSchedule() {
+
+    if (this.pollFuture == null)
+      return;
+
+    LOG.debug("Stop polling reminder schedule.");
+
+    this.pollFuture.cancel(false);
+    this.pollFuture = null;
+  }
+
+  private synchronized void startPolling() {
+
+    if (this.pollFuture != null)
       return;
-    }
+
+    LOG.debug("Start polling reminder schedule.");
+
+    this.pollFuture = reminderTaskScheduler().scheduleWithFixedDelay(this::poll,
+        this.scheduleConfig.getPollInterval());
+  }
+
+  /**
+   * Reload all released surveys and store their next fire times. Schedules of surveys, which are not
+   * released any more, will be removed.
+   */
+  public void updateSchedule() {
 
     final List<Survey> surveys =
         this.surveyRepository.findAllByReleaseStatusAndReminderTypeNotAndIntervalTypeNotOrderByNameIdAscVersionDesc(
             ReleaseStatusType.RELEASED, ReminderType.NONE, IntervalType.NONE);
 
-    final List<String> nameIds = new ArrayList<>();
+    final Set<String> nameIds = new HashSet<>();
 
     for (final Survey survey : surveys) {
 
-      final String nameId = survey.getNameId();
+      // Surveys are ordered by version, so the first one is the current release
+      if (nameIds.add(survey.getNameId()))
+        schedule(survey.getNameId(), survey);
+    }
+
+    for (final String nameId : getNextFireTimes().keySet()) {
+      if (!nameIds.contains(nameId))
+        schedule(nameId, null);
+    }
+  }
+
+  /**
+   * Update the stored schedule of the specified survey only.
+   *
+   * @param nameId
+   */
+  public void reschedule(final String nameId) {
+
+    final Survey survey = this.surveyRepository.findByNameIdOrderByVersionDesc(nameId).stream()
+        .filter(f -> f.getReleaseStatus() == ReleaseStatusType.RELEASED)
+        .findFirst()
+        .filter(f -> f.getReminderType() != ReminderType.NONE && f.getIntervalType() != IntervalType.NONE)
+        .orElse(null);
+
+    schedule(nameId, survey);
+  }
+
+  /*
+   * Stores the schedule of the specified nameId. The schedule gets removed, if survey is null.
+   */
+  private void schedule(final String nameId, final Survey survey) {
+
+    try {
+      this.transactionTemplate.executeWithoutResult(status -> {
 
-      if (nameIds.contains(nameId))
-        continue;
+        final ReminderSchedule schedule = this.entityManager.find(ReminderSchedule.class, nameId);
 
-      nameIds.add(nameId);
+        if (survey == null) {
+          if (schedule != null) {
+            this.entityManager.remove(schedule);
+            LOG.debug("Removed reminder schedule for survey {}", nameId);
+          }
+          return;
+        }
 
-      final ScheduledFuture<?> future = this.futures.get(survey.getNameId());
-      if (future != null)
-        future.cancel(false);
+        final ReminderSchedule updated = (schedule == null ? ReminderSchedule.builder() : schedule.toBuilder())
+            .nameId(nameId)
+            .intervalStart(survey.getIntervalStart())
+            .intervalType(survey.getIntervalType())
+            .intervalValue(survey.getIntervalValue())
+            .reminderType(survey.getReminderType())
+            .reminderValue(survey.getReminderValue())
+            .build();
 
-      // Avoid survey object to keep existing in TriggerContext scope
-      final Instant intervalStart = survey.getIntervalStart();
-      final IntervalType intervalType = survey.getIntervalType();
-      final Integer intervalValue = survey.getIntervalValue();
-      final ReminderType reminderType = survey.getReminderType();
-      final Integer reminderValue = survey.getReminderValue();
+        updated.setNextFireAt(getNextExecutionTime(updated));
 
-      this.futures.put(nameId,
-          reminderTaskScheduler().schedule(
-              (Runnable) () -> this.reminderComponent.sendReminder(nameId),
-              triggerContext -> {
+        if (schedule == null)
+          this.entityManager.persist(updated);
+        else
+          this.entityManager.merge(updated);
 
-                final Date nextExecution = getNextExecutionTime(
-                    intervalStart, intervalType, intervalValue,
-                    reminderType, reminderValue);
+        status.flush();
 
-                LOG.debug("Scheduling reminder task for survey {} to {}", nameId, nextExecution);
+        LOG.debug("Scheduling reminder task for survey {} to {}", nameId, updated.getNextFireAt());
+      });
 
-                return nextExecution;
-              }));
+    } catch (final DataIntegrityViolationException e) {
+      // Another node stored the schedule of the same survey concurrently
+      LOG.debug("Expected violation: {}", e.getMessage());
     }
   }
 
+  private long countSchedules() {
+
+    final TypedQuery<Long> query =
+        this.entityManager.createQuery("SELECT COUNT(s) FROM ReminderSchedule s", Long.class);
+
+    return this.transactionTemplate.execute(status -> query.getSingleResult());
+  }
+
+  /*
+   * Fires all due reminder tasks. Each due schedule gets advanced to its next fire time by a
+   * conditional update before the task is started, so that a run is never started twice.
+   */
+  private void poll() {
+
+    if (!this.reminderComponent.isAvailable())
+      return;
+
+    try {
+      final Instant now = Instant.now();
+
+      final TypedQuery<ReminderSchedule> query = this.entityManager.createQuery(
+          "SELECT s FROM ReminderSchedule s WHERE s.nextFireAt <= ?1", ReminderSchedule.class);
+      query.setParameter(1, now);
+
+      final List<ReminderSchedule> dueSchedules = this.transactionTemplate.execute(status -> query.getResultList());
+
+      for (final ReminderSchedule schedule : dueSchedules) {
+
+        final boolean misfired =
+            Duration.between(schedule.getNextFireAt(), now).compareTo(this.scheduleConfig.getMisfireGrace()) > 0;
+        final boolean fire = !misfired || this.scheduleConfig.getMisfirePolicy() == MisfirePolicy.FIRE_ONCE;
+
+        if (!advance(schedule, now, fire))
+          continue;
+
+        if (misfired)
+          LOG.warn("Missed reminder task for survey {} at {} [policy: {}]",
+              schedule.getNameId(), schedule.getNextFireAt(), this.scheduleConfig.getMisfirePolicy());
+
+        if (fire) {
+          final String nameId = schedule.getNameId();
+          this.threadingComponent.getExecutor(reminderTaskScheduler())
+              .execute(() -> this.reminderComponent.sendReminder(nameId));
+        }
+      }
+
+    } catch (final Exception e) {
+      LOG.error(e.getMessage(), e);
+    }
+  }
+
+  private boolean advance(final ReminderSchedule schedule, final Instant now, final boolean fire) {
+
+    final Query query = this.entityManager.createQuery(
+        "UPDATE ReminderSchedule s SET s.nextFireAt = ?1, s.lastFireAt = ?2 WHERE s.nameId = ?3 AND s.nextFireAt = ?4");
+    query.setParameter(1, getNextExecutionTime(schedule));
+    query.setParameter(2, fire ? now : schedule.getLastFireAt());
+    query.setParameter(3, schedule.getNameId());
+    query.setParameter(4, schedule.getNextFireAt());
+
+    return this.transactionTemplate.execute(status -> query.executeUpdate()) > 0;
+  }
+
+  private Instant getNextExecutionTime(final ReminderSchedule schedule) {
+
+    return getNextExecutionTime(
+        schedule.getIntervalStart(), schedule.getIntervalType(), schedule.getIntervalValue(),
+        schedule.getReminderType(), schedule.getReminderValue()).toInstant();
+  }
+
   private Date getNextExecutionTime(
       final Instant intervalStart, final IntervalType intervalType, final Integer intervalValue,
       final ReminderType reminderType, final Integer reminderValue) {
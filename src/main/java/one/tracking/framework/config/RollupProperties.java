@@ -0,0 +1,54 @@
+/**
+ *
+ */
+package one.tracking.framework.config;
+
+import java.time.Duration;
+import javax.validation.constraints.NotNull;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.ConstructorBinding;
+import org.springframework.validation.annotation.Validated;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Immutable configuration of the step count rollup.
+ *
+ * @author Marko Voß
+ *
+ */
+@Getter
+@AllArgsConstructor
+@ToString
+@EqualsAndHashCode
+@ConfigurationProperties(prefix = "app.rollup")
+@ConstructorBinding
+@Validated
+public class RollupProperties {
+
+  @NotNull
+  private final Boolean enabled;
+
+  /**
+   * The delay between two runs of the rollup.
+   */
+  @NotNull
+  private final Duration interval;
+
+  /**
+   * Each run processes the changes since the end of the previous run minus this duration, so that
+   * rows committed late are not missed. Days are recomputed completely, so processing rows twice is
+   * harmless.
+   */
+  @NotNull
+  private final Duration overlap;
+
+  /**
+   * Each run removes the totals of the days within this duration before the run, of which all step
+   * counts got deleted. Deletions of older step counts are not reflected by the totals.
+   */
+  @NotNull
+  private final Duration reconcileWindow;
+}
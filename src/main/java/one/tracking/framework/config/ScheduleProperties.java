@@ -0,0 +1,49 @@
+/**
+ *
+ */
+package one.tracking.framework.config;
+
+import java.time.Duration;
+import javax.validation.constraints.NotNull;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.ConstructorBinding;
+import org.springframework.validation.annotation.Validated;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+import one.tracking.framework.domain.MisfirePolicy;
+
+/**
+ * Immutable configuration of the persistent reminder schedule.
+ *
+ * @author Marko Voß
+ *
+ */
+@Getter
+@AllArgsConstructor
+@ToString
+@EqualsAndHashCode
+@ConfigurationProperties(prefix = "app.schedule")
+@ConstructorBinding
+@Validated
+public class ScheduleProperties {
+
+  /**
+   * The delay between two polls of the schedule table.
+   */
+  @NotNull
+  private final Duration pollInterval;
+
+  /**
+   * Runs, which are due for less than this duration, are always executed.
+   */
+  @NotNull
+  private final Duration misfireGrace;
+
+  /**
+   * The handling of runs, which are due for longer than {@link #misfireGrace}.
+   */
+  @NotNull
+  private final MisfirePolicy misfirePolicy;
+}
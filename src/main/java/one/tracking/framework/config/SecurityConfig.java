@@ -175,7 +175,8 @@ public class SecurityConfig {
 
       http.cors().and().csrf().disable()
           .authorizeRequests()
-          .antMatchers("/manage/**", "/user").hasAnyAuthority(SecurityConfig.this.roleAdmin)
+          .antMatchers("/actuator/health").permitAll()
+          .antMatchers("/manage/**", "/user", "/actuator/**").hasAnyAuthority(SecurityConfig.this.roleAdmin)
           .and()
           .httpBasic()
           .authenticationEntryPoint(authenticationEntryPointDev())
@@ -203,7 +204,8 @@ public class SecurityConfig {
 
       http.cors().and().csrf().disable()
           .authorizeRequests()
-          .antMatchers("/manage/**", "/user").hasAnyRole(SecurityConfig.this.roleAdmin)
+          .antMatchers("/actuator/health").permitAll()
+          .antMatchers("/manage/**", "/user", "/actuator/**").hasAnyRole(SecurityConfig.this.roleAdmin)
           .antMatchers("/oauth2/**").permitAll()
           .and()
           .oauth2Login()
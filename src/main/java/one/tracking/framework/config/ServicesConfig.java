@@ -3,13 +3,25 @@
  */
 package one.tracking.framework.config;
 
+import java.util.Collections;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.task.TaskExecutorBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.annotation.Primary;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.support.TransactionTemplate;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import one.tracking.framework.component.ExportAdmissionComponent;
+import one.tracking.framework.component.ThreadingComponent;
 
 /**
  * @author Marko Voß
@@ -19,14 +31,125 @@ import org.springframework.transaction.support.TransactionTemplate;
 @EnableAsync
 public class ServicesConfig {
 
+  public static final String IMPORT_EXECUTOR = "importExecutor";
+
+  public static final String EXPORT_EXECUTOR = "exportExecutor";
+
+  public static final String EXPORT_WORKER_EXECUTOR = "exportWorkerExecutor";
+
+  public static final String READ_COMMITTED_TRANSACTION_TEMPLATE = "readCommittedTransactionTemplate";
+
   @Autowired
   private PlatformTransactionManager transactionManager;
 
+  @Autowired
+  private ExecutorProperties executorConfig;
+
+  @Autowired
+  private ExportProperties exportConfig;
+
+  @Autowired
+  private ThreadingComponent threadingComponent;
+
+  @Autowired
+  private ThreadingProperties threadingConfig;
+
+  @Autowired
+  private ObjectProvider<MeterRegistry> meterRegistry;
+
   @Bean
+  @Primary
   public TransactionTemplate transactionTemplate() {
     final TransactionTemplate tt = new TransactionTemplate(this.transactionManager);
     tt.setIsolationLevel(TransactionDefinition.ISOLATION_READ_UNCOMMITTED);
     tt.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
     return tt;
   }
+
+  /**
+   * For reads which must not see rows of transactions rolled back later, e.g. reads advancing the
+   * watermark of incremental exports.
+   */
+  @Bean(name = READ_COMMITTED_TRANSACTION_TEMPLATE)
+  public TransactionTemplate readCommittedTransactionTemplate() {
+    final TransactionTemplate tt = new TransactionTemplate(this.transactionManager);
+    tt.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+    tt.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    tt.setReadOnly(true);
+    return tt;
+  }
+
+  /**
+   * Spring Boot only provides its executor, if no other executor has been defined. The executors of
+   * this configuration are reserved for their tasks, so asynchronous requests not specifying an
+   * executor keep using this one instead of falling back to an unbounded executor.
+   */
+  @Lazy
+  @Bean(name = TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME)
+  public ThreadPoolTaskExecutor applicationTaskExecutor(final TaskExecutorBuilder builder) {
+    return builder.build();
+  }
+
+  @Bean(name = IMPORT_EXECUTOR)
+  public ThreadPoolTaskExecutor importExecutor() {
+    return createExecutor(IMPORT_EXECUTOR, "Import-", this.executorConfig.getParticipantImport());
+  }
+
+  /**
+   * Starts the maximum amount of threads before queueing exports, so that the queue position of an
+   * export is known at its admission by the {@link ExportAdmissionComponent}. Idle threads time out.
+   * The queue exceeds the configured capacity by the amount of threads, as exports release their slot
+   * shortly before their thread becomes available again.
+   */
+  @Bean(name = EXPORT_EXECUTOR)
+  public ThreadPoolTaskExecutor exportExecutor() {
+
+    final ExecutorProperties.Pool config = this.executorConfig.getExport();
+    final ThreadPoolTaskExecutor executor = createExecutor(EXPORT_EXECUTOR, "Export-",
+        new ExecutorProperties.Pool(config.getMaxSize(), config.getMaxSize(),
+            config.getQueueCapacity() + config.getMaxSize()));
+
+    executor.getThreadPoolExecutor().allowCoreThreadTimeOut(true);
+    return executor;
+  }
+
+  /**
+   * Fetches additional datasets and time slices of the exports running on the
+   * {@link #EXPORT_EXECUTOR} concurrently. The amount of tasks is bounded by the running exports, so
+   * tasks are never rejected. Each task reads with a database permit, so there are no more workers
+   * than permits. Tasks exceeding them wait in the queue instead of blocking a thread.
+   */
+  @Bean(name = EXPORT_WORKER_EXECUTOR)
+  public ThreadPoolTaskExecutor exportWorkerExecutor() {
+    final int size = Math.min(this.executorConfig.getExport().getMaxSize() * this.exportConfig.getMaxSlices(),
+        this.threadingConfig.getDbPermits());
+    return createExecutor(EXPORT_WORKER_EXECUTOR, "ExportWorker-",
+        new ExecutorProperties.Pool(size, size, Integer.MAX_VALUE));
+  }
+
+  /*
+   * Tasks exceeding the queue capacity are rejected with a TaskRejectedException, which results in
+   * HTTP 503. Threads are virtual, if enabled, but their amount is still bounded by the pool size.
+   */
+  private ThreadPoolTaskExecutor createExecutor(final String name, final String threadNamePrefix,
+      final ExecutorProperties.Pool config) {
+
+    final ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    executor.setCorePoolSize(config.getCoreSize());
+    executor.setMaxPoolSize(config.getMaxSize());
+    executor.setQueueCapacity(config.getQueueCapacity());
+    executor.setThreadNamePrefix(threadNamePrefix);
+    executor.setWaitForTasksToCompleteOnShutdown(true);
+
+    if (this.threadingComponent.isVirtual())
+      executor.setThreadFactory(ThreadingComponent.newVirtualThreadFactory(threadNamePrefix));
+
+    executor.initialize();
+
+    // Publishes executor.active, executor.queued, executor.queue.remaining and executor.pool.size
+    this.meterRegistry.ifAvailable(registry -> new ExecutorServiceMetrics(
+        executor.getThreadPoolExecutor(), name, Collections.<Tag>emptyList()).bindTo(registry));
+
+    return executor;
+  }
 }
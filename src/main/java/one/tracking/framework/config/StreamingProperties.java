@@ -0,0 +1,45 @@
+/**
+ *
+ */
+package one.tracking.framework.config;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.ConstructorBinding;
+import org.springframework.validation.annotation.Validated;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Immutable configuration of reading large result sets. See the <code>streaming</code> profile.
+ *
+ * @author Marko Voß
+ *
+ */
+@Getter
+@AllArgsConstructor
+@ToString
+@EqualsAndHashCode
+@ConfigurationProperties(prefix = "app.streaming")
+@ConstructorBinding
+@Validated
+public class StreamingProperties {
+
+  /**
+   * Read the DeviceTokens of reminder tasks in keyset pages ordered by id instead of offset pages.
+   */
+  @NotNull
+  private final Boolean enabled;
+
+  /**
+   * The amount of rows fetched per round trip by cursors of rollups and per page of exported step
+   * counts. Cursors are only fetched in chunks by drivers supporting it (e.g. MySQL with
+   * <code>useCursorFetch=true</code>), otherwise the complete result set is buffered on the client.
+   */
+  @NotNull
+  @Min(1)
+  private final Integer fetchSize;
+}
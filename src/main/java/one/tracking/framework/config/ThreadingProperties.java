@@ -0,0 +1,51 @@
+/**
+ *
+ */
+package one.tracking.framework.config;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.ConstructorBinding;
+import org.springframework.validation.annotation.Validated;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Immutable configuration of the threading mode and the concurrency limits of blocking resources.
+ *
+ * @author Marko Voß
+ *
+ */
+@Getter
+@AllArgsConstructor
+@ToString
+@EqualsAndHashCode
+@ConfigurationProperties(prefix = "app.threads")
+@ConstructorBinding
+@Validated
+public class ThreadingProperties {
+
+  /**
+   * Run asynchronous tasks, exports and reminder tasks on virtual threads. Requires a Java 21 runtime,
+   * otherwise platform threads are used.
+   */
+  @NotNull
+  private final Boolean virtual;
+
+  /**
+   * The maximum amount of concurrent blocking database calls.
+   */
+  @NotNull
+  @Min(1)
+  private final Integer dbPermits;
+
+  /**
+   * The maximum amount of concurrent blocking HTTP calls.
+   */
+  @NotNull
+  @Min(1)
+  private final Integer httpPermits;
+}
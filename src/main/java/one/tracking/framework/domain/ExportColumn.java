@@ -0,0 +1,74 @@
+/**
+ *
+ */
+package one.tracking.framework.domain;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * The columns of the survey responses within data exports of the long layout.
+ *
+ * @author Marko Voß
+ *
+ */
+@Getter
+@AllArgsConstructor
+public enum ExportColumn {
+
+  SURVEY("survey", "Survey", SurveyResponseRow::getNameId),
+  START_TIME("starttime", "StartTime", SurveyResponseRow::getStartTime),
+  END_TIME("endtime", "EndTime", SurveyResponseRow::getEndTime),
+  USER_ID("userid", "UserId", SurveyResponseRow::getUserId),
+  QUESTION_ORDER("questionorder", "QuestionOrder", SurveyResponseRow::getOrder),
+  QUESTION_TYPE("questiontype", "QuestionType", SurveyResponseRow::getQuestionType),
+  QUESTION("question", "Question", SurveyResponseRow::getQuestionText),
+  ANSWER("answer", "Answer", SurveyResponseRow::getAnswer),
+  BOOL_ANSWER("boolanswer", "BoolAnswer", SurveyResponseRow::getBoolAnswer),
+  NUMBER_ANSWER("numberanswer", "NumberAnswer", SurveyResponseRow::getNumberAnswer),
+  TEXT_ANSWER("textanswer", "TextAnswer", SurveyResponseRow::getTextAnswer),
+  PREDEFINED_ANSWER("predefinedanswer", "PredefinedAnswer", SurveyResponseRow::getPredefinedAnswer),
+  ANSWER_VERSION("answerversion", "AnswerVersion", SurveyResponseRow::getVersion),
+  SKIPPED("skipped", "Skipped", SurveyResponseRow::getSkipped),
+  VALID("valid", "Valid", SurveyResponseRow::getValid),
+  ANSWER_TIMESTAMP("answertimestamp", "AnswerTimestamp", SurveyResponseRow::getCreatedAt);
+
+  /**
+   * The default columns, which contain the answer as text.
+   */
+  public static final List<ExportColumn> DEFAULT = Collections.unmodifiableList(Arrays.asList(
+      SURVEY, START_TIME, END_TIME, USER_ID, QUESTION_ORDER, QUESTION_TYPE, QUESTION, ANSWER, ANSWER_VERSION,
+      SKIPPED, VALID, ANSWER_TIMESTAMP));
+
+  /**
+   * The default columns of typed formats, which contain one column per answer type.
+   */
+  public static final List<ExportColumn> TYPED = Collections.unmodifiableList(Arrays.asList(
+      SURVEY, START_TIME, END_TIME, USER_ID, QUESTION_ORDER, QUESTION_TYPE, QUESTION, BOOL_ANSWER,
+      NUMBER_ANSWER, TEXT_ANSWER, PREDEFINED_ANSWER, ANSWER_VERSION, SKIPPED, VALID, ANSWER_TIMESTAMP));
+
+  /**
+   * The value of the request parameter <code>columns</code>.
+   */
+  private final String value;
+
+  private final String header;
+
+  private final Function<SurveyResponseRow, Object> getter;
+
+  public Object getValue(final SurveyResponseRow row) {
+    return this.getter.apply(row);
+  }
+
+  public static ExportColumn fromValue(final String value) {
+
+    return Arrays.stream(values())
+        .filter(c -> c.value.equalsIgnoreCase(value))
+        .findFirst()
+        .orElseThrow(() -> new IllegalArgumentException("Unsupported export column: " + value));
+  }
+}
@@ -0,0 +1,25 @@
+/**
+ *
+ */
+package one.tracking.framework.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * The positions of the last exported rows of each dataset. A position being <code>null</code> means
+ * that no rows of the dataset have been exported.
+ *
+ * @author Marko Voß
+ *
+ */
+@Data
+@Builder
+@AllArgsConstructor
+public class ExportCursor {
+
+  private final ExportPosition surveyResponse;
+
+  private final ExportPosition stepCount;
+}
@@ -0,0 +1,72 @@
+/**
+ *
+ */
+package one.tracking.framework.domain;
+
+import java.util.Arrays;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * The file formats supported by the data export.
+ *
+ * @author Marko Voß
+ *
+ */
+@Getter
+@AllArgsConstructor
+public enum ExportFormat {
+
+  /**
+   * A workbook containing one sheet per dataset.
+   */
+  XLSX("xlsx", "xlsx", "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet", false, false),
+
+  /**
+   * A ZIP archive containing one CSV file per dataset.
+   */
+  CSV("csv", "zip", "application/zip", true, false),
+
+  /**
+   * A ZIP archive containing one gzip compressed CSV file per dataset.
+   */
+  CSV_GZ("csv.gz", "zip", "application/zip", true, false),
+
+  /**
+   * JSON Lines containing one object per row of all datasets.
+   */
+  JSONL("jsonl", "jsonl", "application/x-ndjson", true, true),
+
+  /**
+   * Gzip compressed JSON Lines containing one object per row of all datasets.
+   */
+  JSONL_GZ("jsonl.gz", "jsonl.gz", "application/gzip", true, true);
+
+  /**
+   * The value of the request parameter <code>format</code>.
+   */
+  private final String value;
+
+  private final String fileExtension;
+
+  private final String contentType;
+
+  /**
+   * Whether a dataset can be written as several segments, which are concatenated afterwards.
+   */
+  private final boolean segmentable;
+
+  /**
+   * Whether values keep their types, so that answers are exported as separate typed fields by
+   * default.
+   */
+  private final boolean typed;
+
+  public static ExportFormat fromValue(final String value) {
+
+    return Arrays.stream(values())
+        .filter(f -> f.value.equalsIgnoreCase(value))
+        .findFirst()
+        .orElseThrow(() -> new IllegalArgumentException("Unsupported export format: " + value));
+  }
+}
@@ -0,0 +1,15 @@
+/**
+ *
+ */
+package one.tracking.framework.domain;
+
+/**
+ * @author Marko Voß
+ *
+ */
+public enum ExportJobStatus {
+
+  IN_PROGRESS,
+  COMPLETED,
+  FAILED;
+}
@@ -0,0 +1,43 @@
+/**
+ *
+ */
+package one.tracking.framework.domain;
+
+import java.util.Arrays;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * The layout of the survey responses within the data export.
+ *
+ * @author Marko Voß
+ *
+ */
+@Getter
+@AllArgsConstructor
+public enum ExportLayout {
+
+  /**
+   * A single sheet containing one row per answer.
+   */
+  LONG("long"),
+
+  /**
+   * One sheet per survey version containing one row per user, survey instance and answer version
+   * and one column per question or checklist entry.
+   */
+  WIDE("wide");
+
+  /**
+   * The value of the request parameter <code>layout</code>.
+   */
+  private final String value;
+
+  public static ExportLayout fromValue(final String value) {
+
+    return Arrays.stream(values())
+        .filter(l -> l.value.equalsIgnoreCase(value))
+        .findFirst()
+        .orElseThrow(() -> new IllegalArgumentException("Unsupported export layout: " + value));
+  }
+}
@@ -0,0 +1,50 @@
+/**
+ *
+ */
+package one.tracking.framework.domain;
+
+import java.util.List;
+import java.util.Set;
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * The options of a data export affecting its content and the way it gets generated.
+ *
+ * @author Marko Voß
+ *
+ */
+@Data
+@Builder
+public class ExportOptions {
+
+  private final ExportFormat format;
+
+  @Builder.Default
+  private final ExportLayout layout = ExportLayout.LONG;
+
+  @Builder.Default
+  private final StepCountAggregation stepCounts = StepCountAggregation.RAW;
+
+  /**
+   * The nameIds of the surveys to export or <code>null</code> to export all surveys.
+   */
+  private final Set<String> nameIds;
+
+  /**
+   * The versions of the surveys to export or <code>null</code> to export all versions.
+   */
+  private final Set<Integer> versions;
+
+  /**
+   * The columns of the survey responses to export in their order or <code>null</code> for the
+   * default columns of the format. Only the long layout supports the selection of columns.
+   */
+  private final List<ExportColumn> columns;
+
+  /**
+   * The amount of time slices to export concurrently. Does not affect the content.
+   */
+  @Builder.Default
+  private final int slices = 1;
+}
@@ -0,0 +1,24 @@
+/**
+ *
+ */
+package one.tracking.framework.domain;
+
+import java.time.Instant;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * The <code>(createdAt, id)</code> key of an exported row. Exports continuing after a position read
+ * newer rows only.
+ *
+ * @author Marko Voß
+ *
+ */
+@Data
+@AllArgsConstructor
+public class ExportPosition {
+
+  private final Instant createdAt;
+
+  private final Long id;
+}
@@ -0,0 +1,20 @@
+/**
+ *
+ */
+package one.tracking.framework.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Published whenever this node gains or loses the leadership for scheduled tasks.
+ *
+ * @author Marko Voß
+ *
+ */
+@Data
+@AllArgsConstructor
+public class LeadershipChangedEvent {
+
+  private final boolean leader;
+}
@@ -0,0 +1,41 @@
+/**
+ *
+ */
+package one.tracking.framework.domain;
+
+import java.time.Instant;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+/**
+ * Handle of an acquired scheduler lease. The lease will be renewed by heartbeats until it gets
+ * released. If a renewal fails, the lease is marked as lost.
+ *
+ * @author Marko Voß
+ *
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@EqualsAndHashCode(onlyExplicitlyIncluded = true)
+public class Lease {
+
+  @EqualsAndHashCode.Include
+  private final String taskName;
+
+  @EqualsAndHashCode.Include
+  private final String owner;
+
+  /**
+   * The fencing token of this lease. Writers must check that this token is still the current token
+   * of the task before performing changes.
+   */
+  @EqualsAndHashCode.Include
+  private final long token;
+
+  private volatile Instant expiresAt;
+
+  private volatile boolean lost;
+}
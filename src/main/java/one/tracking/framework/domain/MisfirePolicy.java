@@ -0,0 +1,24 @@
+/**
+ *
+ */
+package one.tracking.framework.domain;
+
+/**
+ * Defines how a scheduled run is handled, which has been missed by more than the configured grace
+ * period, e.g. because no node was running at its fire time.
+ *
+ * @author Marko Voß
+ *
+ */
+public enum MisfirePolicy {
+
+  /**
+   * Execute the missed run once and continue with the next regular fire time.
+   */
+  FIRE_ONCE,
+
+  /**
+   * Skip the missed run and continue with the next regular fire time.
+   */
+  SKIP;
+}
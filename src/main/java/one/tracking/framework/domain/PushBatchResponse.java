@@ -0,0 +1,34 @@
+/**
+ *
+ */
+package one.tracking.framework.domain;
+
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Transport independent outcome of sending a push notification to a batch of device tokens. The
+ * order of the responses matches the order of the device tokens of the request.
+ *
+ * @author Marko Voß
+ *
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PushBatchResponse {
+
+  private List<PushSendResponse> responses;
+
+  public int getSuccessCount() {
+    return this.responses == null ? 0 : (int) this.responses.stream().filter(PushSendResponse::isSuccessful).count();
+  }
+
+  public int getFailureCount() {
+    return this.responses == null ? 0 : this.responses.size() - getSuccessCount();
+  }
+}
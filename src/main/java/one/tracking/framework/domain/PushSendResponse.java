@@ -0,0 +1,28 @@
+/**
+ *
+ */
+package one.tracking.framework.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Transport independent outcome of sending a push notification to a single device token.
+ *
+ * @author Marko Voß
+ *
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PushSendResponse {
+
+  private boolean successful;
+
+  private String messageId;
+
+  private String errorCode;
+}
@@ -4,7 +4,6 @@
 package one.tracking.framework.domain;
 
 import java.util.List;
-import com.google.firebase.messaging.BatchResponse;
 import lombok.Builder;
 import lombok.Data;
 import one.tracking.framework.entity.DeviceToken;
@@ -17,7 +16,7 @@ import one.tracking.framework.entity.DeviceToken;
 @Builder
 public class ReminderBatchResult {
 
-  private List<BatchResponse> batchResponses;
+  private List<PushBatchResponse> batchResponses;
 
   private List<DeviceToken> invalidDeviceTokens;
 
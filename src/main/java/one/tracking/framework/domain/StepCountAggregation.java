@@ -0,0 +1,42 @@
+/**
+ *
+ */
+package one.tracking.framework.domain;
+
+import java.util.Arrays;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * The aggregation of the step counts within the data export.
+ *
+ * @author Marko Voß
+ *
+ */
+@Getter
+@AllArgsConstructor
+public enum StepCountAggregation {
+
+  /**
+   * One row per step count as reported by the devices.
+   */
+  RAW("raw"),
+
+  /**
+   * One row per user and day as computed by the step count rollup.
+   */
+  DAILY("daily");
+
+  /**
+   * The value of the request parameter <code>stepcounts</code>.
+   */
+  private final String value;
+
+  public static StepCountAggregation fromValue(final String value) {
+
+    return Arrays.stream(values())
+        .filter(a -> a.value.equalsIgnoreCase(value))
+        .findFirst()
+        .orElseThrow(() -> new IllegalArgumentException("Unsupported step count aggregation: " + value));
+  }
+}
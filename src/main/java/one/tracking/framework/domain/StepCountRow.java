@@ -0,0 +1,43 @@
+/**
+ *
+ */
+package one.tracking.framework.domain;
+
+import java.time.Instant;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A single step count as exported by the data export. Contains only the exported columns, so that
+ * no entities need to be loaded.
+ *
+ * @author Marko Voß
+ *
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StepCountRow {
+
+  private Long id;
+
+  private String userId;
+
+  private Instant startTime;
+  private Instant endTime;
+
+  private Integer stepCount;
+
+  private Instant createdAt;
+  private Instant updatedAt;
+
+  /**
+   * @return the time of the last modification
+   */
+  public Instant getTimestamp() {
+    return this.updatedAt == null ? this.createdAt : this.updatedAt;
+  }
+}
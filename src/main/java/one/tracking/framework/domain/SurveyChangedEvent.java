@@ -0,0 +1,20 @@
+/**
+ *
+ */
+package one.tracking.framework.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Published whenever a survey got released, updated or deleted.
+ *
+ * @author Marko Voß
+ *
+ */
+@Data
+@AllArgsConstructor
+public class SurveyChangedEvent {
+
+  private final String nameId;
+}
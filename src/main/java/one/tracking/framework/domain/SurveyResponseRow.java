@@ -0,0 +1,75 @@
+/**
+ *
+ */
+package one.tracking.framework.domain;
+
+import java.time.Instant;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A single survey response as exported by the data export.
+ *
+ * @author Marko Voß
+ *
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SurveyResponseRow {
+
+  private Long id;
+
+  private String nameId;
+
+  private Long instanceId;
+
+  private Instant startTime;
+  private Instant endTime;
+
+  private String userId;
+
+  private Long questionId;
+
+  private Integer order;
+
+  private String questionType;
+
+  private String question;
+
+  private String checkListEntry;
+
+  private Boolean boolAnswer;
+  private String textAnswer;
+  private Integer numberAnswer;
+  private String predefinedAnswer;
+
+  private Integer version;
+
+  private Boolean skipped;
+  private Boolean valid;
+
+  private Instant createdAt;
+
+  /**
+   * @return the answer of this response independent of the question type or <code>null</code> if
+   *         skipped
+   */
+  public String getAnswer() {
+
+    return this.boolAnswer != null ? this.boolAnswer.toString()
+        : this.textAnswer != null ? this.textAnswer
+            : this.numberAnswer != null ? this.numberAnswer.toString()
+                : this.predefinedAnswer;
+  }
+
+  /**
+   * @return the question text including the checklist entry, if this response belongs to a checklist
+   */
+  public String getQuestionText() {
+    return this.checkListEntry == null ? this.question : this.question + ": " + this.checkListEntry;
+  }
+}
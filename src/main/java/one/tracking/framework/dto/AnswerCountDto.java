@@ -0,0 +1,30 @@
+/**
+ *
+ */
+package one.tracking.framework.dto;
+
+import io.swagger.annotations.ApiModel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * @author Marko Voß
+ *
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@ApiModel
+public class AnswerCountDto {
+
+  private Long questionId;
+
+  private String question;
+
+  private String answer;
+
+  private long count;
+}
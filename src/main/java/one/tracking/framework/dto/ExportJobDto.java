@@ -0,0 +1,47 @@
+/**
+ *
+ */
+package one.tracking.framework.dto;
+
+import java.time.Instant;
+import io.swagger.annotations.ApiModel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import one.tracking.framework.domain.ExportFormat;
+import one.tracking.framework.domain.ExportLayout;
+import one.tracking.framework.domain.ExportJobStatus;
+
+/**
+ * @author Marko Voß
+ *
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@ApiModel
+public class ExportJobDto {
+
+  private String id;
+
+  private ExportJobStatus status;
+
+  private ExportFormat format;
+
+  private ExportLayout layout;
+
+  private Instant startTime;
+  private Instant endTime;
+
+  private long rowsWritten;
+
+  private Instant createdAt;
+  private Instant completedAt;
+
+  /**
+   * The time the export file will be deleted.
+   */
+  private Instant expiresAt;
+}
@@ -0,0 +1,61 @@
+/**
+ *
+ */
+package one.tracking.framework.dto;
+
+import java.time.Instant;
+import java.util.List;
+import io.swagger.annotations.ApiModel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Aggregates of the responses to a single survey instance.
+ *
+ * @author Marko Voß
+ *
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@ApiModel
+public class InstanceReportDto {
+
+  private String nameId;
+
+  private Integer version;
+
+  private Long instanceId;
+
+  private Instant startTime;
+  private Instant endTime;
+
+  /**
+   * The amount of users, who responded.
+   */
+  private long participants;
+
+  private long responses;
+
+  private long skipped;
+
+  /**
+   * The share of responses, which have not been skipped, i.e. <code>(responses - skipped) /
+   * responses</code>. This is not the share of participants, who answered every question of the
+   * instance.
+   */
+  private double answeredRate;
+
+  /**
+   * The amount of each answer of boolean, checklist and choice questions.
+   */
+  private List<AnswerCountDto> answerCounts;
+
+  /**
+   * The statistics of range questions.
+   */
+  private List<RangeStatisticsDto> rangeStatistics;
+}
@@ -0,0 +1,34 @@
+/**
+ *
+ */
+package one.tracking.framework.dto;
+
+import io.swagger.annotations.ApiModel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * @author Marko Voß
+ *
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@ApiModel
+public class RangeStatisticsDto {
+
+  private Long questionId;
+
+  private String question;
+
+  private long count;
+
+  private Double mean;
+
+  private Integer min;
+
+  private Integer max;
+}
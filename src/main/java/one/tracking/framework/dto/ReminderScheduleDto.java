@@ -0,0 +1,27 @@
+/**
+ *
+ */
+package one.tracking.framework.dto;
+
+import java.time.Instant;
+import io.swagger.annotations.ApiModel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * @author Marko Voß
+ *
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@ApiModel
+public class ReminderScheduleDto {
+
+  private String nameId;
+
+  private Instant nextFireAt;
+}
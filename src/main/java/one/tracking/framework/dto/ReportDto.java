@@ -0,0 +1,31 @@
+/**
+ *
+ */
+package one.tracking.framework.dto;
+
+import java.time.Instant;
+import java.util.List;
+import io.swagger.annotations.ApiModel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Aggregates of the survey responses created within an interval.
+ *
+ * @author Marko Voß
+ *
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@ApiModel
+public class ReportDto {
+
+  private Instant startTime;
+  private Instant endTime;
+
+  private List<InstanceReportDto> instances;
+}
@@ -0,0 +1,81 @@
+/**
+ *
+ */
+package one.tracking.framework.entity;
+
+import java.time.Instant;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import one.tracking.framework.domain.ExportFormat;
+import one.tracking.framework.domain.ExportJobStatus;
+import one.tracking.framework.domain.ExportLayout;
+
+/**
+ * State of an asynchronous export, which writes its result into the shared job directory. Jobs are
+ * visible to the user, who started them, only.
+ *
+ * @author Marko Voß
+ *
+ */
+@Data
+@Builder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(indexes = @Index(name = "IDX_EXPORT_JOB_EXPIRES_AT", columnList = "expires_at"))
+public class ExportJob {
+
+  @Id
+  @Column(length = 36)
+  private String id;
+
+  @Column(nullable = false, length = 16)
+  @Enumerated(EnumType.STRING)
+  private ExportFormat format;
+
+  @Column(nullable = false, length = 16)
+  @Enumerated(EnumType.STRING)
+  private ExportLayout layout;
+
+  @Column(nullable = false)
+  private Instant startTime;
+
+  @Column(nullable = false)
+  private Instant endTime;
+
+  @Column(nullable = false, length = 16)
+  @Enumerated(EnumType.STRING)
+  private ExportJobStatus status;
+
+  @Column(nullable = false)
+  private long rowsWritten;
+
+  /**
+   * The identifier of the user, who started the job.
+   */
+  @Column(nullable = false)
+  private String createdBy;
+
+  @Column(nullable = false)
+  private Instant createdAt;
+
+  /**
+   * Updated periodically by the node performing the job. Jobs in progress not being updated for
+   * <code>app.timeout.taskLock</code> are considered failed.
+   */
+  @Column(nullable = false)
+  private Instant updatedAt;
+
+  private Instant completedAt;
+
+  private Instant expiresAt;
+}
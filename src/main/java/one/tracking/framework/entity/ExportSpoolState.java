@@ -0,0 +1,40 @@
+/**
+ *
+ */
+package one.tracking.framework.entity;
+
+import java.time.Instant;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * The last file produced by a recurring export.
+ *
+ * @author Marko Voß
+ *
+ */
+@Data
+@Builder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+public class ExportSpoolState {
+
+  @Id
+  @Column(length = 191)
+  private String name;
+
+  /**
+   * The end of the window exported into the last file.
+   */
+  @Column(nullable = false)
+  private Instant endTime;
+
+  @Column(nullable = false)
+  private Instant updatedAt;
+}
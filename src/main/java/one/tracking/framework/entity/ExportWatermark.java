@@ -0,0 +1,50 @@
+/**
+ *
+ */
+package one.tracking.framework.entity;
+
+import java.time.Instant;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * The position of the last rows exported incrementally to a consumer. Positions are
+ * <code>(createdAt, id)</code> keys in export order. A missing position means that no rows of the
+ * dataset have been exported yet.
+ *
+ * @author Marko Voß
+ *
+ */
+@Data
+@Builder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+public class ExportWatermark {
+
+  @Id
+  @Column(length = 191)
+  private String consumer;
+
+  private Instant surveyResponseCreatedAt;
+
+  private Long surveyResponseId;
+
+  private Instant stepCountCreatedAt;
+
+  private Long stepCountId;
+
+  /**
+   * Increased on each advance, so that concurrent exports of the same consumer can be detected.
+   */
+  @Column(nullable = false)
+  private long revision;
+
+  @Column(nullable = false)
+  private Instant updatedAt;
+}
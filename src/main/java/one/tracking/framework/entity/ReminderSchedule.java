@@ -0,0 +1,62 @@
+/**
+ *
+ */
+package one.tracking.framework.entity;
+
+import java.time.Instant;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import one.tracking.framework.entity.meta.IntervalType;
+import one.tracking.framework.entity.meta.ReminderType;
+
+/**
+ * The next fire time of the reminder task of a survey. Contains a copy of the interval and reminder
+ * settings of the current release, so that the next fire time can be computed without loading the
+ * survey.
+ *
+ * @author Marko Voß
+ *
+ */
+@Data
+@Builder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(indexes = @Index(name = "IDX_REMINDER_SCHEDULE_NEXT_FIRE_AT", columnList = "next_fire_at"))
+public class ReminderSchedule {
+
+  @Id
+  @Column(length = 191)
+  private String nameId;
+
+  @Column(nullable = false)
+  private Instant intervalStart;
+
+  @Column(nullable = false, length = 16)
+  @Enumerated(EnumType.STRING)
+  private IntervalType intervalType;
+
+  @Column(nullable = false)
+  private Integer intervalValue;
+
+  @Column(nullable = false, length = 16)
+  @Enumerated(EnumType.STRING)
+  private ReminderType reminderType;
+
+  @Column(nullable = false)
+  private Integer reminderValue;
+
+  @Column(nullable = false)
+  private Instant nextFireAt;
+
+  private Instant lastFireAt;
+}
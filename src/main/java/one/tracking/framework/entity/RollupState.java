@@ -0,0 +1,37 @@
+/**
+ *
+ */
+package one.tracking.framework.entity;
+
+import java.time.Instant;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * The progress of an incremental rollup.
+ *
+ * @author Marko Voß
+ *
+ */
+@Data
+@Builder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+public class RollupState {
+
+  @Id
+  @Column(length = 191)
+  private String name;
+
+  /**
+   * Source rows changed before this time have been rolled up.
+   */
+  @Column(nullable = false)
+  private Instant processedUntil;
+}
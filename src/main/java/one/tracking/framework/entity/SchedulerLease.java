@@ -0,0 +1,50 @@
+/**
+ *
+ */
+package one.tracking.framework.entity;
+
+import java.time.Instant;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Lease of a scheduled task. The row of a task is kept after releasing the lease, so that the
+ * fencing token increases monotonically with every acquisition.
+ *
+ * @author Marko Voß
+ *
+ */
+@Data
+@Builder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+public class SchedulerLease {
+
+  @Id
+  @Column(length = 191)
+  private String taskName;
+
+  /**
+   * The fencing token of the current lease. Increased on each acquisition.
+   */
+  @Column(nullable = false)
+  private long token;
+
+  /**
+   * The identifier of the node holding the lease or <code>null</code> if released.
+   */
+  @Column(length = 64)
+  private String owner;
+
+  @Column(nullable = false)
+  private Instant acquiredAt;
+
+  @Column(nullable = false)
+  private Instant expiresAt;
+}
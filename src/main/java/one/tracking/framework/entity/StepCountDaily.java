@@ -0,0 +1,48 @@
+/**
+ *
+ */
+package one.tracking.framework.entity;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.IdClass;
+import javax.persistence.Index;
+import javax.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * The total step count of a user per day (UTC). Step counts are assigned to the day of their start
+ * time. Maintained by the step count rollup.
+ *
+ * @author Marko Voß
+ *
+ */
+@Data
+@Builder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@IdClass(StepCountDailyId.class)
+@Table(indexes = @Index(name = "IDX_STEP_COUNT_DAILY_DAY", columnList = "day_utc"))
+public class StepCountDaily {
+
+  @Id
+  @Column(length = 191)
+  private String userId;
+
+  @Id
+  @Column(name = "day_utc")
+  private LocalDate day;
+
+  @Column(nullable = false)
+  private long stepCount;
+
+  @Column(nullable = false)
+  private Instant updatedAt;
+}
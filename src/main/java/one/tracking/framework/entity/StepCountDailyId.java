@@ -0,0 +1,28 @@
+/**
+ *
+ */
+package one.tracking.framework.entity;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * The composite key of {@link StepCountDaily}.
+ *
+ * @author Marko Voß
+ *
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StepCountDailyId implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  private String userId;
+
+  private LocalDate day;
+}
@@ -0,0 +1,20 @@
+/**
+ *
+ */
+package one.tracking.framework.exception;
+
+/**
+ * Thrown if a scheduler lease expired or got taken over by another node while its task is still
+ * running.
+ *
+ * @author Marko Voß
+ *
+ */
+public class LeaseLostException extends RuntimeException {
+
+  private static final long serialVersionUID = 6027394827650327316L;
+
+  public LeaseLostException(final String message) {
+    super(message);
+  }
+}
@@ -0,0 +1,372 @@
+/**
+ *
+ */
+package one.tracking.framework.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import javax.persistence.TypedQuery;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import one.tracking.framework.component.AsyncExecutor;
+import one.tracking.framework.component.AuthenticationSupport;
+import one.tracking.framework.component.ExportAdmissionComponent;
+import one.tracking.framework.component.SurveyDataExportComponent;
+import one.tracking.framework.component.export.ExportFiles;
+import one.tracking.framework.config.ExportProperties;
+import one.tracking.framework.config.TimeoutProperties;
+import one.tracking.framework.domain.ExportJobStatus;
+import one.tracking.framework.domain.ExportOptions;
+import one.tracking.framework.dto.ExportJobDto;
+import one.tracking.framework.entity.ExportJob;
+import one.tracking.framework.exception.ConflictException;
+
+/**
+ * Runs data exports asynchronously on the export executor. The result is written into the shared job
+ * directory and deleted <code>app.timeout.upload</code> after the job finished.<br/>
+ * <br/>
+ * Jobs are stored in the database, so that any node can report their state and serve their files.
+ * The node performing a job updates its progress periodically. Jobs in progress, which have not been
+ * updated for <code>app.timeout.taskLock</code>, e.g. because their node stopped, are considered
+ * failed. Jobs are visible to the user, who started them, only.
+ *
+ * @author Marko Voß
+ *
+ */
+@Service
+public class ExportJobService {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ExportJobService.class);
+
+  private static final String SUFFIX_PARTIAL = ".part";
+
+  @Autowired
+  private SurveyDataExportComponent exportComponent;
+
+  @Autowired
+  private AsyncExecutor asyncExecutor;
+
+  @Autowired
+  private ExportAdmissionComponent exportAdmission;
+
+  @Autowired
+  private AuthenticationSupport authenticationSupport;
+
+  @Autowired
+  private TaskScheduler taskScheduler;
+
+  @Autowired
+  private TimeoutProperties timeoutConfig;
+
+  @Autowired
+  private ExportProperties exportConfig;
+
+  @Autowired
+  private TransactionTemplate transactionTemplate;
+
+  @Autowired
+  private EntityManager entityManager;
+
+  /**
+   * The rows written by the jobs performed by this node.
+   */
+  private final Map<String, AtomicLong> running = new ConcurrentHashMap<>();
+
+  private Path directory;
+
+  private ScheduledFuture<?> maintenance;
+
+  @PostConstruct
+  public void init() throws IOException {
+
+    this.directory = ExportFiles.createPrivateDirectory(Paths.get(this.exportConfig.getJob().getDirectory()));
+
+    // Updates the progress often enough to not let running jobs appear stale
+    this.maintenance = this.taskScheduler.scheduleWithFixedDelay(this::maintain,
+        this.timeoutConfig.getTaskLock().dividedBy(3));
+  }
+
+  @PreDestroy
+  public void destroy() {
+
+    if (this.maintenance != null)
+      this.maintenance.cancel(false);
+  }
+
+  public ExportJobDto startJob(final Instant startTime, final Instant endTime, final ExportOptions options)
+      throws IOException {
+
+    this.exportComponent.validate(options);
+
+    // Jobs may use the slots reserved for them, so streamed exports cannot starve them
+    this.exportAdmission.acquire(true);
+
+    final Instant now = Instant.now();
+
+    final ExportJob job = ExportJob.builder()
+        .id(UUID.randomUUID().toString())
+        .format(options.getFormat())
+        .layout(options.getLayout())
+        .startTime(startTime)
+        .endTime(endTime)
+        .status(ExportJobStatus.IN_PROGRESS)
+        .createdBy(this.authenticationSupport.getUserIdentifier())
+        .createdAt(now)
+        .updatedAt(now)
+        .build();
+
+    try {
+      this.transactionTemplate.executeWithoutResult(status -> this.entityManager.persist(job));
+
+    } catch (final RuntimeException e) {
+      this.exportAdmission.release();
+      throw e;
+    }
+
+    final AtomicLong rowsWritten = new AtomicLong();
+    this.running.put(job.getId(), rowsWritten);
+
+    try {
+      this.asyncExecutor.executeExport(() -> {
+        try {
+          performJob(job, options, rowsWritten);
+          return null;
+        } finally {
+          this.exportAdmission.release();
+        }
+      });
+
+    } catch (final TaskRejectedException e) {
+      this.exportAdmission.release();
+      this.running.remove(job.getId());
+      delete(job.getId());
+      throw e;
+    }
+
+    return toDto(job);
+  }
+
+  /*
+   * The file is written to a temporary name first, so that other nodes never serve partial files
+   */
+  private void performJob(final ExportJob job, final ExportOptions options, final AtomicLong rowsWritten) {
+
+    LOG.debug("Export job {} START", job.getId());
+
+    final Path file = getFile(job);
+    final Path partial = file.resolveSibling(file.getFileName() + SUFFIX_PARTIAL);
+
+    ExportJobStatus status;
+
+    try {
+      try (final OutputStream outStream = Files.newOutputStream(partial)) {
+        this.exportComponent.export(job.getStartTime(), job.getEndTime(), options, outStream, rowsWritten);
+      }
+
+      Files.move(partial, file, StandardCopyOption.ATOMIC_MOVE);
+
+      status = ExportJobStatus.COMPLETED;
+      LOG.debug("Export job {} DONE [rows: {}]", job.getId(), rowsWritten.get());
+
+    } catch (final Exception e) {
+      status = ExportJobStatus.FAILED;
+      LOG.error("Export job " + job.getId() + " FAILED", e);
+
+    } finally {
+      deleteFile(partial);
+      this.running.remove(job.getId());
+    }
+
+    if (!complete(job.getId(), status, rowsWritten.get())) {
+      // The job has been considered stale and failed meanwhile
+      LOG.warn("Export job {} has been failed by another node.", job.getId());
+      deleteFile(file);
+    }
+  }
+
+  private boolean complete(final String jobId, final ExportJobStatus status, final long rowsWritten) {
+
+    final Instant now = Instant.now();
+
+    final Query update = this.entityManager.createQuery(
+        "UPDATE ExportJob j SET j.status = ?1, j.rowsWritten = ?2, j.completedAt = ?3, j.expiresAt = ?4,"
+            + " j.updatedAt = ?3 WHERE j.id = ?5 AND j.status = ?6");
+    update.setParameter(1, status);
+    update.setParameter(2, rowsWritten);
+    update.setParameter(3, now);
+    update.setParameter(4, now.plus(this.timeoutConfig.getUpload()));
+    update.setParameter(5, jobId);
+    update.setParameter(6, ExportJobStatus.IN_PROGRESS);
+
+    return this.transactionTemplate.execute(s -> update.executeUpdate()) > 0;
+  }
+
+  /*
+   * Performed by every node: Updates the progress of the own jobs, fails stale jobs of any node and
+   * deletes expired jobs including their files
+   */
+  private void maintain() {
+
+    final Instant now = Instant.now();
+
+    this.running.forEach((jobId, rowsWritten) -> {
+
+      final Query update = this.entityManager.createQuery(
+          "UPDATE ExportJob j SET j.rowsWritten = ?1, j.updatedAt = ?2 WHERE j.id = ?3 AND j.status = ?4");
+      update.setParameter(1, rowsWritten.get());
+      update.setParameter(2, now);
+      update.setParameter(3, jobId);
+      update.setParameter(4, ExportJobStatus.IN_PROGRESS);
+
+      this.transactionTemplate.execute(status -> update.executeUpdate());
+    });
+
+    final Query failStale = this.entityManager.createQuery(
+        "UPDATE ExportJob j SET j.status = ?1, j.completedAt = ?2, j.expiresAt = ?3, j.updatedAt = ?2"
+            + " WHERE j.status = ?4 AND j.updatedAt < ?5");
+    failStale.setParameter(1, ExportJobStatus.FAILED);
+    failStale.setParameter(2, now);
+    failStale.setParameter(3, now.plus(this.timeoutConfig.getUpload()));
+    failStale.setParameter(4, ExportJobStatus.IN_PROGRESS);
+    failStale.setParameter(5, now.minus(this.timeoutConfig.getTaskLock()));
+
+    final int failed = this.transactionTemplate.execute(status -> failStale.executeUpdate());
+
+    if (failed > 0)
+      LOG.warn("Failed {} stale export jobs.", failed);
+
+    final TypedQuery<ExportJob> expiredQuery = this.entityManager.createQuery(
+        "SELECT j FROM ExportJob j WHERE j.expiresAt < ?1", ExportJob.class);
+    expiredQuery.setParameter(1, now);
+
+    final List<ExportJob> expired = this.transactionTemplate.execute(status -> expiredQuery.getResultList());
+
+    for (final ExportJob job : expired) {
+
+      LOG.debug("Export job {} EXPIRED", job.getId());
+
+      final Path file = getFile(job);
+      deleteFile(file);
+      deleteFile(file.resolveSibling(file.getFileName() + SUFFIX_PARTIAL));
+      delete(job.getId());
+    }
+  }
+
+  private void delete(final String jobId) {
+
+    final Query delete = this.entityManager.createQuery("DELETE FROM ExportJob j WHERE j.id = ?1");
+    delete.setParameter(1, jobId);
+
+    this.transactionTemplate.execute(status -> delete.executeUpdate());
+  }
+
+  private Path getFile(final ExportJob job) {
+    return this.directory.resolve(job.getId() + "." + job.getFormat().getFileExtension());
+  }
+
+  private static void deleteFile(final Path file) {
+
+    try {
+      Files.deleteIfExists(file);
+    } catch (final IOException e) {
+      LOG.warn("Unable to delete export file.", e);
+    }
+  }
+
+  public ExportJobDto getJob(final String jobId) {
+    return toDto(getExportJob(jobId));
+  }
+
+  /**
+   * Writes the file of the specified job to the specified stream.
+   *
+   * @param jobId
+   * @param outStream
+   * @return the job
+   * @throws IOException
+   */
+  public ExportJobDto download(final String jobId, final OutputStream outStream) throws IOException {
+
+    final ExportJob job = getCompletedExportJob(jobId);
+    final Path file = getFile(job);
+
+    if (!Files.exists(file))
+      throw new NoSuchElementException("File of export job " + jobId + " is not available.");
+
+    Files.copy(file, outStream);
+
+    return toDto(job);
+  }
+
+  /**
+   * @param jobId
+   * @return the job, if its file is available for download
+   */
+  public ExportJobDto getCompletedJob(final String jobId) {
+    return toDto(getCompletedExportJob(jobId));
+  }
+
+  private ExportJob getCompletedExportJob(final String jobId) {
+
+    final ExportJob job = getExportJob(jobId);
+
+    if (job.getStatus() != ExportJobStatus.COMPLETED)
+      throw new ConflictException("Export job " + jobId + " is not completed. Status: " + job.getStatus());
+
+    return job;
+  }
+
+  /*
+   * Jobs of other users are reported as missing, so that their existence is not disclosed
+   */
+  private ExportJob getExportJob(final String jobId) {
+
+    final ExportJob job = this.transactionTemplate.execute(status -> this.entityManager.find(ExportJob.class, jobId));
+
+    if (job == null
+        || !job.getCreatedBy().equals(this.authenticationSupport.getUserIdentifier())
+        || job.getExpiresAt() != null && job.getExpiresAt().isBefore(Instant.now()))
+      throw new NoSuchElementException("No export job found for id: " + jobId);
+
+    return job;
+  }
+
+  private ExportJobDto toDto(final ExportJob job) {
+
+    final AtomicLong rowsWritten = this.running.get(job.getId());
+
+    return ExportJobDto.builder()
+        .id(job.getId())
+        .status(job.getStatus())
+        .format(job.getFormat())
+        .layout(job.getLayout())
+        .startTime(job.getStartTime())
+        .endTime(job.getEndTime())
+        .rowsWritten(rowsWritten == null ? job.getRowsWritten() : rowsWritten.get())
+        .createdAt(job.getCreatedAt())
+        .completedAt(job.getCompletedAt())
+        .expiresAt(job.getExpiresAt())
+        .build();
+  }
+}
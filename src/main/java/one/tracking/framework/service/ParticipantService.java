@@ -28,6 +28,7 @@ import org.apache.poi.ss.usermodel.Workbook;
 import org.apache.poi.ss.usermodel.WorkbookFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.util.Assert;
@@ -116,23 +117,33 @@ public class ParticipantService {
      */
     final String userId = this.authenticationSupport.getUserIdentifier();
 
-    this.asyncExecutor.execute(new AsyncTask<Void>() {
+    try {
+      this.asyncExecutor.executeImport(new AsyncTask<Void>() {
 
-      @Override
-      public Void call() throws Exception {
-        performParticipantsImportInternal(userId, importId, tempFile, selectedHeaderIndex);
-        return null;
-      }
+        @Override
+        public Void call() throws Exception {
+          performParticipantsImportInternal(userId, importId, tempFile, selectedHeaderIndex);
+          return null;
+        }
 
-      @Override
-      public void after() throws Exception {
-        try {
-          Files.deleteIfExists(tempFile);
-        } catch (final IOException e) {
-          log.warn("Unable to delete temp file.", e);
+        @Override
+        public void after() throws Exception {
+          try {
+            Files.deleteIfExists(tempFile);
+          } catch (final IOException e) {
+            log.warn("Unable to delete temp file.", e);
+          }
         }
-      }
-    });
+      });
+
+    } catch (final TaskRejectedException e) {
+      Files.deleteIfExists(tempFile);
+      this.transactionTemplate.executeWithoutResult(status -> {
+        participantImport.setStatus(ParticipantImportStatus.CANCELLED);
+        this.entityManager.merge(participantImport);
+      });
+      throw e;
+    }
 
     return importId;
   }
@@ -373,7 +384,7 @@ public class ParticipantService {
 
     try {
       emailSentSuccessfully = sendRegistrationEmail(email, verificationToken, confirmationToken);
-    } catch (final IOException e) {
+    } catch (final IOException | TaskRejectedException e) {
       log.warn("Unable to send email.", e);
     }
 
@@ -4,6 +4,9 @@
 package one.tracking.framework.service;
 
 import java.io.IOException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import javax.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -16,6 +19,8 @@ import com.sendgrid.SendGrid;
 import com.sendgrid.helpers.mail.Mail;
 import com.sendgrid.helpers.mail.objects.Content;
 import com.sendgrid.helpers.mail.objects.Email;
+import one.tracking.framework.component.ThreadingComponent;
+import one.tracking.framework.config.ExecutorProperties;
 
 /**
  * @author Marko Voß
@@ -35,6 +40,29 @@ public class SendGridService {
   @Autowired
   private SendGrid sendGridClient;
 
+  @Autowired
+  private ThreadingComponent threadingComponent;
+
+  @Autowired
+  private ExecutorProperties executorConfig;
+
+  /*
+   * Emails are sent by the calling thread, but at most app.executor.email.maxSize at a time. Further
+   * emails wait for a permit, unless more than app.executor.email.queueCapacity are waiting already.
+   */
+  private Semaphore sendPermits;
+
+  private Semaphore pendingPermits;
+
+  @PostConstruct
+  public void init() {
+
+    final ExecutorProperties.Pool config = this.executorConfig.getEmail();
+
+    this.sendPermits = new Semaphore(config.getMaxSize());
+    this.pendingPermits = new Semaphore(config.getMaxSize() + config.getQueueCapacity());
+  }
+
   public boolean sendText(final String to, final String subject, final String body) throws IOException {
     return sendEmailType("text/plain", to, subject, body);
   }
@@ -66,7 +94,27 @@ public class SendGridService {
     request.setMethod(Method.POST);
     request.setEndpoint("mail/send");
     request.setBody(mail.build());
-    return this.sendGridClient.api(request);
+
+    // Results in HTTP 503
+    if (!this.pendingPermits.tryAcquire())
+      throw new RejectedExecutionException("Too many emails are pending. Please try again later.");
+
+    try {
+      this.sendPermits.acquire();
+
+      try {
+        return this.threadingComponent.callWithHttpPermit(() -> this.sendGridClient.api(request));
+      } finally {
+        this.sendPermits.release();
+      }
+
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Sending email has been interrupted.", e);
+
+    } finally {
+      this.pendingPermits.release();
+    }
   }
 
 }
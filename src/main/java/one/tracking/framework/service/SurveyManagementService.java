@@ -4,17 +4,40 @@
 package one.tracking.framework.service;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import one.tracking.framework.component.ExportAdmissionComponent;
+import one.tracking.framework.component.ExportCacheComponent;
+import one.tracking.framework.component.ExportWatermarkComponent;
+import one.tracking.framework.component.LockerComponent;
 import one.tracking.framework.component.SurveyDataExportComponent;
+import one.tracking.framework.component.SurveyReportComponent;
+import one.tracking.framework.component.export.TeeOutputStream;
+import one.tracking.framework.config.ExportProperties;
+import one.tracking.framework.config.ReminderConfig;
+import one.tracking.framework.domain.ExportCursor;
+import one.tracking.framework.domain.ExportFormat;
+import one.tracking.framework.domain.ExportOptions;
+import one.tracking.framework.domain.ExportPosition;
+import one.tracking.framework.domain.Lease;
 import one.tracking.framework.domain.SearchResult;
+import one.tracking.framework.domain.SurveyChangedEvent;
+import one.tracking.framework.dto.ReminderScheduleDto;
+import one.tracking.framework.dto.ReportDto;
 import one.tracking.framework.dto.meta.question.BooleanQuestionDto;
 import one.tracking.framework.dto.meta.question.ChecklistEntryDto;
 import one.tracking.framework.dto.meta.question.ChecklistQuestionDto;
@@ -22,6 +45,7 @@ import one.tracking.framework.dto.meta.question.ChoiceQuestionDto;
 import one.tracking.framework.dto.meta.question.QuestionDto;
 import one.tracking.framework.dto.meta.question.RangeQuestionDto;
 import one.tracking.framework.dto.meta.question.TextQuestionDto;
+import one.tracking.framework.entity.ExportWatermark;
 import one.tracking.framework.entity.meta.Answer;
 import one.tracking.framework.entity.meta.ReleaseStatusType;
 import one.tracking.framework.entity.meta.Survey;
@@ -52,6 +76,8 @@ import one.tracking.framework.repo.SurveyRepository;
 @Service
 public class SurveyManagementService {
 
+  private static final String TASK_INCREMENTAL_EXPORT_PREFIX = "EXPORT_INCREMENTAL_";
+
   @Autowired
   private SurveyRepository surveyRepository;
 
@@ -67,10 +93,218 @@ public class SurveyManagementService {
   @Autowired
   private SurveyDataExportComponent exportComponent;
 
-  public void exportData(final Instant startTime, final Instant endTime, final OutputStream outStream)
+  @Autowired
+  private ExportWatermarkComponent watermarkComponent;
+
+  @Autowired
+  private ExportCacheComponent exportCache;
+
+  @Autowired
+  private LockerComponent lockerComponent;
+
+  @Autowired
+  private ExportProperties exportConfig;
+
+  @Autowired
+  private SurveyReportComponent reportComponent;
+
+  @Autowired
+  private ExportAdmissionComponent exportAdmission;
+
+  @Autowired
+  private ReminderConfig reminderConfig;
+
+  @Autowired
+  private ApplicationEventPublisher eventPublisher;
+
+  /**
+   * Validates the specified options before starting an export.
+   *
+   * @param options
+   * @throws IllegalArgumentException if the options are not supported
+   */
+  public void validateExport(final ExportOptions options) {
+    this.exportComponent.validate(options);
+  }
+
+  /**
+   * Admits a streamed export to the export executor. Streamed exports cannot use the slots reserved for
+   * export jobs and recurring exports. The slot must be released by {@link #releaseExport()}.
+   *
+   * @return the position of the export within the queue of the export executor starting at 1 or 0, if
+   *         the export starts immediately
+   * @throws RejectedExecutionException if the export executor is saturated
+   */
+  public int admitExport() {
+    return this.exportAdmission.acquire(false);
+  }
+
+  public void releaseExport() {
+    this.exportAdmission.release();
+  }
+
+  /**
+   * Exports the specified interval on the calling thread, which is meant to be a thread of the export
+   * executor, e.g. the thread writing a streamed response body.
+   *
+   * @param startTime
+   * @param endTime
+   * @param options
+   * @param outStream
+   * @throws IOException
+   */
+  public void exportData(final Instant startTime, final Instant endTime, final ExportOptions options,
+      final OutputStream outStream) throws IOException {
+
+    this.exportComponent.validate(options);
+    this.exportComponent.export(startTime, endTime, options, outStream, new AtomicLong());
+  }
+
+  /**
+   * @param endTime
+   * @return <code>true</code> if exports of intervals ending at the specified time are cached, i.e.
+   *         {@link #getExportCacheKey(Instant, Instant, ExportOptions)} provides their key
+   */
+  public boolean isExportCacheable(final Instant endTime) {
+    return this.exportCache.isCacheable(endTime);
+  }
+
+  /**
+   * Queries the current version of the data of the specified export, which should be done by the
+   * export executor.
+   *
+   * @param startTime
+   * @param endTime
+   * @param options
+   * @return the cache key of the specified export including the current version of its data or
+   *         <code>null</code> if the export is not cacheable. The key may be used as weak entity tag,
+   *         as regenerated exports have the same content but may differ byte by byte.
+   */
+  public String getExportCacheKey(final Instant startTime, final Instant endTime, final ExportOptions options) {
+
+    if (!this.exportCache.isCacheable(endTime))
+      return null;
+
+    return ExportCacheComponent.getKey(startTime, endTime, options,
+        this.exportComponent.getDataVersion(startTime, endTime, options));
+  }
+
+  /**
+   * Exports the specified closed interval from the export cache. If not cached yet, the export gets
+   * streamed to the client and into the cache at the same time. The export is only cached, if it got
+   * completely written to the client.
+   *
+   * @param key the key as provided by {@link #getExportCacheKey(Instant, Instant, ExportOptions)}
+   * @param startTime
+   * @param endTime
+   * @param options
+   * @param outStream
+   * @throws IOException
+   */
+  public void exportDataCached(final String key, final Instant startTime, final Instant endTime,
+      final ExportOptions options, final OutputStream outStream) throws IOException {
+
+    final InputStream cached = this.exportCache.get(key);
+
+    if (cached != null) {
+      try (final InputStream inStream = cached) {
+        inStream.transferTo(outStream);
+      }
+      return;
+    }
+
+    final Path file = this.exportCache.createTempFile();
+
+    try {
+      final boolean complete;
+
+      try (final OutputStream fileStream = Files.newOutputStream(file);
+          final TeeOutputStream teeStream = new TeeOutputStream(outStream, fileStream)) {
+        exportData(startTime, endTime, options, teeStream);
+        complete = !teeStream.isSecondaryFailed();
+      }
+
+      if (complete)
+        this.exportCache.put(key, file);
+
+    } finally {
+      Files.deleteIfExists(file);
+    }
+  }
+
+  /**
+   * @param startTime
+   * @param endTime
+   * @return the aggregates of the survey responses created within the specified interval
+   */
+  public ReportDto getReport(final Instant startTime, final Instant endTime) {
+    return this.reportComponent.getReport(startTime, endTime);
+  }
+
+  /**
+   * Writes the aggregates of the survey responses created within the specified interval as workbook.
+   *
+   * @param startTime
+   * @param endTime
+   * @param outStream
+   * @throws IOException
+   */
+  public void writeReportXlsx(final Instant startTime, final Instant endTime, final OutputStream outStream)
       throws IOException {
 
-    this.exportComponent.export(startTime, endTime, outStream);
+    this.reportComponent.writeXlsx(this.reportComponent.getReport(startTime, endTime), outStream);
+  }
+
+  /**
+   * Exports all rows created since the last incremental export of the specified consumer on the
+   * calling thread. The watermark of the consumer is advanced after all rows have been written to the
+   * specified stream.<br/>
+   * <br/>
+   * Rows are exported once they are older than <code>app.export.incremental.commitLag</code>, so that
+   * rows of transactions committing late are not skipped by the watermark. Rows are tracked by their
+   * creation only, so updates of exported rows (e.g. of step counts) are not exported again.<br/>
+   * <br/>
+   * Only one incremental export per consumer is performed at a time. A concurrent export is rejected
+   * before anything has been written to the specified stream. If the lease of the export gets lost
+   * while writing, e.g. due to a stalled node, the watermark is not advanced and the rows will be
+   * exported again by the next export.
+   *
+   * @param consumer
+   * @param format
+   * @param outStream
+   * @throws IOException
+   * @throws ConflictException if another incremental export of the same consumer is running
+   */
+  public void exportIncremental(final String consumer, final ExportFormat format, final OutputStream outStream)
+      throws IOException {
+
+    final Lease lease = this.lockerComponent.acquire(TASK_INCREMENTAL_EXPORT_PREFIX + consumer);
+
+    if (lease == null)
+      throw new ConflictException("Another incremental export of consumer " + consumer + " is running.");
+
+    try {
+      final ExportWatermark watermark = this.watermarkComponent.getWatermark(consumer);
+
+      final ExportCursor after = ExportCursor.builder()
+          .surveyResponse(toPosition(watermark.getSurveyResponseCreatedAt(), watermark.getSurveyResponseId()))
+          .stepCount(toPosition(watermark.getStepCountCreatedAt(), watermark.getStepCountId()))
+          .build();
+
+      final Instant endTime = Instant.now().minus(this.exportConfig.getIncremental().getCommitLag());
+      final ExportCursor last = this.exportComponent.exportAfter(after, endTime, format, outStream);
+
+      outStream.flush();
+
+      this.watermarkComponent.advance(lease, watermark, last.getSurveyResponse(), last.getStepCount());
+
+    } finally {
+      this.lockerComponent.release(lease);
+    }
+  }
+
+  private static ExportPosition toPosition(final Instant createdAt, final Long id) {
+    return createdAt == null ? null : new ExportPosition(createdAt, id);
   }
 
   /**
@@ -92,13 +326,57 @@ public class SurveyManagementService {
 
     final List<Question> copiedQuestions = copyQuestions(currentRelease.getQuestions());
 
-    return this.surveyRepository.save(currentRelease.toBuilder()
+    final Survey survey = this.surveyRepository.save(currentRelease.toBuilder()
         .id(null)
         .createdAt(null)
         .version(currentRelease.getVersion() + 1)
         .releaseStatus(ReleaseStatusType.NEW)
         .questions(copiedQuestions)
         .build());
+
+    this.eventPublisher.publishEvent(new SurveyChangedEvent(nameId));
+
+    return survey;
+  }
+
+  /**
+   * Release the latest version of the specified survey.
+   *
+   * @param nameId
+   * @return
+   */
+  public Survey releaseSurvey(final String nameId) {
+
+    final List<Survey> surveys = this.surveyRepository.findByNameIdOrderByVersionDesc(nameId);
+
+    if (surveys == null || surveys.isEmpty())
+      throw new IllegalArgumentException("No survey found for nameId: " + nameId);
+
+    if (surveys.get(0).getReleaseStatus() == ReleaseStatusType.RELEASED)
+      throw new ConflictException("Current survey with nameId: " + nameId + " got released already.");
+
+    final Survey survey = this.surveyRepository.save(surveys.get(0).toBuilder()
+        .releaseStatus(ReleaseStatusType.RELEASED)
+        .build());
+
+    this.eventPublisher.publishEvent(new SurveyChangedEvent(nameId));
+
+    return survey;
+  }
+
+  /**
+   *
+   * @return the next fire times of all scheduled reminder tasks of this node
+   */
+  public List<ReminderScheduleDto> getReminderSchedule() {
+
+    return this.reminderConfig.getNextFireTimes().entrySet().stream()
+        .map(e -> ReminderScheduleDto.builder()
+            .nameId(e.getKey())
+            .nextFireAt(e.getValue())
+            .build())
+        .sorted(Comparator.comparing(ReminderScheduleDto::getNextFireAt))
+        .collect(Collectors.toList());
   }
 
   /**
@@ -8,6 +8,7 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.stream.Collectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -92,6 +93,20 @@ public class RestExceptionHandler extends ResponseEntityExceptionHandler {
     return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
   }
 
+  @ExceptionHandler(value = {RejectedExecutionException.class})
+  @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+  public ResponseEntity<String> serviceUnavailable(final Exception e) {
+
+    if (!LOG.isTraceEnabled())
+      LOG.debug(e.getMessage());
+    else
+      LOG.trace(e.getMessage(), e);
+
+    return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+        .header(HttpHeaders.RETRY_AFTER, "30")
+        .body("Too many pending requests. Please try again later.");
+  }
+
   @ExceptionHandler(value = {UnsupportedOperationException.class})
   @ResponseStatus(HttpStatus.NOT_IMPLEMENTED)
   public ResponseEntity<String> notImplemented(final Exception e) {
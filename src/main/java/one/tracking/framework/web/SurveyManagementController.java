@@ -8,13 +8,19 @@ import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
 import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
 import javax.validation.constraints.Min;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.security.core.Authentication;
 import org.springframework.util.Assert;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -23,10 +29,23 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.context.request.async.WebAsyncTask;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import one.tracking.framework.config.ServicesConfig;
+import one.tracking.framework.domain.ExportColumn;
+import one.tracking.framework.domain.ExportFormat;
+import one.tracking.framework.domain.ExportLayout;
+import one.tracking.framework.domain.ExportOptions;
+import one.tracking.framework.domain.StepCountAggregation;
+import one.tracking.framework.dto.ExportJobDto;
 import one.tracking.framework.dto.ParticipantInvitationDto;
+import one.tracking.framework.dto.ReminderScheduleDto;
+import one.tracking.framework.dto.ReportDto;
 import one.tracking.framework.dto.TokenResponseDto;
 import one.tracking.framework.dto.ParticipantImportFeedbackDto;
+import one.tracking.framework.service.ExportJobService;
 import one.tracking.framework.service.ParticipantService;
 import one.tracking.framework.service.SurveyManagementService;
 import springfox.documentation.annotations.ApiIgnore;
@@ -39,12 +58,25 @@ import springfox.documentation.annotations.ApiIgnore;
 @RequestMapping("/manage")
 public class SurveyManagementController {
 
+  /**
+   * The position of a streamed export within the queue of the export executor. 0 means the export
+   * starts immediately.
+   */
+  public static final String HEADER_QUEUE_POSITION = "X-Export-Queue-Position";
+
   @Autowired
   private ParticipantService participantService;
 
   @Autowired
   private SurveyManagementService surveyManagementService;
 
+  @Autowired
+  private ExportJobService exportJobService;
+
+  @Autowired
+  @Qualifier(ServicesConfig.EXPORT_EXECUTOR)
+  private ThreadPoolTaskExecutor exportExecutor;
+
   @RequestMapping(
       method = RequestMethod.GET,
       path = "/test")
@@ -122,33 +154,294 @@ public class SurveyManagementController {
   @RequestMapping(
       method = RequestMethod.GET,
       path = "/export")
-  public void export(
+  public WebAsyncTask<Void> export(
       @RequestParam("from")
       @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
       final LocalDateTime startTime,
       @RequestParam("to")
       @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
       final LocalDateTime endTime,
+      @RequestParam(name = "format", defaultValue = "xlsx")
+      final String formatValue,
+      @RequestParam(name = "layout", defaultValue = "long")
+      final String layoutValue,
+      @RequestParam(name = "stepcounts", defaultValue = "raw")
+      final String stepCountsValue,
+      @RequestParam(name = "surveys", required = false)
+      final Set<String> nameIds,
+      @RequestParam(name = "versions", required = false)
+      final Set<Integer> versions,
+      @RequestParam(name = "columns", required = false)
+      final List<String> columnValues,
+      @RequestParam(name = "slices", defaultValue = "1")
+      final int slices,
       @ApiIgnore
-      final HttpServletResponse response) throws IOException {
+      final WebRequest request,
+      @ApiIgnore
+      final HttpServletResponse response) {
 
     Assert.isTrue(startTime.isBefore(endTime), "'from' datetime value must be before 'to' datetime value.");
 
-    final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("YYYYMMdd_HHmmss")
+    final ExportOptions options = ExportOptions.builder()
+        .format(ExportFormat.fromValue(formatValue))
+        .layout(ExportLayout.fromValue(layoutValue))
+        .stepCounts(StepCountAggregation.fromValue(stepCountsValue))
+        .nameIds(nameIds)
+        .versions(versions)
+        .columns(toColumns(columnValues))
+        .slices(slices)
+        .build();
+
+    this.surveyManagementService.validateExport(options);
+
+    final ExportFormat format = options.getFormat();
+    final Instant from = startTime.toInstant(ZoneOffset.UTC);
+    final Instant to = endTime.toInstant(ZoneOffset.UTC);
+
+    final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss")
         // .withLocale(Locale.UK)
         .withZone(ZoneOffset.UTC);
 
-    final String filename = "export_" + formatter.format(Instant.now()) + ".xlsx";
+    final String filename = "export_" + formatter.format(Instant.now()) + "." + format.getFileExtension();
+
+    // Exports of closed intervals only change with the version of their data. The version gets queried
+    // by the export executor, once the export has been admitted, and before anything has been written.
+    final StreamingResponseBody body = !this.surveyManagementService.isExportCacheable(to)
+        ? out -> this.surveyManagementService.exportData(from, to, options, out)
+        : out -> {
+
+          final String key = this.surveyManagementService.getExportCacheKey(from, to, options);
+
+          if (request.checkNotModified("W/\"" + key + "\""))
+            return;
+
+          this.surveyManagementService.exportDataCached(key, from, to, options, out);
+        };
+
+    return stream(format, filename, response, body);
+  }
+
+  /**
+   * Exports all rows created since the last incremental export of the specified consumer, which are
+   * older than <code>app.export.incremental.commitLag</code>. Updates of exported rows are not
+   * exported again. Responds with HTTP 409, if another export of the consumer is running.
+   */
+  @RequestMapping(
+      method = RequestMethod.GET,
+      path = "/export/incremental")
+  public WebAsyncTask<Void> exportIncremental(
+      @RequestParam("consumer")
+      final String consumer,
+      @RequestParam(name = "format", defaultValue = "xlsx")
+      final String formatValue,
+      @ApiIgnore
+      final HttpServletResponse response) {
+
+    Assert.hasText(consumer, "'consumer' must not be empty.");
+    Assert.isTrue(consumer.length() <= 128, "'consumer' must not exceed 128 characters.");
+
+    final ExportFormat format = ExportFormat.fromValue(formatValue);
+
+    final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss")
+        .withZone(ZoneOffset.UTC);
+
+    final String filename = "export_incremental_" + formatter.format(Instant.now()) + "." + format.getFileExtension();
+
+    return stream(format, filename, response,
+        out -> this.surveyManagementService.exportIncremental(consumer, format, out));
+  }
+
+  private static List<ExportColumn> toColumns(final List<String> values) {
 
-    response.setContentType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
+    if (values == null)
+      return null;
+
+    return values.stream().map(ExportColumn::fromValue).collect(Collectors.toList());
+  }
+
+  /*
+   * The body gets written by the bounded export executor, so exports do not block request threads.
+   * Other asynchronous requests keep using the application task executor of Spring Boot, see
+   * ServicesConfig. Exports exceeding the slots available to streamed exports are rejected with HTTP
+   * 503.
+   */
+  private WebAsyncTask<Void> stream(final ExportFormat format, final String filename,
+      final HttpServletResponse response, final StreamingResponseBody body) {
+
+    final int queuePosition = this.surveyManagementService.admitExport();
+    final AtomicBoolean started = new AtomicBoolean();
+
+    response.setContentType(format.getContentType());
     response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"");
+    response.setHeader(HEADER_QUEUE_POSITION, String.valueOf(queuePosition));
+
+    final WebAsyncTask<Void> task = new WebAsyncTask<>(null, this.exportExecutor, () -> {
+
+      // Exports timed out while queued have released their slot already
+      if (!started.compareAndSet(false, true))
+        return null;
+
+      try {
+        body.writeTo(response.getOutputStream());
+        return null;
 
-    this.surveyManagementService.exportData(
+      } catch (final Exception e) {
+        // Errors raised before anything has been written must not respond with the export headers
+        if (!response.isCommitted())
+          response.reset();
+        throw e;
+
+      } finally {
+        this.surveyManagementService.releaseExport();
+      }
+    });
+
+    task.onCompletion(() -> {
+      if (started.compareAndSet(false, true))
+        this.surveyManagementService.releaseExport();
+    });
+
+    return task;
+  }
+
+  @RequestMapping(
+      method = RequestMethod.POST,
+      path = "/export/job")
+  public ExportJobDto startExportJob(
+      @RequestParam("from")
+      @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+      final LocalDateTime startTime,
+      @RequestParam("to")
+      @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+      final LocalDateTime endTime,
+      @RequestParam(name = "format", defaultValue = "xlsx")
+      final String formatValue,
+      @RequestParam(name = "layout", defaultValue = "long")
+      final String layoutValue,
+      @RequestParam(name = "stepcounts", defaultValue = "raw")
+      final String stepCountsValue,
+      @RequestParam(name = "surveys", required = false)
+      final Set<String> nameIds,
+      @RequestParam(name = "versions", required = false)
+      final Set<Integer> versions,
+      @RequestParam(name = "columns", required = false)
+      final List<String> columnValues,
+      @RequestParam(name = "slices", defaultValue = "1")
+      final int slices) throws IOException {
+
+    Assert.isTrue(startTime.isBefore(endTime), "'from' datetime value must be before 'to' datetime value.");
+
+    return this.exportJobService.startJob(
+        startTime.toInstant(ZoneOffset.UTC),
+        endTime.toInstant(ZoneOffset.UTC),
+        ExportOptions.builder()
+            .format(ExportFormat.fromValue(formatValue))
+            .layout(ExportLayout.fromValue(layoutValue))
+            .stepCounts(StepCountAggregation.fromValue(stepCountsValue))
+            .nameIds(nameIds)
+            .versions(versions)
+            .columns(toColumns(columnValues))
+            .slices(slices)
+            .build());
+  }
+
+  @RequestMapping(
+      method = RequestMethod.GET,
+      path = "/export/job/{jobId}")
+  public ExportJobDto getExportJob(
+      @PathVariable("jobId")
+      final String jobId) {
+
+    return this.exportJobService.getJob(jobId);
+  }
+
+  @RequestMapping(
+      method = RequestMethod.GET,
+      path = "/export/job/{jobId}/download")
+  public void downloadExportJob(
+      @PathVariable("jobId")
+      final String jobId,
+      @ApiIgnore
+      final HttpServletResponse response) throws IOException {
+
+    final ExportJobDto job = this.exportJobService.getCompletedJob(jobId);
+
+    final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss")
+        .withZone(ZoneOffset.UTC);
+
+    final String filename =
+        "export_" + formatter.format(job.getCreatedAt()) + "." + job.getFormat().getFileExtension();
+
+    response.setContentType(job.getFormat().getContentType());
+    response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"");
+
+    this.exportJobService.download(jobId, response.getOutputStream());
+  }
+
+  /*
+   * Report
+   */
+
+  @RequestMapping(
+      method = RequestMethod.GET,
+      path = "/report")
+  public ReportDto getReport(
+      @RequestParam("from")
+      @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+      final LocalDateTime startTime,
+      @RequestParam("to")
+      @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+      final LocalDateTime endTime) {
+
+    Assert.isTrue(startTime.isBefore(endTime), "'from' datetime value must be before 'to' datetime value.");
+
+    return this.surveyManagementService.getReport(
+        startTime.toInstant(ZoneOffset.UTC),
+        endTime.toInstant(ZoneOffset.UTC));
+  }
+
+  @RequestMapping(
+      method = RequestMethod.GET,
+      path = "/report",
+      params = "format=xlsx")
+  public void getReportXlsx(
+      @RequestParam("from")
+      @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+      final LocalDateTime startTime,
+      @RequestParam("to")
+      @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+      final LocalDateTime endTime,
+      @ApiIgnore
+      final HttpServletResponse response) throws IOException {
+
+    Assert.isTrue(startTime.isBefore(endTime), "'from' datetime value must be before 'to' datetime value.");
+
+    final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss")
+        .withZone(ZoneOffset.UTC);
+
+    final String filename = "report_" + formatter.format(Instant.now()) + "." + ExportFormat.XLSX.getFileExtension();
+
+    response.setContentType(ExportFormat.XLSX.getContentType());
+    response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"");
+
+    this.surveyManagementService.writeReportXlsx(
         startTime.toInstant(ZoneOffset.UTC),
         endTime.toInstant(ZoneOffset.UTC),
         response.getOutputStream());
   }
 
+  /*
+   * Reminder
+   */
+
+  @RequestMapping(
+      method = RequestMethod.GET,
+      path = "/schedule")
+  public List<ReminderScheduleDto> getSchedule() {
+
+    return this.surveyManagementService.getReminderSchedule();
+  }
+
   /*
    * Surveys
    */
@@ -185,6 +478,16 @@ public class SurveyManagementController {
     throw new UnsupportedOperationException();
   }
 
+  @RequestMapping(
+      method = RequestMethod.POST,
+      path = "/survey/{nameId}/release")
+  public void releaseSurvey(
+      @PathVariable("nameId")
+      final String nameId) {
+
+    this.surveyManagementService.releaseSurvey(nameId);
+  }
+
   @RequestMapping(
       method = RequestMethod.DELETE,
       path = "/survey/{surveyId}")
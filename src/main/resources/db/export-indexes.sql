@@ -0,0 +1,15 @@
+-- Indexes supporting data exports (MySQL). The schema is validated only (spring.jpa.hibernate.ddl-auto=validate),
+-- so these have to be applied manually once.
+
+-- Exports filtered by survey nameIds or versions read the survey responses of the matching survey instances
+-- ordered by their creation time. The index only serves this order for a single survey instance (an IN list over
+-- several survey instances would need a filesort), so the export reads each survey instance separately and merges
+-- the rows by (created_at, id).
+CREATE INDEX IDX_SURVEY_RESPONSE_INSTANCE_CREATED_AT ON survey_response (survey_instance_id, created_at, id);
+
+-- Exports in the wide layout read the survey responses of each survey instance ordered by user, answer version and
+-- id. The creation time is included, so that the interval is filtered within the index.
+CREATE INDEX IDX_SURVEY_RESPONSE_INSTANCE_USER_VERSION ON survey_response (survey_instance_id, user_id, version, id, created_at);
+
+-- Reports only consider the latest valid answer version of each user to each question of a survey instance.
+CREATE INDEX IDX_SURVEY_RESPONSE_USER_INSTANCE_QUESTION ON survey_response (user_id, survey_instance_id, question_id, version);
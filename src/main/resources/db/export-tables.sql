@@ -0,0 +1,40 @@
+-- Tables of the data export (MySQL). The schema is validated only (spring.jpa.hibernate.ddl-auto=validate),
+-- so these have to be applied manually once before deploying.
+
+-- Asynchronous export jobs shared by all nodes, see ExportJobService.
+CREATE TABLE export_job (
+  id VARCHAR(36) NOT NULL,
+  format VARCHAR(16) NOT NULL,
+  layout VARCHAR(16) NOT NULL,
+  start_time DATETIME(6) NOT NULL,
+  end_time DATETIME(6) NOT NULL,
+  status VARCHAR(16) NOT NULL,
+  rows_written BIGINT NOT NULL,
+  created_by VARCHAR(255) NOT NULL,
+  created_at DATETIME(6) NOT NULL,
+  updated_at DATETIME(6) NOT NULL,
+  completed_at DATETIME(6),
+  expires_at DATETIME(6),
+  PRIMARY KEY (id),
+  INDEX IDX_EXPORT_JOB_EXPIRES_AT (expires_at)
+) ENGINE=InnoDB;
+
+-- Watermarks of incremental exports per consumer, see ExportWatermarkComponent.
+CREATE TABLE export_watermark (
+  consumer VARCHAR(191) NOT NULL,
+  survey_response_created_at DATETIME(6),
+  survey_response_id BIGINT,
+  step_count_created_at DATETIME(6),
+  step_count_id BIGINT,
+  revision BIGINT NOT NULL,
+  updated_at DATETIME(6) NOT NULL,
+  PRIMARY KEY (consumer)
+) ENGINE=InnoDB;
+
+-- The last file produced by each recurring export, see ExportSpoolComponent.
+CREATE TABLE export_spool_state (
+  name VARCHAR(191) NOT NULL,
+  end_time DATETIME(6) NOT NULL,
+  updated_at DATETIME(6) NOT NULL,
+  PRIMARY KEY (name)
+) ENGINE=InnoDB;
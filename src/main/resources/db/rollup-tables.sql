@@ -0,0 +1,28 @@
+-- Tables and indexes of the step count rollup (MySQL). The schema is validated only
+-- (spring.jpa.hibernate.ddl-auto=validate), so these have to be applied manually once before deploying.
+
+-- Daily totals of the step counts per user, see StepCountDaily. The index on the day serves exports ordered by
+-- (day_utc, user_id), as InnoDB appends the primary key to secondary indexes.
+CREATE TABLE step_count_daily (
+  user_id VARCHAR(191) NOT NULL,
+  day_utc DATE NOT NULL,
+  step_count BIGINT NOT NULL,
+  updated_at DATETIME(6) NOT NULL,
+  PRIMARY KEY (user_id, day_utc),
+  INDEX IDX_STEP_COUNT_DAILY_DAY (day_utc)
+) ENGINE=InnoDB;
+
+-- Progress of the rollups, see RollupState.
+CREATE TABLE rollup_state (
+  name VARCHAR(191) NOT NULL,
+  processed_until DATETIME(6) NOT NULL,
+  PRIMARY KEY (name)
+) ENGINE=InnoDB;
+
+-- Each run queries the step counts created and the step counts updated since its previous run separately. The
+-- index on created_at serves the keyset pages of the exports as well.
+CREATE INDEX IDX_STEP_COUNT_CREATED_AT ON step_count (created_at, id);
+CREATE INDEX IDX_STEP_COUNT_UPDATED_AT ON step_count (updated_at);
+
+-- Changed days are recomputed from the step counts of the user starting on these days.
+CREATE INDEX IDX_STEP_COUNT_USER_START_TIME ON step_count (user_id, start_time);
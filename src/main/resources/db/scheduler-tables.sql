@@ -0,0 +1,26 @@
+-- Tables of the scheduler (MySQL). The schema is validated only (spring.jpa.hibernate.ddl-auto=validate),
+-- so these have to be applied manually once before deploying.
+
+-- Leases of scheduled tasks including their fencing tokens, see LockerComponent.
+CREATE TABLE scheduler_lease (
+  task_name VARCHAR(191) NOT NULL,
+  token BIGINT NOT NULL,
+  owner VARCHAR(64),
+  acquired_at DATETIME(6) NOT NULL,
+  expires_at DATETIME(6) NOT NULL,
+  PRIMARY KEY (task_name)
+) ENGINE=InnoDB;
+
+-- Next fire times of the reminders of released surveys, see ReminderConfig.
+CREATE TABLE reminder_schedule (
+  name_id VARCHAR(191) NOT NULL,
+  interval_start DATETIME(6) NOT NULL,
+  interval_type VARCHAR(16) NOT NULL,
+  interval_value INT NOT NULL,
+  reminder_type VARCHAR(16) NOT NULL,
+  reminder_value INT NOT NULL,
+  next_fire_at DATETIME(6) NOT NULL,
+  last_fire_at DATETIME(6),
+  PRIMARY KEY (name_id),
+  INDEX IDX_REMINDER_SCHEDULE_NEXT_FIRE_AT (next_fire_at)
+) ENGINE=InnoDB;
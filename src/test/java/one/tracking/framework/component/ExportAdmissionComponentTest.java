@@ -0,0 +1,131 @@
+/**
+ *
+ */
+package one.tracking.framework.component;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import one.tracking.framework.config.ExecutorProperties;
+import one.tracking.framework.config.ExportProperties;
+
+/**
+ * @author Marko Voß
+ *
+ */
+public class ExportAdmissionComponentTest {
+
+  private static final int THREADS = 2;
+
+  private static final int QUEUE_CAPACITY = 3;
+
+  private static final int RESERVED_SLOTS = 1;
+
+  private ExportAdmissionComponent admission;
+
+  @Before
+  public void before() {
+
+    this.admission = new ExportAdmissionComponent();
+
+    final ExecutorProperties.Pool pool = new ExecutorProperties.Pool(1, THREADS, QUEUE_CAPACITY);
+
+    ReflectionTestUtils.setField(this.admission, "executorConfig", new ExecutorProperties(pool, pool, pool));
+    ReflectionTestUtils.setField(this.admission, "exportConfig",
+        new ExportProperties(1, RESERVED_SLOTS, null, null, null, null));
+
+    this.admission.init();
+  }
+
+  @Test
+  public void testQueuePosition() {
+
+    assertThat(this.admission.acquire(false), is(0));
+    assertThat(this.admission.acquire(false), is(0));
+    assertThat(this.admission.acquire(false), is(1));
+    assertThat(this.admission.acquire(false), is(2));
+
+    this.admission.release();
+
+    assertThat(this.admission.acquire(false), is(2));
+    assertThat(this.admission.getAdmitted(), is(4));
+  }
+
+  @Test
+  public void testReservedSlots() {
+
+    for (int i = 0; i < THREADS + QUEUE_CAPACITY - RESERVED_SLOTS; i++)
+      this.admission.acquire(false);
+
+    assertRejected(false);
+
+    // Export jobs and recurring exports may still use the reserved slot
+    assertThat(this.admission.acquire(true), is(QUEUE_CAPACITY));
+
+    assertRejected(true);
+
+    this.admission.release();
+
+    assertThat(this.admission.acquire(true), is(QUEUE_CAPACITY));
+  }
+
+  /*
+   * Concurrent admissions never exceed the slots
+   */
+  @Test
+  public void testConcurrentAcquire() throws Exception {
+
+    final int tasks = 50;
+    final ExecutorService executor = Executors.newFixedThreadPool(tasks);
+    final CountDownLatch latch = new CountDownLatch(1);
+
+    try {
+      final List<Future<Boolean>> futures = new ArrayList<>(tasks);
+
+      for (int i = 0; i < tasks; i++)
+        futures.add(executor.submit(() -> {
+          latch.await();
+          try {
+            this.admission.acquire(true);
+            return true;
+          } catch (final RejectedExecutionException e) {
+            return false;
+          }
+        }));
+
+      latch.countDown();
+
+      int admitted = 0;
+      for (final Future<Boolean> future : futures)
+        if (future.get(10, TimeUnit.SECONDS))
+          admitted++;
+
+      assertThat(admitted, is(THREADS + QUEUE_CAPACITY));
+      assertThat(this.admission.getAdmitted(), is(THREADS + QUEUE_CAPACITY));
+
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private void assertRejected(final boolean reserved) {
+
+    try {
+      this.admission.acquire(reserved);
+      fail("Expected rejection");
+    } catch (final RejectedExecutionException e) {
+      // expected
+    }
+  }
+}
@@ -0,0 +1,147 @@
+/**
+ *
+ */
+package one.tracking.framework.component;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.stream.Stream;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+import one.tracking.framework.config.ExportProperties;
+import one.tracking.framework.domain.ExportFormat;
+import one.tracking.framework.domain.ExportOptions;
+
+/**
+ * @author Marko Voß
+ *
+ */
+public class ExportCacheComponentTest {
+
+  private static final Instant START_TIME = Instant.parse("2020-01-01T00:00:00Z");
+
+  private static final Instant END_TIME = Instant.parse("2020-01-02T00:00:00Z");
+
+  private Path directory;
+
+  private ExportCacheComponent cache;
+
+  @Before
+  public void before() throws IOException {
+
+    this.directory = Files.createTempDirectory("export-cache-test").resolve("cache");
+    this.cache = createCache(DataSize.ofBytes(10));
+  }
+
+  @After
+  public void after() throws IOException {
+
+    try (Stream<Path> stream = Files.walk(this.directory.getParent())) {
+      stream.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+    }
+  }
+
+  @Test
+  public void testPrivateDirectory() throws IOException {
+
+    if (!Files.getFileStore(this.directory).supportsFileAttributeView(PosixFileAttributeView.class))
+      return;
+
+    assertThat(PosixFilePermissions.toString(Files.getPosixFilePermissions(this.directory)), is("rwx------"));
+  }
+
+  @Test
+  public void testPutAndGet() throws IOException {
+
+    assertThat(this.cache.get("A"), is(nullValue()));
+
+    put("A", "12345");
+
+    assertThat(read(this.cache.get("A")), is("12345"));
+
+    // Entries survive restarts
+    this.cache = createCache(DataSize.ofBytes(10));
+
+    assertThat(read(this.cache.get("A")), is("12345"));
+  }
+
+  @Test
+  public void testEviction() throws IOException {
+
+    put("A", "1234");
+    put("B", "1234");
+
+    // A becomes the most recently used entry
+    this.cache.get("A").close();
+
+    put("C", "1234");
+
+    assertThat(read(this.cache.get("A")), is("1234"));
+    assertThat(this.cache.get("B"), is(nullValue()));
+    assertThat(read(this.cache.get("C")), is("1234"));
+  }
+
+  @Test
+  public void testKey() {
+
+    final String key = ExportCacheComponent.getKey(START_TIME, END_TIME, createOptions(1, "A", "B"), "1");
+
+    // The order of the filters does not matter
+    assertThat(ExportCacheComponent.getKey(START_TIME, END_TIME, createOptions(1, "B", "A"), "1"), is(key));
+
+    // Slices do not affect the content
+    assertThat(ExportCacheComponent.getKey(START_TIME, END_TIME, createOptions(4, "A", "B"), "1"), is(key));
+
+    // Changed data must not be served from the cache
+    assertThat(ExportCacheComponent.getKey(START_TIME, END_TIME, createOptions(1, "A", "B"), "2"), is(not(key)));
+  }
+
+  private static ExportOptions createOptions(final int slices, final String... nameIds) {
+    return ExportOptions.builder()
+        .format(ExportFormat.CSV)
+        .nameIds(new LinkedHashSet<>(Arrays.asList(nameIds)))
+        .slices(slices)
+        .build();
+  }
+
+  private ExportCacheComponent createCache(final DataSize maxSize) throws IOException {
+
+    final ExportCacheComponent result = new ExportCacheComponent();
+
+    ReflectionTestUtils.setField(result, "exportConfig", new ExportProperties(1, 0,
+        new ExportProperties.Cache(true, this.directory.toString(), maxSize), null, null, null));
+
+    result.init();
+    return result;
+  }
+
+  private void put(final String key, final String content) throws IOException {
+
+    final Path file = this.cache.createTempFile();
+    Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    this.cache.put(key, file);
+  }
+
+  private static String read(final InputStream inStream) throws IOException {
+
+    try (InputStream stream = inStream) {
+      return new String(stream.readAllBytes(), StandardCharsets.UTF_8);
+    }
+  }
+}
@@ -0,0 +1,197 @@
+/**
+ *
+ */
+package one.tracking.framework.component;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doCallRealMethod;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.persistence.EntityManager;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.scheduling.support.CronTrigger;
+import org.springframework.scheduling.support.SimpleTriggerContext;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.util.FileSystemUtils;
+import one.tracking.framework.component.AsyncExecutor.AsyncTask;
+import one.tracking.framework.component.ExportSpoolComponent.ScheduledTrigger;
+import one.tracking.framework.config.ExecutorProperties;
+import one.tracking.framework.config.ExportProperties;
+import one.tracking.framework.config.ExportProperties.SpoolJob;
+import one.tracking.framework.domain.ExportFormat;
+import one.tracking.framework.domain.ExportOptions;
+import one.tracking.framework.domain.Lease;
+import one.tracking.framework.entity.ExportSpoolState;
+
+/**
+ * @author Marko Voß
+ *
+ */
+public class ExportSpoolComponentTest {
+
+  private static final SpoolJob JOB = new SpoolJob("daily", "0 0 2 * * *", "csv", Duration.ofDays(1), 2, null);
+
+  private static final String EXTENSION = "." + ExportFormat.fromValue(JOB.getFormat()).getFileExtension();
+
+  private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyyMMdd_HHmm")
+      .withZone(ZoneOffset.UTC);
+
+  private Path directory;
+
+  private SurveyDataExportComponent exportComponent;
+
+  private EntityManager entityManager;
+
+  private ExportSpoolComponent spool;
+
+  @Before
+  public void before() throws Exception {
+
+    this.directory = Files.createTempDirectory("export-spool");
+    this.exportComponent = mock(SurveyDataExportComponent.class);
+    this.entityManager = mock(EntityManager.class);
+
+    final LockerComponent lockerComponent = mock(LockerComponent.class);
+    when(lockerComponent.acquire(any())).thenReturn(Lease.builder().taskName("TASK").owner("OWNER").token(1).build());
+    when(lockerComponent.executeFenced(any(), any())).thenAnswer(invocation -> ((TransactionCallback<?>) invocation
+        .getArgument(1)).doInTransaction(mock(TransactionStatus.class)));
+    doCallRealMethod().when(lockerComponent).executeFencedWithoutResult(any(), any());
+
+    // Runs exports on the calling thread
+    final AsyncExecutor asyncExecutor = mock(AsyncExecutor.class);
+    when(asyncExecutor.executeExport(any())).thenAnswer(invocation -> {
+      ((AsyncTask<?>) invocation.getArgument(0)).call();
+      return CompletableFuture.completedFuture(null);
+    });
+
+    final ExportProperties exportConfig = new ExportProperties(1, 1, null,
+        new ExportProperties.Spool(this.directory.toString(), Collections.singletonList(JOB)), null, null);
+
+    final ExecutorProperties.Pool pool = new ExecutorProperties.Pool(1, 1, 1);
+    final ExportAdmissionComponent exportAdmission = new ExportAdmissionComponent();
+
+    ReflectionTestUtils.setField(exportAdmission, "executorConfig", new ExecutorProperties(pool, pool, pool));
+    ReflectionTestUtils.setField(exportAdmission, "exportConfig", exportConfig);
+    exportAdmission.init();
+
+    this.spool = new ExportSpoolComponent();
+
+    ReflectionTestUtils.setField(this.spool, "exportConfig", exportConfig);
+    ReflectionTestUtils.setField(this.spool, "exportComponent", this.exportComponent);
+    ReflectionTestUtils.setField(this.spool, "lockerComponent", lockerComponent);
+    ReflectionTestUtils.setField(this.spool, "asyncExecutor", asyncExecutor);
+    ReflectionTestUtils.setField(this.spool, "exportAdmission", exportAdmission);
+    ReflectionTestUtils.setField(this.spool, "entityManager", this.entityManager);
+  }
+
+  @After
+  public void after() throws Exception {
+    FileSystemUtils.deleteRecursively(this.directory);
+  }
+
+  /*
+   * The exported window ends at the scheduled time instead of the time the trigger actually ran
+   */
+  @Test
+  public void testScheduledTime() throws Exception {
+
+    final Instant endTime = trigger();
+
+    assertThat(endTime.atZone(ZoneOffset.UTC).getHour(), is(2));
+    assertThat(endTime.atZone(ZoneOffset.UTC).getMinute(), is(0));
+
+    verify(this.exportComponent).export(eq(endTime.minus(JOB.getWindow())), eq(endTime), any(ExportOptions.class),
+        any(OutputStream.class), any(AtomicLong.class));
+
+    assertThat(listFiles(), contains("daily_" + FORMATTER.format(endTime) + EXTENSION));
+
+    verify(this.entityManager).merge(argThat((final ExportSpoolState state) -> state.getName().equals(JOB.getName())
+        && state.getEndTime().equals(endTime)));
+  }
+
+  /*
+   * Another node exported the window already, even if its file is not within the spool directory of
+   * this node
+   */
+  @Test
+  public void testExportedWindow() throws Exception {
+
+    final Instant endTime = nextScheduledTime();
+
+    when(this.entityManager.find(ExportSpoolState.class, JOB.getName())).thenReturn(
+        ExportSpoolState.builder().name(JOB.getName()).endTime(endTime).updatedAt(Instant.now()).build());
+
+    assertThat(trigger(), is(endTime));
+    assertThat(listFiles(), is(empty()));
+
+    verify(this.exportComponent, never()).export(any(), any(), any(), any(), any());
+  }
+
+  /*
+   * Files of other jobs sharing the same prefix are kept
+   */
+  @Test
+  public void testRetention() throws Exception {
+
+    for (final String name : Arrays.asList("daily_20200101_0200", "daily_20200102_0200", "daily_eu_20200101_0200"))
+      Files.createFile(this.directory.resolve(name + EXTENSION));
+
+    final Instant endTime = trigger();
+
+    assertThat(listFiles(), contains(
+        "daily_20200102_0200" + EXTENSION,
+        "daily_" + FORMATTER.format(endTime) + EXTENSION,
+        "daily_eu_20200101_0200" + EXTENSION));
+  }
+
+  private Instant trigger() {
+
+    final ScheduledTrigger trigger = newTrigger();
+    final Instant result = trigger.nextExecutionTime(new SimpleTriggerContext()).toInstant();
+
+    this.spool.trigger(JOB, trigger);
+    return result;
+  }
+
+  private static Instant nextScheduledTime() {
+    return newTrigger().nextExecutionTime(new SimpleTriggerContext()).toInstant();
+  }
+
+  private static ScheduledTrigger newTrigger() {
+    return new ScheduledTrigger(new CronTrigger(JOB.getCron(), TimeZone.getTimeZone(ZoneOffset.UTC)));
+  }
+
+  private List<String> listFiles() throws Exception {
+
+    try (final Stream<Path> stream = Files.list(this.directory)) {
+      return stream.map(file -> file.getFileName().toString()).sorted().collect(Collectors.toList());
+    }
+  }
+}
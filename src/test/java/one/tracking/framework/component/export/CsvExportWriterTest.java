@@ -0,0 +1,207 @@
+/**
+ *
+ */
+package one.tracking.framework.component.export;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import org.junit.Test;
+import one.tracking.framework.component.export.ExportWriter.SheetWriter;
+
+/**
+ * @author Marko Voß
+ *
+ */
+public class CsvExportWriterTest {
+
+  @Test
+  public void testEscaping() throws Exception {
+
+    final ByteArrayOutputStream outStream = new ByteArrayOutputStream();
+
+    try (final ExportWriter writer = new CsvExportWriter(outStream, false)) {
+
+      final SheetWriter sheet = writer.createSheet("survey", Arrays.asList("A", "B", "C", "D", "E", "F"));
+      sheet.writeRow("plain", "with,comma", "with \"quote\"", "multi\nline", null,
+          Instant.parse("2020-05-11T12:00:00Z"));
+      sheet.writeRow(1, true, 2.5, "", "carriage\rreturn", "x");
+      sheet.close();
+
+      writer.finish();
+    }
+
+    final Map<String, String> entries = readEntries(outStream.toByteArray(), false);
+
+    assertThat(entries.keySet(), contains("survey.csv"));
+    assertThat(entries.get("survey.csv"), is("A,B,C,D,E,F\r\n"
+        + "plain,\"with,comma\",\"with \"\"quote\"\"\",\"multi\nline\",,2020-05-11T12:00:00Z\r\n"
+        + "1,true,2.5,,\"carriage\rreturn\",x\r\n"));
+  }
+
+  @Test
+  public void testGzipEntries() throws Exception {
+
+    final ByteArrayOutputStream outStream = new ByteArrayOutputStream();
+
+    try (final ExportWriter writer = new CsvExportWriter(outStream, true)) {
+
+      final SheetWriter survey = writer.createSheet("survey", Arrays.asList("A"));
+      survey.writeRow("1");
+      survey.close();
+
+      final SheetWriter stepCount = writer.createSheet("stepcount", Arrays.asList("B"));
+      stepCount.writeRow("2");
+      stepCount.close();
+
+      writer.finish();
+    }
+
+    final Map<String, String> entries = readEntries(outStream.toByteArray(), true);
+
+    assertThat(entries.keySet(), contains("survey.csv.gz", "stepcount.csv.gz"));
+    assertThat(entries.get("survey.csv.gz"), is("A\r\n1\r\n"));
+    assertThat(entries.get("stepcount.csv.gz"), is("B\r\n2\r\n"));
+  }
+
+  /*
+   * Sheets and segments written concurrently are appended in order of their creation
+   */
+  @Test
+  public void testConcurrentSheetsAndSegments() throws Exception {
+
+    final ByteArrayOutputStream outStream = new ByteArrayOutputStream();
+
+    try (final ExportWriter writer = new CsvExportWriter(outStream, true)) {
+
+      final SheetWriter survey = writer.createSheet("survey", Arrays.asList("A"));
+      final List<SheetWriter> segments = writer.createSegmentedSheet("stepcount", Arrays.asList("B"), 2);
+
+      segments.get(1).writeRow("3");
+      segments.get(1).close();
+      segments.get(0).writeRow("2");
+      survey.writeRow("1");
+      segments.get(0).close();
+      survey.close();
+
+      writer.finish();
+    }
+
+    final Map<String, String> entries = readEntries(outStream.toByteArray(), true);
+
+    assertThat(entries.keySet(), contains("survey.csv.gz", "stepcount.csv.gz"));
+    assertThat(entries.get("survey.csv.gz"), is("A\r\n1\r\n"));
+    assertThat(entries.get("stepcount.csv.gz"), is("B\r\n2\r\n3\r\n"));
+  }
+
+  /*
+   * The first segment is streamed directly, the following segments as soon as their predecessors are
+   * complete
+   */
+  @Test
+  public void testSegmentsStreamedInOrder() throws Exception {
+
+    final long tempFiles = countTempFiles();
+    final ByteArrayOutputStream outStream = new ByteArrayOutputStream();
+
+    try (final ExportWriter writer = new CsvExportWriter(outStream, false)) {
+
+      final List<SheetWriter> segments = writer.createSegmentedSheet("survey", Arrays.asList("A"), 3);
+
+      // Only the following segments are spooled
+      assertThat(countTempFiles(), is(tempFiles + 2));
+
+      segments.get(2).writeRow("segment3");
+      segments.get(2).close();
+      segments.get(1).writeRow("segment2");
+      segments.get(0).writeRow("segment1");
+      segments.get(0).close();
+
+      // The last segment waits for its predecessor
+      assertThat(countTempFiles(), is(tempFiles + 2));
+
+      segments.get(1).close();
+
+      assertThat(countTempFiles(), is(tempFiles));
+
+      writer.finish();
+    }
+
+    final Map<String, String> entries = readEntries(outStream.toByteArray(), false);
+
+    assertThat(entries.get("survey.csv"), is("A\r\nsegment1\r\nsegment2\r\nsegment3\r\n"));
+  }
+
+  /*
+   * A failed export closes the writer without closing its sheets
+   */
+  @Test
+  public void testCloseDiscardsIncompleteSheets() throws Exception {
+
+    final long tempFiles = countTempFiles();
+
+    final ExportWriter writer = new CsvExportWriter(new ByteArrayOutputStream(), true);
+
+    final SheetWriter survey = writer.createSheet("survey", Arrays.asList("A"));
+    final List<SheetWriter> segments = writer.createSegmentedSheet("stepcount", Arrays.asList("B"), 2);
+
+    survey.writeRow("1");
+    segments.get(1).writeRow("3");
+    segments.get(1).close();
+
+    assertThat(countTempFiles(), is(tempFiles + 2));
+
+    writer.close();
+
+    assertThat(countTempFiles(), is(tempFiles));
+  }
+
+  private static long countTempFiles() throws IOException {
+
+    try (final Stream<Path> files = Files.list(Paths.get(System.getProperty("java.io.tmpdir")))) {
+      return files
+          .map(file -> file.getFileName().toString())
+          .filter(name -> name.startsWith("export") && name.endsWith(".csv"))
+          .count();
+    }
+  }
+
+  private static Map<String, String> readEntries(final byte[] data, final boolean gzip) throws IOException {
+
+    final Map<String, String> result = new LinkedHashMap<>();
+
+    try (final ZipInputStream zipStream = new ZipInputStream(new ByteArrayInputStream(data))) {
+
+      ZipEntry entry;
+      while ((entry = zipStream.getNextEntry()) != null) {
+
+        final byte[] content = zipStream.readAllBytes();
+
+        try (final InputStream inStream = gzip
+            ? new GZIPInputStream(new ByteArrayInputStream(content))
+            : new ByteArrayInputStream(content)) {
+          result.put(entry.getName(), new String(inStream.readAllBytes(), StandardCharsets.UTF_8));
+        }
+      }
+    }
+
+    return result;
+  }
+}
@@ -0,0 +1,175 @@
+/**
+ *
+ */
+package one.tracking.framework.component.export;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import org.junit.Test;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import one.tracking.framework.component.export.ExportWriter.SheetWriter;
+
+/**
+ * @author Marko Voß
+ *
+ */
+public class JsonlExportWriterTest {
+
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+
+  @Test
+  public void testTypes() throws Exception {
+
+    final ByteArrayOutputStream outStream = new ByteArrayOutputStream();
+
+    try (final ExportWriter writer = new JsonlExportWriter(outStream, false)) {
+
+      final SheetWriter sheet = writer.createSheet("survey", Arrays.asList("Text", "Int", "Long", "Bool",
+          "Decimal", "Time", "Missing"));
+      sheet.writeRow("multi\nline", 1, 2L, true, 2.5, Instant.parse("2020-05-11T12:00:00Z"), null);
+      sheet.close();
+
+      writer.finish();
+    }
+
+    final List<JsonNode> lines = readLines(outStream.toByteArray(), false);
+
+    assertThat(lines.size(), is(1));
+
+    final JsonNode line = lines.get(0);
+
+    assertThat(getFieldNames(line), contains("dataset", "text", "int", "long", "bool", "decimal", "time"));
+    assertThat(line.get("dataset").asText(), is("survey"));
+    assertThat(line.get("text").asText(), is("multi\nline"));
+    assertThat(line.get("int").isInt(), is(true));
+    assertThat(line.get("long").asLong(), is(2L));
+    assertThat(line.get("bool").isBoolean(), is(true));
+    assertThat(line.get("decimal").asDouble(), is(2.5));
+    assertThat(line.get("time").asText(), is("2020-05-11T12:00:00Z"));
+  }
+
+  /*
+   * Questions of the wide layout may share the same text
+   */
+  @Test
+  public void testDuplicateFieldNames() throws Exception {
+
+    final ByteArrayOutputStream outStream = new ByteArrayOutputStream();
+
+    try (final ExportWriter writer = new JsonlExportWriter(outStream, false)) {
+
+      final SheetWriter sheet = writer.createSheet("wide", Arrays.asList("Question", "question", "Question",
+          "Dataset"));
+      sheet.writeRow("A", "B", "C", "D");
+      sheet.close();
+
+      writer.finish();
+    }
+
+    final JsonNode line = readLines(outStream.toByteArray(), false).get(0);
+
+    assertThat(getFieldNames(line), contains("dataset", "question", "question_2", "question_3", "dataset_2"));
+    assertThat(line.get("question_3").asText(), is("C"));
+    assertThat(line.get("dataset").asText(), is("wide"));
+  }
+
+  @Test
+  public void testGzipSegments() throws Exception {
+
+    final ByteArrayOutputStream outStream = new ByteArrayOutputStream();
+
+    try (final ExportWriter writer = new JsonlExportWriter(outStream, true)) {
+
+      final List<SheetWriter> segments = writer.createSegmentedSheet("survey", Arrays.asList("Id"), 2);
+      segments.get(0).writeRow(1);
+      segments.get(1).writeRow(2);
+      segments.get(0).writeRow(3);
+
+      for (final SheetWriter segment : segments)
+        segment.close();
+
+      writer.finish();
+    }
+
+    final List<Integer> ids = new ArrayList<>();
+    for (final JsonNode line : readLines(outStream.toByteArray(), true))
+      ids.add(line.get("id").asInt());
+
+    assertThat(ids, contains(1, 2, 3));
+  }
+
+  /*
+   * Failed exports are closed without being finished. The deflater must be released anyway, while the
+   * target stream stays open.
+   */
+  @Test
+  public void testCloseWithoutFinish() throws Exception {
+
+    final ClosingOutputStream outStream = new ClosingOutputStream();
+    final JsonlExportWriter writer = new JsonlExportWriter(outStream, true);
+
+    writer.createSheet("survey", Arrays.asList("Id")).writeRow(1);
+    writer.close();
+
+    assertThat(outStream.closed, is(false));
+
+    final Field field = JsonlExportWriter.class.getDeclaredField("gzipStream");
+    field.setAccessible(true);
+
+    try {
+      ((GZIPOutputStream) field.get(writer)).write(new byte[] {1}, 0, 1);
+      fail("Expected the deflater to be released");
+    } catch (final NullPointerException e) {
+      // The deflater has been ended
+    }
+  }
+
+  private static List<String> getFieldNames(final JsonNode node) {
+
+    final List<String> result = new ArrayList<>();
+    node.fieldNames().forEachRemaining(result::add);
+    return result;
+  }
+
+  private static List<JsonNode> readLines(final byte[] content, final boolean gzip) throws IOException {
+
+    try (final InputStream inStream = gzip
+        ? new GZIPInputStream(new ByteArrayInputStream(content))
+        : new ByteArrayInputStream(content)) {
+
+      final String text = new String(inStream.readAllBytes(), StandardCharsets.UTF_8);
+      final List<JsonNode> result = new ArrayList<>();
+
+      for (final String line : text.split("\n"))
+        if (!line.isEmpty())
+          result.add(MAPPER.readTree(line));
+
+      return result;
+    }
+  }
+
+  private static final class ClosingOutputStream extends ByteArrayOutputStream {
+
+    private boolean closed;
+
+    @Override
+    public void close() {
+      this.closed = true;
+    }
+  }
+}
@@ -0,0 +1,59 @@
+/**
+ *
+ */
+package one.tracking.framework.component.export;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import org.junit.Test;
+
+/**
+ * @author Marko Voß
+ *
+ */
+public class TeeOutputStreamTest {
+
+  @Test
+  public void testWrite() throws IOException {
+
+    final ByteArrayOutputStream primary = new ByteArrayOutputStream();
+    final ByteArrayOutputStream secondary = new ByteArrayOutputStream();
+
+    try (final TeeOutputStream outStream = new TeeOutputStream(primary, secondary)) {
+      outStream.write('A');
+      outStream.write("BC".getBytes(StandardCharsets.UTF_8));
+
+      assertThat(outStream.isSecondaryFailed(), is(false));
+    }
+
+    assertThat(primary.toString(StandardCharsets.UTF_8), is("ABC"));
+    assertThat(secondary.toString(StandardCharsets.UTF_8), is("ABC"));
+  }
+
+  @Test
+  public void testSecondaryFailure() throws IOException {
+
+    final ByteArrayOutputStream primary = new ByteArrayOutputStream();
+
+    final OutputStream secondary = new OutputStream() {
+
+      @Override
+      public void write(final int b) throws IOException {
+        throw new IOException("Disk full");
+      }
+    };
+
+    try (final TeeOutputStream outStream = new TeeOutputStream(primary, secondary)) {
+      outStream.write("ABC".getBytes(StandardCharsets.UTF_8));
+
+      assertThat(outStream.isSecondaryFailed(), is(true));
+    }
+
+    // The client still receives the complete export
+    assertThat(primary.toString(StandardCharsets.UTF_8), is("ABC"));
+  }
+}
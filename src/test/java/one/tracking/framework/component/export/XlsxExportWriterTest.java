@@ -0,0 +1,71 @@
+/**
+ *
+ */
+package one.tracking.framework.component.export;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.time.Instant;
+import java.util.Arrays;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Row.MissingCellPolicy;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.Test;
+import one.tracking.framework.component.export.ExportWriter.SheetWriter;
+
+/**
+ * @author Marko Voß
+ *
+ */
+public class XlsxExportWriterTest {
+
+  @Test
+  public void testSheetsAndCellTypes() throws Exception {
+
+    final ByteArrayOutputStream outStream = new ByteArrayOutputStream();
+
+    try (final ExportWriter writer = new XlsxExportWriter(outStream)) {
+
+      final SheetWriter survey = writer.createSheet("survey", Arrays.asList("Text", "Bool", "Number", "Time", "Null"));
+      final SheetWriter stepCount = writer.createSheet("stepcount", Arrays.asList("Steps"));
+
+      stepCount.writeRow(42L);
+      survey.writeRow("with,comma \"quoted\"", true, 3, Instant.parse("2020-05-11T12:00:00Z"), null);
+
+      survey.close();
+      stepCount.close();
+
+      writer.finish();
+    }
+
+    try (final Workbook workbook = new XSSFWorkbook(new ByteArrayInputStream(outStream.toByteArray()))) {
+
+      assertThat(workbook.getNumberOfSheets(), is(2));
+      assertThat(workbook.getSheetName(0), is("survey"));
+      assertThat(workbook.getSheetName(1), is("stepcount"));
+
+      final Sheet survey = workbook.getSheet("survey");
+      assertThat(survey.getRow(0).getCell(3).getStringCellValue(), is("Time"));
+
+      final Row row = survey.getRow(1);
+      assertThat(row.getCell(0).getStringCellValue(), is("with,comma \"quoted\""));
+      assertThat(row.getCell(1).getBooleanCellValue(), is(true));
+      assertThat(row.getCell(2).getNumericCellValue(), is(3.0));
+
+      final Cell time = row.getCell(3);
+      assertThat(time.getCellType(), is(CellType.NUMERIC));
+      assertThat(DateUtil.isCellDateFormatted(time), is(true));
+
+      assertThat(row.getCell(4, MissingCellPolicy.CREATE_NULL_AS_BLANK).getCellType(), is(CellType.BLANK));
+
+      assertThat(workbook.getSheet("stepcount").getRow(1).getCell(0).getNumericCellValue(), is(42.0));
+    }
+  }
+}
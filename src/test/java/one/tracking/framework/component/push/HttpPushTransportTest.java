@@ -0,0 +1,152 @@
+/**
+ *
+ */
+package one.tracking.framework.component.push;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import one.tracking.framework.config.PushProperties;
+import one.tracking.framework.domain.PushBatchResponse;
+import one.tracking.framework.domain.PushNotificationRequest;
+import one.tracking.framework.domain.PushSendResponse;
+import one.tracking.framework.domain.PushTransportType;
+
+/**
+ * @author Marko Voß
+ *
+ */
+public class HttpPushTransportTest {
+
+  private static final PushNotificationRequest REQUEST = PushNotificationRequest.builder()
+      .title("TITLE")
+      .message("MESSAGE")
+      .data(Collections.emptyMap())
+      .build();
+
+  private HttpServer server;
+
+  private volatile int statusCode = 200;
+
+  private volatile String responseBody = null;
+
+  private HttpPushTransport transport;
+
+  @Before
+  public void before() throws Exception {
+
+    this.server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    this.server.createContext("/push", exchange -> {
+
+      exchange.getRequestBody().readAllBytes();
+
+      final byte[] body = this.responseBody == null ? new byte[0] : this.responseBody.getBytes(StandardCharsets.UTF_8);
+      exchange.sendResponseHeaders(this.statusCode, body.length == 0 ? -1 : body.length);
+
+      try (final OutputStream outStream = exchange.getResponseBody()) {
+        outStream.write(body);
+      }
+    });
+    this.server.start();
+
+    this.transport = createTransport("http://localhost:" + this.server.getAddress().getPort() + "/push");
+  }
+
+  @After
+  public void after() {
+    this.transport.destroy();
+    this.server.stop(0);
+  }
+
+  @Test
+  public void testResponseWithoutBody() throws Exception {
+
+    final PushBatchResponse response =
+        this.transport.sendMulticastAsync(REQUEST, Arrays.asList("A", "B")).get(10, TimeUnit.SECONDS);
+
+    assertThat(response.getSuccessCount(), is(2));
+    assertThat(response.getResponses().stream().map(PushSendResponse::getMessageId).collect(Collectors.toList()),
+        contains("A", "B"));
+  }
+
+  @Test
+  public void testResponseWithBody() throws Exception {
+
+    this.responseBody = "{\"responses\":[{\"successful\":false,\"errorCode\":\"UNREGISTERED\"}]}";
+
+    final PushBatchResponse response =
+        this.transport.sendMulticastAsync(REQUEST, Collections.singletonList("A")).get(10, TimeUnit.SECONDS);
+
+    assertThat(response.getFailureCount(), is(1));
+    assertThat(response.getResponses().get(0).getErrorCode(), is("UNREGISTERED"));
+  }
+
+  @Test
+  public void testSendAsync() throws Exception {
+    assertThat(this.transport.sendAsync(REQUEST, "A").get(10, TimeUnit.SECONDS), is("A"));
+  }
+
+  @Test
+  public void testErrorStatus() throws Exception {
+
+    this.statusCode = 500;
+
+    try {
+      this.transport.sendMulticastAsync(REQUEST, Collections.singletonList("A")).get(10, TimeUnit.SECONDS);
+      fail("Expected failure");
+    } catch (final ExecutionException e) {
+      assertThat(e.getCause(), is(instanceOf(IOException.class)));
+    }
+  }
+
+  /*
+   * Only one connection is available, so failed requests must release it
+   */
+  @Test
+  public void testConnectionReleasedOnFailure() throws Exception {
+
+    this.transport.destroy();
+    this.server.stop(0);
+
+    this.transport = createTransport("http://localhost:" + this.server.getAddress().getPort() + "/push");
+
+    for (int i = 0; i < 3; i++) {
+      try {
+        this.transport.sendAsync(REQUEST, "A").get(10, TimeUnit.SECONDS);
+        fail("Expected failure");
+      } catch (final ExecutionException e) {
+        // expected
+      }
+    }
+  }
+
+  private static HttpPushTransport createTransport(final String url) {
+
+    final HttpPushTransport transport = new HttpPushTransport();
+
+    ReflectionTestUtils.setField(transport, "pushProperties", new PushProperties(PushTransportType.HTTP, null,
+        new PushProperties.Http(url, 2, 1, Duration.ofSeconds(5), Duration.ofSeconds(5)), null));
+    ReflectionTestUtils.setField(transport, "objectMapper", new ObjectMapper());
+
+    transport.initialize();
+    return transport;
+  }
+}
@@ -0,0 +1,85 @@
+/**
+ *
+ */
+package one.tracking.framework.component.push;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.Assert.assertThat;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import one.tracking.framework.config.PushProperties;
+import one.tracking.framework.domain.PushBatchResponse;
+import one.tracking.framework.domain.PushNotificationRequest;
+import one.tracking.framework.domain.PushTransportType;
+
+/**
+ * @author Marko Voß
+ *
+ */
+public class RecordingPushTransportTest {
+
+  private RecordingPushTransport transport;
+
+  @Before
+  public void before() {
+
+    this.transport = new RecordingPushTransport();
+
+    ReflectionTestUtils.setField(this.transport, "pushProperties", new PushProperties(PushTransportType.RECORDING,
+        null, null, new PushProperties.Recording(1, 2, Duration.ZERO)));
+
+    this.transport.initialize();
+  }
+
+  @After
+  public void after() {
+    this.transport.destroy();
+  }
+
+  @Test
+  public void testSendMulticast() throws Exception {
+
+    final PushBatchResponse response = this.transport
+        .sendMulticastAsync(createRequest("M1"), Arrays.asList("A", "B"))
+        .get(10, TimeUnit.SECONDS);
+
+    assertThat(response.getSuccessCount(), is(2));
+    assertThat(response.getResponses().get(0).getMessageId(), startsWith("recorded-"));
+
+    assertThat(this.transport.getMessages().size(), is(1));
+    assertThat(this.transport.getMessages().get(0).getTokens(), contains("A", "B"));
+  }
+
+  @Test
+  public void testCapacity() throws Exception {
+
+    for (final String message : Arrays.asList("M1", "M2", "M3"))
+      this.transport.sendAsync(createRequest(message), "A").get(10, TimeUnit.SECONDS);
+
+    // The oldest message got dropped
+    assertThat(this.transport.getMessages().stream()
+        .map(message -> message.getRequest().getMessage())
+        .collect(Collectors.toList()), contains("M2", "M3"));
+
+    this.transport.clear();
+
+    assertThat(this.transport.getMessages().isEmpty(), is(true));
+  }
+
+  private static PushNotificationRequest createRequest(final String message) {
+    return PushNotificationRequest.builder()
+        .title("TITLE")
+        .message(message)
+        .data(Collections.emptyMap())
+        .build();
+  }
+}
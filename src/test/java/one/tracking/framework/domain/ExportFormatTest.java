@@ -0,0 +1,28 @@
+/**
+ *
+ */
+package one.tracking.framework.domain;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import org.junit.Test;
+
+/**
+ * @author Marko Voß
+ *
+ */
+public class ExportFormatTest {
+
+  @Test
+  public void testFromValue() {
+
+    assertThat(ExportFormat.fromValue("xlsx"), is(ExportFormat.XLSX));
+    assertThat(ExportFormat.fromValue("CSV"), is(ExportFormat.CSV));
+    assertThat(ExportFormat.fromValue("csv.gz"), is(ExportFormat.CSV_GZ));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testFromUnknownValue() {
+    ExportFormat.fromValue("pdf");
+  }
+}
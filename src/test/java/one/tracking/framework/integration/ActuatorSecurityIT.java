@@ -0,0 +1,53 @@
+/**
+ *
+ */
+package one.tracking.framework.integration;
+
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.httpBasic;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import one.tracking.framework.SurveyManagementApplication;
+
+/**
+ * @author Marko Voß
+ *
+ */
+@AutoConfigureMockMvc
+@TestPropertySource(locations = "classpath:application-it.properties")
+@Import(ITConfiguration.class)
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = SurveyManagementApplication.class)
+@ActiveProfiles("dev")
+public class ActuatorSecurityIT {
+
+  @Autowired
+  private MockMvc mockMvc;
+
+  @Test
+  public void testHealthIsPublic() throws Exception {
+
+    this.mockMvc.perform(MockMvcRequestBuilders.get("/actuator/health"))
+        .andExpect(status().isOk());
+  }
+
+  @Test
+  public void testMetricsRequireAdmin() throws Exception {
+
+    this.mockMvc.perform(MockMvcRequestBuilders.get("/actuator/metrics"))
+        .andExpect(status().isUnauthorized());
+
+    this.mockMvc.perform(MockMvcRequestBuilders.get("/actuator/metrics")
+        .with(httpBasic("admin", "admin")))
+        .andExpect(status().isOk());
+  }
+}
@@ -0,0 +1,405 @@
+/**
+ *
+ */
+package one.tracking.framework.integration;
+
+import static org.awaitility.Awaitility.await;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.endsWith;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.Assert.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.httpBasic;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import java.io.ByteArrayInputStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import javax.persistence.EntityManager;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.transaction.support.TransactionTemplate;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import one.tracking.framework.SurveyManagementApplication;
+import one.tracking.framework.component.ExportAdmissionComponent;
+import one.tracking.framework.component.LockerComponent;
+import one.tracking.framework.domain.Lease;
+import one.tracking.framework.entity.User;
+import one.tracking.framework.entity.meta.Survey;
+import one.tracking.framework.web.SurveyManagementController;
+
+/**
+ * @author Marko Voß
+ *
+ */
+@AutoConfigureMockMvc
+@TestPropertySource(locations = "classpath:application-it.properties")
+@Import(ITConfiguration.class)
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = SurveyManagementApplication.class)
+@ActiveProfiles("dev")
+public class ExportControllerIT {
+
+  private static final String ENDPOINT_EXPORT = "/manage/export";
+
+  private static final String ENDPOINT_EXPORT_JOB = "/manage/export/job";
+
+  private static final String ENDPOINT_EXPORT_INCREMENTAL = "/manage/export/incremental";
+
+  @Autowired
+  private MockMvc mockMvc;
+
+  @Autowired
+  private ObjectMapper mapper;
+
+  @Autowired
+  private HelperBean helperBean;
+
+  @Autowired
+  private LockerComponent lockerComponent;
+
+  @Autowired
+  private ExportAdmissionComponent exportAdmission;
+
+  @Autowired
+  private TransactionTemplate transactionTemplate;
+
+  @Autowired
+  private EntityManager entityManager;
+
+  @Test
+  public void testUnknownFormat() throws Exception {
+
+    this.mockMvc.perform(MockMvcRequestBuilders.get(ENDPOINT_EXPORT)
+        .param("from", "2020-01-01T00:00:00")
+        .param("to", "2020-01-02T00:00:00")
+        .param("format", "pdf")
+        .with(httpBasic("admin", "admin")))
+        .andExpect(status().isBadRequest());
+  }
+
+  /*
+   * Sheet names are truncated to 31 characters, so both surveys would end up on the same sheet name
+   */
+  @Test
+  public void testWideExportSheetNames() throws Exception {
+
+    final String prefix = "WIDE_" + UUID.randomUUID().toString().replace("-", "");
+    final LocalDateTime from = LocalDateTime.now(ZoneOffset.UTC).minusHours(1).truncatedTo(ChronoUnit.SECONDS);
+    final LocalDateTime to = from.plusHours(2);
+
+    final User user = this.helperBean.createUser(null);
+    this.helperBean.completeSimpleSurvey(user, this.helperBean.createSimpleSurvey(prefix + "_A", false));
+    this.helperBean.completeSimpleSurvey(user, this.helperBean.createSimpleSurvey(prefix + "_B", false));
+
+    final MvcResult result = this.mockMvc.perform(MockMvcRequestBuilders.get(ENDPOINT_EXPORT)
+        .param("from", from.toString())
+        .param("to", to.toString())
+        .param("format", "xlsx")
+        .param("layout", "wide")
+        .param("surveys", prefix + "_A", prefix + "_B")
+        .with(httpBasic("admin", "admin")))
+        .andExpect(request().asyncStarted())
+        .andExpect(header().string(SurveyManagementController.HEADER_QUEUE_POSITION, "0"))
+        .andReturn();
+
+    final byte[] content = this.mockMvc.perform(asyncDispatch(result))
+        .andExpect(status().isOk())
+        .andReturn()
+        .getResponse()
+        .getContentAsByteArray();
+
+    final List<String> sheetNames = new ArrayList<>();
+
+    try (final Workbook workbook = new XSSFWorkbook(new ByteArrayInputStream(content))) {
+      workbook.forEach(sheet -> sheetNames.add(sheet.getSheetName()));
+
+      assertThat(workbook.getSheetAt(1).getRow(1).getCell(0).getStringCellValue(), is(user.getId()));
+    }
+
+    assertThat(sheetNames.size(), is(3));
+    assertThat(sheetNames.get(0), startsWith(prefix.substring(0, 20)));
+    assertThat(sheetNames.get(1), startsWith(prefix.substring(0, 20)));
+    assertThat(sheetNames.get(1), endsWith("_2"));
+    assertThat(sheetNames.get(2), is("stepcount"));
+  }
+
+  /*
+   * The survey filter and the column selection are applied by the queries. The survey responses of
+   * several survey instances are merged in order of their creation time.
+   */
+  @Test
+  public void testSurveyFilterAndColumns() throws Exception {
+
+    final String prefix = "FILTER_" + UUID.randomUUID().toString().replace("-", "");
+    final LocalDateTime from = LocalDateTime.now(ZoneOffset.UTC).minusHours(1).truncatedTo(ChronoUnit.SECONDS);
+    final LocalDateTime to = from.plusHours(2);
+
+    final Survey surveyA = this.helperBean.createSimpleSurvey(prefix + "_A", false);
+    final Survey surveyB = this.helperBean.createSimpleSurvey(prefix + "_B", false);
+    final Survey surveyC = this.helperBean.createSimpleSurvey(prefix + "_C", false);
+
+    for (int i = 0; i < 3; i++) {
+      final User user = this.helperBean.createUser(null);
+      this.helperBean.completeSimpleSurvey(user, surveyA);
+      this.helperBean.completeSimpleSurvey(user, surveyB);
+      this.helperBean.completeSimpleSurvey(user, surveyC);
+    }
+
+    final MvcResult result = this.mockMvc.perform(MockMvcRequestBuilders.get(ENDPOINT_EXPORT)
+        .param("from", from.toString())
+        .param("to", to.toString())
+        .param("format", "jsonl")
+        .param("surveys", prefix + "_A", prefix + "_C")
+        .param("columns", "survey", "userid", "answertimestamp")
+        .with(httpBasic("admin", "admin")))
+        .andExpect(request().asyncStarted())
+        .andReturn();
+
+    final String content = this.mockMvc.perform(asyncDispatch(result))
+        .andExpect(status().isOk())
+        .andReturn()
+        .getResponse()
+        .getContentAsString();
+
+    final Set<String> surveys = new HashSet<>();
+    final List<Instant> timestamps = new ArrayList<>();
+
+    for (final String line : content.split("\n")) {
+
+      final JsonNode node = this.mapper.readTree(line);
+
+      if (!"survey".equals(node.get("dataset").asText()))
+        continue;
+
+      final List<String> fieldNames = new ArrayList<>();
+      node.fieldNames().forEachRemaining(fieldNames::add);
+
+      assertThat(fieldNames, contains("dataset", "survey", "userId", "answerTimestamp"));
+
+      surveys.add(node.get("survey").asText());
+      timestamps.add(Instant.parse(node.get("answerTimestamp").asText()));
+    }
+
+    assertThat(surveys, containsInAnyOrder(prefix + "_A", prefix + "_C"));
+    assertThat(timestamps.size(), is(6));
+
+    final List<Instant> sorted = new ArrayList<>(timestamps);
+    Collections.sort(sorted);
+
+    assertThat(timestamps, is(sorted));
+  }
+
+  /*
+   * Closed intervals are served from the cache until their data changes
+   */
+  @Test
+  public void testCachedExport() throws Exception {
+
+    final LocalDateTime from = LocalDateTime.now(ZoneOffset.UTC).minusHours(1).truncatedTo(ChronoUnit.SECONDS);
+
+    final User user = this.helperBean.createUser(null);
+    this.helperBean.completeSimpleSurvey(user, this.helperBean.createSimpleSurvey("CACHED", false));
+
+    final LocalDateTime to = LocalDateTime.now(ZoneOffset.UTC).plusSeconds(1).truncatedTo(ChronoUnit.SECONDS);
+
+    await()
+        .atMost(Duration.of(10, ChronoUnit.SECONDS))
+        .until(() -> Instant.now().isAfter(to.toInstant(ZoneOffset.UTC)));
+
+    final MvcResult result = export(from, to, null)
+        .andExpect(request().asyncStarted())
+        .andReturn();
+
+    final String content = this.mockMvc.perform(asyncDispatch(result))
+        .andExpect(status().isOk())
+        .andReturn()
+        .getResponse()
+        .getContentAsString();
+
+    final String eTag = result.getResponse().getHeader("ETag");
+
+    assertThat(eTag, is(notNullValue()));
+    assertThat(content, containsString(user.getId()));
+
+    // The version of the data gets queried once the export has been admitted
+    final MvcResult notModified = export(from, to, eTag)
+        .andExpect(request().asyncStarted())
+        .andReturn();
+
+    this.mockMvc.perform(asyncDispatch(notModified))
+        .andExpect(status().isNotModified())
+        .andExpect(content().string(""));
+
+    // Late changes of the closed interval change the version of its data
+    this.transactionTemplate.executeWithoutResult(status -> this.entityManager
+        .createQuery("UPDATE SurveyResponse r SET r.valid = false WHERE r.user.id = ?1")
+        .setParameter(1, user.getId())
+        .executeUpdate());
+
+    final MvcResult modified = export(from, to, eTag)
+        .andExpect(request().asyncStarted())
+        .andReturn();
+
+    this.mockMvc.perform(asyncDispatch(modified))
+        .andExpect(status().isOk())
+        .andExpect(header().string("ETag", not(eTag)));
+  }
+
+  @Test
+  public void testExportJob() throws Exception {
+
+    final MvcResult result = this.mockMvc.perform(MockMvcRequestBuilders.post(ENDPOINT_EXPORT_JOB)
+        .param("from", "2020-01-01T00:00:00")
+        .param("to", "2020-01-02T00:00:00")
+        .param("format", "csv")
+        .with(httpBasic("admin", "admin")))
+        .andExpect(status().isOk())
+        .andReturn();
+
+    final String jobId = this.mapper.readTree(result.getResponse().getContentAsByteArray()).get("id").asText();
+
+    await()
+        .atMost(Duration.of(1, ChronoUnit.MINUTES))
+        .with()
+        .pollInterval(Duration.of(1, ChronoUnit.SECONDS))
+        .until(() -> "COMPLETED".equals(this.mapper.readTree(this.mockMvc
+            .perform(MockMvcRequestBuilders.get(ENDPOINT_EXPORT_JOB + "/" + jobId)
+                .with(httpBasic("admin", "admin")))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getContentAsByteArray()).get("status").asText()));
+
+    this.mockMvc.perform(MockMvcRequestBuilders.get(ENDPOINT_EXPORT_JOB + "/" + jobId + "/download")
+        .with(httpBasic("admin", "admin")))
+        .andExpect(status().isOk());
+
+    // Jobs are not visible to other users
+    this.mockMvc.perform(MockMvcRequestBuilders.get(ENDPOINT_EXPORT_JOB + "/" + jobId)
+        .with(user("other").roles("ADMIN")))
+        .andExpect(status().isBadRequest());
+
+    this.mockMvc.perform(MockMvcRequestBuilders.get(ENDPOINT_EXPORT_JOB + "/" + jobId + "/download")
+        .with(user("other").roles("ADMIN")))
+        .andExpect(status().isBadRequest());
+  }
+
+  @Test
+  public void testUnknownExportJob() throws Exception {
+
+    this.mockMvc.perform(MockMvcRequestBuilders.get(ENDPOINT_EXPORT_JOB + "/unknown")
+        .with(httpBasic("admin", "admin")))
+        .andExpect(status().isBadRequest());
+  }
+
+  @Test
+  public void testIncrementalExport() throws Exception {
+
+    final String consumer = "IT_" + UUID.randomUUID();
+
+    final User user = this.helperBean.createUser(null);
+    this.helperBean.completeSimpleSurvey(user, this.helperBean.createSimpleSurvey("INCREMENTAL", false));
+
+    // Rows within the commit lag are left to the next export
+    assertThat(exportIncremental(consumer), not(containsString(user.getId())));
+
+    await()
+        .atMost(Duration.of(1, ChronoUnit.MINUTES))
+        .with()
+        .pollInterval(Duration.of(1, ChronoUnit.SECONDS))
+        .until(() -> exportIncremental(consumer).contains(user.getId()));
+
+    // Exported rows are not exported again
+    assertThat(exportIncremental(consumer), not(containsString(user.getId())));
+  }
+
+  /*
+   * Concurrent exports are rejected before anything has been written
+   */
+  @Test
+  public void testConcurrentIncrementalExport() throws Exception {
+
+    final String consumer = "IT_" + UUID.randomUUID();
+    final Lease lease = this.lockerComponent.acquire("EXPORT_INCREMENTAL_" + consumer);
+
+    try {
+      final MvcResult result = this.mockMvc.perform(MockMvcRequestBuilders.get(ENDPOINT_EXPORT_INCREMENTAL)
+          .param("consumer", consumer)
+          .param("format", "jsonl")
+          .with(httpBasic("admin", "admin")))
+          .andExpect(request().asyncStarted())
+          .andReturn();
+
+      this.mockMvc.perform(asyncDispatch(result))
+          .andExpect(status().isConflict())
+          .andExpect(header().doesNotExist(SurveyManagementController.HEADER_QUEUE_POSITION));
+
+      // Failed exports release their slot
+      assertThat(this.exportAdmission.getAdmitted(), is(0));
+
+    } finally {
+      this.lockerComponent.release(lease);
+    }
+  }
+
+  private String exportIncremental(final String consumer) throws Exception {
+
+    final MvcResult result = this.mockMvc.perform(MockMvcRequestBuilders.get(ENDPOINT_EXPORT_INCREMENTAL)
+        .param("consumer", consumer)
+        .param("format", "jsonl")
+        .with(httpBasic("admin", "admin")))
+        .andExpect(request().asyncStarted())
+        .andReturn();
+
+    return this.mockMvc.perform(asyncDispatch(result))
+        .andExpect(status().isOk())
+        .andReturn()
+        .getResponse()
+        .getContentAsString();
+  }
+
+  private ResultActions export(final LocalDateTime from, final LocalDateTime to, final String eTag) throws Exception {
+
+    final MockHttpServletRequestBuilder builder = MockMvcRequestBuilders.get(ENDPOINT_EXPORT)
+        .param("from", from.toString())
+        .param("to", to.toString())
+        .param("format", "jsonl")
+        .with(httpBasic("admin", "admin"));
+
+    if (eTag != null)
+      builder.header("If-None-Match", eTag);
+
+    return this.mockMvc.perform(builder);
+  }
+}
@@ -0,0 +1,176 @@
+/**
+ *
+ */
+package one.tracking.framework.integration;
+
+import static org.awaitility.Awaitility.await;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.PayloadApplicationEvent;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.Resource;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.annotation.DirtiesContext.ClassMode;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+import one.tracking.framework.SurveyManagementApplication;
+import one.tracking.framework.component.LeaderElectionComponent;
+import one.tracking.framework.component.LockerComponent;
+import one.tracking.framework.config.ReminderConfig;
+import one.tracking.framework.domain.LeadershipChangedEvent;
+import one.tracking.framework.service.FirebaseService;
+
+/**
+ * Runs two nodes sharing the same database, which compete for the leadership.
+ *
+ * @author Marko Voß
+ *
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@DirtiesContext(classMode = ClassMode.AFTER_EACH_TEST_METHOD)
+public class LeaderElectionIT {
+
+  private final List<Node> nodes = new ArrayList<>();
+
+  @Before
+  public void before() throws Exception {
+
+    final MockBeanInitializer beanInitializer = new MockBeanInitializer(FirebaseService.class);
+
+    final Resource resource = new DefaultResourceLoader().getResource("classpath:application-it.properties");
+    final Properties properties = new Properties();
+    properties.load(resource.getInputStream());
+
+    // Leases expire after 3s, nodes poll for the leadership every second
+    this.nodes.add(new Node(new SpringApplicationBuilder(SurveyManagementApplication.class)
+        .properties(properties).properties("server.port=8081", "spring.jpa.hibernate.ddl-auto=create-drop",
+            "app.timeout.taskLock=3s")
+        .initializers(beanInitializer).profiles("dev").build().run()));
+
+    this.nodes.add(new Node(new SpringApplicationBuilder(SurveyManagementApplication.class)
+        .properties(properties).properties("server.port=8082", "spring.jpa.hibernate.ddl-auto=validate",
+            "app.timeout.taskLock=3s")
+        .initializers(beanInitializer).profiles("dev").build().run()));
+  }
+
+  @After
+  public void after() {
+
+    for (final Node node : this.nodes)
+      node.ctx.close();
+  }
+
+  @Test
+  public void testTakeoverOfExpiredLeadership() throws Exception {
+
+    await()
+        .atMost(Duration.ofSeconds(30))
+        .until(() -> this.nodes.stream().filter(Node::isLeader).count() == 1);
+
+    final Node leader = this.nodes.get(0).isLeader() ? this.nodes.get(0) : this.nodes.get(1);
+    final Node follower = leader == this.nodes.get(0) ? this.nodes.get(1) : this.nodes.get(0);
+
+    // Only the leader polls the reminder schedule
+    await()
+        .atMost(Duration.ofSeconds(10))
+        .until(leader::isPolling);
+
+    assertThat(follower.isLeader(), is(false));
+    assertThat(follower.isPolling(), is(false));
+
+    leader.listen();
+    follower.listen();
+
+    // Simulate a stalled leader, which does not renew its lease any more
+    ReflectionTestUtils.invokeMethod(leader.ctx.getBean(LockerComponent.class), "destroy");
+
+    await()
+        .atMost(Duration.ofSeconds(30))
+        .until(() -> follower.isLeader() && !leader.isLeader());
+
+    await()
+        .atMost(Duration.ofSeconds(10))
+        .until(() -> follower.isPolling() && !leader.isPolling());
+
+    assertThat(follower.events, contains(true));
+    assertThat(leader.events, contains(false));
+
+    // The lease of the new leader is renewed, so the former leader does not take over again
+    Thread.sleep(5000);
+
+    assertThat(follower.isLeader(), is(true));
+    assertThat(leader.isLeader(), is(false));
+    assertThat(follower.events, contains(true));
+  }
+
+  /*
+   * A node resigns the leadership on shutdown, so another node takes over without waiting for the
+   * lease to expire
+   */
+  @Test
+  public void testTakeoverOnShutdown() throws Exception {
+
+    await()
+        .atMost(Duration.ofSeconds(30))
+        .until(() -> this.nodes.stream().filter(Node::isLeader).count() == 1);
+
+    final Node leader = this.nodes.get(0).isLeader() ? this.nodes.get(0) : this.nodes.get(1);
+    final Node follower = leader == this.nodes.get(0) ? this.nodes.get(1) : this.nodes.get(0);
+
+    follower.listen();
+
+    leader.ctx.getBean(LeaderElectionComponent.class).stop();
+
+    await()
+        .atMost(Duration.ofSeconds(10))
+        .until(() -> follower.isLeader() && follower.isPolling());
+
+    assertThat(follower.events, contains(true));
+  }
+
+  private static final class Node {
+
+    private final ConfigurableApplicationContext ctx;
+
+    private final List<Boolean> events = new CopyOnWriteArrayList<>();
+
+    private Node(final ConfigurableApplicationContext ctx) {
+      this.ctx = ctx;
+    }
+
+    private boolean isLeader() {
+      return this.ctx.getBean(LeaderElectionComponent.class).isLeader();
+    }
+
+    private boolean isPolling() {
+      return ReflectionTestUtils.getField(this.ctx.getBean(ReminderConfig.class), "pollFuture") != null;
+    }
+
+    /*
+     * Records the leadership changes published from now on
+     */
+    private void listen() {
+
+      this.ctx.addApplicationListener((ApplicationListener<ApplicationEvent>) event -> {
+
+        if (event instanceof PayloadApplicationEvent
+            && ((PayloadApplicationEvent<?>) event).getPayload() instanceof LeadershipChangedEvent)
+          this.events.add(((LeadershipChangedEvent) ((PayloadApplicationEvent<?>) event).getPayload()).isLeader());
+      });
+    }
+  }
+}
@@ -0,0 +1,143 @@
+/**
+ *
+ */
+package one.tracking.framework.integration;
+
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import java.time.Instant;
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.annotation.DirtiesContext.ClassMode;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.support.TransactionTemplate;
+import one.tracking.framework.SurveyManagementApplication;
+import one.tracking.framework.component.LockerComponent;
+import one.tracking.framework.domain.Lease;
+import one.tracking.framework.entity.RollupState;
+import one.tracking.framework.exception.LeaseLostException;
+
+/**
+ * @author Marko Voß
+ *
+ */
+@TestPropertySource(locations = "classpath:application-it.properties")
+@Import(ITConfiguration.class)
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = SurveyManagementApplication.class)
+@DirtiesContext(classMode = ClassMode.AFTER_EACH_TEST_METHOD)
+@ActiveProfiles("dev")
+public class LockerComponentIT {
+
+  @Autowired
+  private LockerComponent lockerComponent;
+
+  @Autowired
+  private TransactionTemplate transactionTemplate;
+
+  @Autowired
+  private EntityManager entityManager;
+
+  @Test
+  public void testAcquireAndRelease() throws Exception {
+
+    final Lease lease = this.lockerComponent.acquire("TEST");
+
+    assertThat(lease, is(not(nullValue())));
+    assertThat(this.lockerComponent.acquire("TEST"), is(nullValue()));
+
+    // Different tasks must not interfere
+    final Lease other = this.lockerComponent.acquire("OTHER");
+    assertThat(other, is(not(nullValue())));
+
+    assertThat(this.lockerComponent.renew(lease), is(true));
+    this.lockerComponent.verify(lease);
+
+    assertThat(this.lockerComponent.release(lease), is(true));
+
+    final Lease next = this.lockerComponent.acquire("TEST");
+
+    assertThat(next, is(not(nullValue())));
+    assertThat(next.getToken(), is(greaterThan(lease.getToken())));
+
+    this.lockerComponent.release(next);
+    this.lockerComponent.release(other);
+  }
+
+  @Test(expected = LeaseLostException.class)
+  public void testTakeoverOfExpiredLease() throws Exception {
+
+    final Lease lease = this.lockerComponent.acquire("TEST");
+    assertThat(lease, is(not(nullValue())));
+
+    // Simulate a holder which did not renew its lease in time
+    this.transactionTemplate.executeWithoutResult(status -> {
+      final Query query =
+          this.entityManager.createQuery("UPDATE SchedulerLease l SET l.expiresAt = ?1 WHERE l.taskName = ?2");
+      query.setParameter(1, Instant.now().minusSeconds(1));
+      query.setParameter(2, "TEST");
+      query.executeUpdate();
+    });
+
+    final Lease takeover = this.lockerComponent.acquire("TEST");
+
+    assertThat(takeover, is(not(nullValue())));
+    assertThat(takeover.getToken(), is(greaterThan(lease.getToken())));
+    this.lockerComponent.verify(takeover);
+
+    assertThat(this.lockerComponent.renew(lease), is(false));
+    assertThat(this.lockerComponent.release(lease), is(false));
+
+    this.lockerComponent.verify(lease);
+  }
+
+  @Test
+  public void testFencedWrites() throws Exception {
+
+    final Lease lease = this.lockerComponent.acquire("TEST");
+    assertThat(lease, is(not(nullValue())));
+
+    this.lockerComponent.executeFencedWithoutResult(lease, status -> this.entityManager.persist(
+        RollupState.builder().name("FENCED").processedUntil(Instant.EPOCH).build()));
+
+    // Simulate a holder which did not renew its lease in time
+    this.transactionTemplate.executeWithoutResult(status -> {
+      final Query query =
+          this.entityManager.createQuery("UPDATE SchedulerLease l SET l.expiresAt = ?1 WHERE l.taskName = ?2");
+      query.setParameter(1, Instant.now().minusSeconds(1));
+      query.setParameter(2, "TEST");
+      query.executeUpdate();
+    });
+
+    final Lease takeover = this.lockerComponent.acquire("TEST");
+    assertThat(takeover, is(not(nullValue())));
+
+    try {
+      this.lockerComponent.executeFencedWithoutResult(lease, status -> this.entityManager.persist(
+          RollupState.builder().name("LOST").processedUntil(Instant.EPOCH).build()));
+      fail("Expected LeaseLostException");
+    } catch (final LeaseLostException e) {
+      // expected
+    }
+
+    assertThat(lease.isLost(), is(true));
+    assertThat(this.transactionTemplate.execute(
+        status -> this.entityManager.find(RollupState.class, "FENCED")), is(not(nullValue())));
+    assertThat(this.transactionTemplate.execute(
+        status -> this.entityManager.find(RollupState.class, "LOST")), is(nullValue()));
+
+    this.lockerComponent.release(takeover);
+  }
+}
@@ -10,7 +10,6 @@ import static org.hamcrest.Matchers.nullValue;
 import static org.junit.Assert.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyList;
-import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -30,12 +29,11 @@ import org.springframework.test.annotation.DirtiesContext.ClassMode;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.junit4.SpringRunner;
-import com.google.firebase.messaging.BatchResponse;
-import com.google.firebase.messaging.FirebaseMessagingException;
-import com.google.firebase.messaging.SendResponse;
 import one.tracking.framework.SurveyManagementApplication;
 import one.tracking.framework.component.ReminderComponent;
+import one.tracking.framework.domain.PushBatchResponse;
 import one.tracking.framework.domain.PushNotificationRequest;
+import one.tracking.framework.domain.PushSendResponse;
 import one.tracking.framework.domain.ReminderTaskResult;
 import one.tracking.framework.domain.ReminderTaskResult.StateType;
 import one.tracking.framework.entity.DeviceToken;
@@ -85,60 +83,42 @@ public class ReminderIT {
     // final int fcmDelay = 5 * 1000;
     final int fcmDelay = 0;
 
-    final SendResponse sendResponseSuccess = mock(SendResponse.class);
-    when(sendResponseSuccess.isSuccessful()).thenReturn(true);
-    when(sendResponseSuccess.getMessageId()).thenReturn("Ok");
+    final PushSendResponse sendResponseSuccess = PushSendResponse.builder()
+        .successful(true)
+        .messageId("Ok")
+        .build();
 
-    final FirebaseMessagingException exNotRegistered = mock(FirebaseMessagingException.class);
-    when(exNotRegistered.getErrorCode())
-        .thenReturn(ReminderComponent.ERROR_CODE_REGISTRATION_TOKEN_NOT_REGISTERED);
+    final PushSendResponse sendResponseNotRegistered = PushSendResponse.builder()
+        .successful(false)
+        .errorCode(ReminderComponent.ERROR_CODE_REGISTRATION_TOKEN_NOT_REGISTERED)
+        .build();
 
-    final FirebaseMessagingException exInvalidToken = mock(FirebaseMessagingException.class);
-    when(exInvalidToken.getErrorCode())
-        .thenReturn(ReminderComponent.ERROR_CODE_INVALID_REGISTRATION_TOKEN);
+    final PushSendResponse sendResponseInvalidToken = PushSendResponse.builder()
+        .successful(false)
+        .errorCode(ReminderComponent.ERROR_CODE_INVALID_REGISTRATION_TOKEN)
+        .build();
 
-    final FirebaseMessagingException exOther = mock(FirebaseMessagingException.class);
-    when(exOther.getErrorCode())
-        .thenReturn("messaging/server-unavailable");
+    final PushSendResponse sendResponseOtherError = PushSendResponse.builder()
+        .successful(false)
+        .errorCode("messaging/server-unavailable")
+        .build();
 
-    final SendResponse sendResponseNotRegistered = mock(SendResponse.class);
-    when(sendResponseNotRegistered.isSuccessful()).thenReturn(false);
-    when(sendResponseNotRegistered.getException()).thenReturn(exNotRegistered);
-
-    final SendResponse sendResponseInvalidToken = mock(SendResponse.class);
-    when(sendResponseInvalidToken.isSuccessful()).thenReturn(false);
-    when(sendResponseInvalidToken.getException()).thenReturn(exInvalidToken);
-
-    final SendResponse sendResponseOtherError = mock(SendResponse.class);
-    when(sendResponseOtherError.isSuccessful()).thenReturn(false);
-    when(sendResponseOtherError.getException()).thenReturn(exOther);
-
-    final List<SendResponse> sendResponses = new ArrayList<>(fcmBatchSize);
-
-    int countSuccessPerFcmBatch = 0;
-    int countFailPerFcmBatch = 0;
+    final List<PushSendResponse> sendResponses = new ArrayList<>(fcmBatchSize);
 
     for (int i = 0; i < fcmBatchSize; i++) {
 
       if (i % 4 == 0) {
         sendResponses.add(sendResponseSuccess);
-        countSuccessPerFcmBatch++;
       } else if (i % 4 == 1) {
         sendResponses.add(sendResponseNotRegistered); // invalid DeviceToken -> do no longer use this token
-        countFailPerFcmBatch++;
       } else if (i % 4 == 2) {
         sendResponses.add(sendResponseInvalidToken); // invalid DeviceToken -> do no longer use this token
-        countFailPerFcmBatch++;
       } else {
         sendResponses.add(sendResponseOtherError); // failed to send -> keep using the DeviceToken
-        countFailPerFcmBatch++;
       }
     }
 
-    final BatchResponse batchResponse = mock(BatchResponse.class);
-    when(batchResponse.getSuccessCount()).thenReturn(countSuccessPerFcmBatch);
-    when(batchResponse.getFailureCount()).thenReturn(countFailPerFcmBatch);
-    when(batchResponse.getResponses()).thenReturn(sendResponses);
+    final PushBatchResponse batchResponse = PushBatchResponse.builder().responses(sendResponses).build();
 
     when(this.firebaseService.isAvailable()).thenReturn(true);
 
@@ -0,0 +1,267 @@
+/**
+ *
+ */
+package one.tracking.framework.integration;
+
+import static org.awaitility.Awaitility.await;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.httpBasic;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import javax.persistence.EntityManager;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.annotation.DirtiesContext.ClassMode;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.transaction.support.TransactionTemplate;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import one.tracking.framework.SurveyManagementApplication;
+import one.tracking.framework.component.ReminderComponent;
+import one.tracking.framework.config.ReminderConfig;
+import one.tracking.framework.config.ScheduleProperties;
+import one.tracking.framework.domain.MisfirePolicy;
+import one.tracking.framework.dto.ReminderScheduleDto;
+import one.tracking.framework.entity.ReminderSchedule;
+import one.tracking.framework.entity.meta.IntervalType;
+import one.tracking.framework.entity.meta.ReleaseStatusType;
+import one.tracking.framework.entity.meta.ReminderType;
+import one.tracking.framework.entity.meta.Survey;
+import one.tracking.framework.repo.SurveyRepository;
+
+/**
+ * @author Marko Voß
+ *
+ */
+@AutoConfigureMockMvc
+@TestPropertySource(locations = "classpath:application-it.properties")
+@Import(ITConfiguration.class)
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = SurveyManagementApplication.class)
+@DirtiesContext(classMode = ClassMode.AFTER_EACH_TEST_METHOD)
+@ActiveProfiles("dev")
+public class ReminderScheduleIT {
+
+  private static final String ENDPOINT_SCHEDULE = "/manage/schedule";
+
+  private static final String ENDPOINT_RELEASE = "/manage/survey/{nameId}/release";
+
+  private static final Instant FAR_FUTURE = Instant.parse("2100-01-01T12:00:00Z");
+
+  @MockBean
+  private ReminderComponent reminderComponent;
+
+  @Autowired
+  private MockMvc mockMvc;
+
+  @Autowired
+  private ObjectMapper mapper;
+
+  @Autowired
+  private ReminderConfig reminderConfig;
+
+  @Autowired
+  private HelperBean helperBean;
+
+  @Autowired
+  private SurveyRepository surveyRepository;
+
+  @Autowired
+  private TransactionTemplate transactionTemplate;
+
+  @Autowired
+  private EntityManager entityManager;
+
+  @Before
+  public void before() {
+
+    when(this.reminderComponent.isAvailable()).thenReturn(true);
+
+    // This node becomes the leader on startup. Polls are triggered by the tests only.
+    await()
+        .atMost(Duration.ofSeconds(30))
+        .until(() -> ReflectionTestUtils.getField(this.reminderConfig, "pollFuture") != null);
+
+    this.reminderConfig.cancelSchedule();
+  }
+
+  /*
+   * Runs missed by more than the grace period are executed once by the policy FIRE_ONCE
+   */
+  @Test
+  public void testMisfireFireOnce() throws Exception {
+
+    final Instant missed = Instant.now().minus(2, ChronoUnit.HOURS);
+    createSchedule("MISFIRED", missed);
+
+    poll();
+
+    verify(this.reminderComponent, timeout(5000).times(1)).sendReminder("MISFIRED");
+
+    final ReminderSchedule schedule = getSchedule("MISFIRED");
+
+    assertThat(schedule.getNextFireAt(), is(greaterThan(Instant.now())));
+    assertThat(schedule.getLastFireAt(), is(not(nullValue())));
+
+    // The schedule has been advanced, so the run is not executed again
+    poll();
+
+    verify(this.reminderComponent, after(1000).times(1)).sendReminder("MISFIRED");
+  }
+
+  /*
+   * Runs missed by more than the grace period are skipped by the policy SKIP
+   */
+  @Test
+  public void testMisfireSkip() throws Exception {
+
+    ReflectionTestUtils.setField(this.reminderConfig, "scheduleConfig",
+        new ScheduleProperties(Duration.ofSeconds(30), Duration.ofHours(1), MisfirePolicy.SKIP));
+
+    createSchedule("MISFIRED", Instant.now().minus(2, ChronoUnit.HOURS));
+
+    // Runs due within the grace period are executed anyway
+    createSchedule("DUE", Instant.now().minus(1, ChronoUnit.MINUTES));
+
+    poll();
+
+    verify(this.reminderComponent, timeout(5000).times(1)).sendReminder("DUE");
+    verify(this.reminderComponent, after(1000).never()).sendReminder("MISFIRED");
+
+    final ReminderSchedule schedule = getSchedule("MISFIRED");
+
+    assertThat(schedule.getNextFireAt(), is(greaterThan(Instant.now())));
+    assertThat(schedule.getLastFireAt(), is(nullValue()));
+  }
+
+  /*
+   * Each due schedule gets advanced by a conditional update, so concurrent polls fire it only once
+   */
+  @Test
+  public void testConcurrentPolls() throws Exception {
+
+    createSchedule("CONCURRENT", Instant.now().minus(1, ChronoUnit.MINUTES));
+
+    final int polls = 10;
+    final ExecutorService executor = Executors.newFixedThreadPool(polls);
+    final CountDownLatch latch = new CountDownLatch(1);
+
+    try {
+      final List<Future<?>> futures = new ArrayList<>(polls);
+
+      for (int i = 0; i < polls; i++)
+        futures.add(executor.submit(() -> {
+          latch.await();
+          poll();
+          return null;
+        }));
+
+      latch.countDown();
+
+      for (final Future<?> future : futures)
+        future.get(30, TimeUnit.SECONDS);
+
+    } finally {
+      executor.shutdownNow();
+    }
+
+    verify(this.reminderComponent, after(1000).times(1)).sendReminder("CONCURRENT");
+  }
+
+  /*
+   * Releasing a survey reschedules its nameId only
+   */
+  @Test
+  public void testReleaseReschedulesSurvey() throws Exception {
+
+    createSchedule("OTHER", FAR_FUTURE);
+
+    final Survey survey = this.helperBean.createSimpleSurvey("RELEASE", true);
+    this.surveyRepository.save(survey.toBuilder().releaseStatus(ReleaseStatusType.NEW).build());
+
+    assertThat(this.reminderConfig.getNextFireTimes().containsKey("RELEASE"), is(false));
+
+    this.mockMvc.perform(MockMvcRequestBuilders.post(ENDPOINT_RELEASE, "RELEASE")
+        .with(httpBasic("admin", "admin")))
+        .andExpect(status().isOk());
+
+    assertThat(this.reminderConfig.getNextFireTimes().get("RELEASE"), is(greaterThan(Instant.now())));
+    assertThat(this.reminderConfig.getNextFireTimes().get("OTHER"), is(FAR_FUTURE));
+
+    final ReminderScheduleDto[] schedule = this.mapper.readValue(
+        this.mockMvc.perform(MockMvcRequestBuilders.get(ENDPOINT_SCHEDULE)
+            .with(httpBasic("admin", "admin")))
+            .andExpect(status().isOk())
+            .andReturn()
+            .getResponse()
+            .getContentAsString(),
+        ReminderScheduleDto[].class);
+
+    final List<String> nameIds = Arrays.stream(schedule)
+        .map(ReminderScheduleDto::getNameId)
+        .collect(Collectors.toList());
+
+    assertThat(nameIds, hasItem("RELEASE"));
+    assertThat(nameIds, hasItem("OTHER"));
+
+    // Ordered by the next fire time
+    assertThat(nameIds.get(nameIds.size() - 1), is("OTHER"));
+
+    verify(this.reminderComponent, never()).sendReminder(anyString());
+  }
+
+  private void poll() {
+    ReflectionTestUtils.invokeMethod(this.reminderConfig, "poll");
+  }
+
+  private void createSchedule(final String nameId, final Instant nextFireAt) {
+
+    this.transactionTemplate.executeWithoutResult(status -> this.entityManager.persist(ReminderSchedule.builder()
+        .nameId(nameId)
+        .intervalStart(Instant.parse("2020-05-11T12:00:00Z"))
+        .intervalType(IntervalType.WEEKLY)
+        .intervalValue(1)
+        .reminderType(ReminderType.AFTER_DAYS)
+        .reminderValue(2)
+        .nextFireAt(nextFireAt)
+        .build()));
+  }
+
+  private ReminderSchedule getSchedule(final String nameId) {
+    return this.transactionTemplate.execute(status -> this.entityManager.find(ReminderSchedule.class, nameId));
+  }
+}
@@ -0,0 +1,115 @@
+/**
+ *
+ */
+package one.tracking.framework.integration;
+
+import static org.hamcrest.Matchers.contains;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.httpBasic;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.UUID;
+import javax.persistence.EntityManager;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.transaction.support.TransactionTemplate;
+import one.tracking.framework.SurveyManagementApplication;
+import one.tracking.framework.entity.SurveyResponse;
+import one.tracking.framework.entity.User;
+import one.tracking.framework.entity.meta.Survey;
+
+/**
+ * @author Marko Voß
+ *
+ */
+@AutoConfigureMockMvc
+@TestPropertySource(locations = "classpath:application-it.properties")
+@Import(ITConfiguration.class)
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = SurveyManagementApplication.class)
+@ActiveProfiles("dev")
+public class ReportIT {
+
+  private static final String ENDPOINT_REPORT = "/manage/report";
+
+  @Autowired
+  private MockMvc mockMvc;
+
+  @Autowired
+  private HelperBean helperBean;
+
+  @Autowired
+  private TransactionTemplate transactionTemplate;
+
+  @Autowired
+  private EntityManager entityManager;
+
+  /*
+   * Superseded answer versions and invalid responses must not be counted
+   */
+  @Test
+  public void testReportCountsCurrentValidResponses() throws Exception {
+
+    final String nameId = "REPORT_" + UUID.randomUUID();
+    final LocalDateTime from = LocalDateTime.now(ZoneOffset.UTC).minusHours(1).truncatedTo(ChronoUnit.SECONDS);
+
+    final Survey survey = this.helperBean.createSimpleSurvey(nameId, false);
+
+    // Answers "true" first, then changes the answer to "false"
+    final User user = this.helperBean.createUser(null);
+    this.helperBean.completeSimpleSurvey(user, survey);
+    addAnswerVersion(user, false, 1);
+
+    // Answers "true", but the response got invalidated
+    final User invalidUser = this.helperBean.createUser(null);
+    this.helperBean.completeSimpleSurvey(invalidUser, survey);
+    this.transactionTemplate.executeWithoutResult(status -> this.entityManager
+        .createQuery("UPDATE SurveyResponse r SET r.valid = false WHERE r.user.id = ?1")
+        .setParameter(1, invalidUser.getId())
+        .executeUpdate());
+
+    final String instance = "$.instances[?(@.nameId == '" + nameId + "')]";
+
+    this.mockMvc.perform(MockMvcRequestBuilders.get(ENDPOINT_REPORT)
+        .param("from", from.toString())
+        .param("to", from.plusHours(2).toString())
+        .with(httpBasic("admin", "admin")))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath(instance + ".participants", contains(1)))
+        .andExpect(jsonPath(instance + ".responses", contains(1)))
+        .andExpect(jsonPath(instance + ".answerCounts[*].answer", contains("false")))
+        .andExpect(jsonPath(instance + ".answerCounts[*].count", contains(1)));
+  }
+
+  private void addAnswerVersion(final User user, final boolean answer, final int version) {
+
+    this.transactionTemplate.executeWithoutResult(status -> {
+
+      final SurveyResponse previous = this.entityManager
+          .createQuery("SELECT r FROM SurveyResponse r WHERE r.user.id = ?1", SurveyResponse.class)
+          .setParameter(1, user.getId())
+          .setMaxResults(1)
+          .getSingleResult();
+
+      this.entityManager.persist(SurveyResponse.builder()
+          .boolAnswer(answer)
+          .surveyInstance(previous.getSurveyInstance())
+          .question(previous.getQuestion())
+          .user(user)
+          .version(version)
+          .valid(true)
+          .build());
+    });
+  }
+}
@@ -0,0 +1,113 @@
+/**
+ *
+ */
+package one.tracking.framework.integration;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import javax.persistence.EntityManager;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.support.TransactionTemplate;
+import one.tracking.framework.SurveyManagementApplication;
+import one.tracking.framework.component.StepCountRollupComponent;
+import one.tracking.framework.entity.StepCountDaily;
+import one.tracking.framework.entity.StepCountDailyId;
+import one.tracking.framework.entity.User;
+import one.tracking.framework.entity.health.StepCount;
+
+/**
+ * @author Marko Voß
+ *
+ */
+@TestPropertySource(locations = "classpath:application-it.properties")
+@Import(ITConfiguration.class)
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = SurveyManagementApplication.class)
+@ActiveProfiles("dev")
+public class StepCountRollupIT {
+
+  @Autowired
+  private StepCountRollupComponent rollupComponent;
+
+  @Autowired
+  private HelperBean helperBean;
+
+  @Autowired
+  private TransactionTemplate transactionTemplate;
+
+  @Autowired
+  private EntityManager entityManager;
+
+  @Test
+  public void testRollup() throws Exception {
+
+    final User user = this.helperBean.createUser(null);
+    final LocalDate today = LocalDate.now(ZoneOffset.UTC);
+    final Instant startOfDay = today.atStartOfDay(ZoneOffset.UTC).toInstant();
+
+    final Long first = addStepCount(user, startOfDay, 100);
+    addStepCount(user, startOfDay.plus(Duration.ofMinutes(1)), 50);
+
+    this.rollupComponent.run();
+
+    assertThat(getDailyStepCount(user, today), is(150L));
+
+    // Updated step counts get rolled up again
+    this.transactionTemplate.executeWithoutResult(status -> this.entityManager
+        .createQuery("UPDATE StepCount s SET s.stepCount = 200, s.updatedAt = ?2 WHERE s.id = ?1")
+        .setParameter(1, first)
+        .setParameter(2, Instant.now())
+        .executeUpdate());
+
+    this.rollupComponent.run();
+
+    assertThat(getDailyStepCount(user, today), is(250L));
+
+    // Days without step counts anymore get removed
+    this.transactionTemplate.executeWithoutResult(status -> this.entityManager
+        .createQuery("DELETE FROM StepCount s WHERE s.user.id = ?1")
+        .setParameter(1, user.getId())
+        .executeUpdate());
+
+    this.rollupComponent.run();
+
+    assertThat(getDailyStepCount(user, today), is(nullValue()));
+  }
+
+  private Long addStepCount(final User user, final Instant startTime, final int stepCount) {
+
+    return this.transactionTemplate.execute(status -> {
+
+      final StepCount result = StepCount.builder()
+          .user(user)
+          .startTime(startTime)
+          .endTime(startTime.plus(Duration.ofMinutes(1)))
+          .stepCount(stepCount)
+          .build();
+
+      this.entityManager.persist(result);
+      return result.getId();
+    });
+  }
+
+  private Long getDailyStepCount(final User user, final LocalDate day) {
+
+    return this.transactionTemplate.execute(status -> {
+      final StepCountDaily daily =
+          this.entityManager.find(StepCountDaily.class, new StepCountDailyId(user.getId(), day));
+      return daily == null ? null : daily.getStepCount();
+    });
+  }
+}
@@ -0,0 +1,130 @@
+/**
+ *
+ */
+package one.tracking.framework.integration;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.persistence.EntityManager;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.support.TransactionTemplate;
+import one.tracking.framework.SurveyManagementApplication;
+import one.tracking.framework.component.SurveyDataExportComponent;
+import one.tracking.framework.entity.User;
+import one.tracking.framework.entity.health.StepCount;
+
+/**
+ * Verifies that reading a large amount of step counts keeps the heap bounded. The dataset is stored
+ * in a file based H2 database in MySQL mode, so it does not occupy the heap itself. By default, a
+ * small dataset is used, so that the test runs with every build. As inserting the dataset takes a
+ * while, large datasets have to be requested explicitly: <code>mvn verify -Dit.streaming.rows=5000000</code>
+ *
+ * @author Marko Voß
+ *
+ */
+@TestPropertySource(locations = "classpath:application-it.properties", properties = {
+    "spring.datasource.url=jdbc:h2:file:./target/streaming-it;MODE=MySQL",
+    "spring.jpa.hibernate.ddl-auto=create-drop",
+    "app.streaming.enabled=true"})
+@Import(ITConfiguration.class)
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = SurveyManagementApplication.class)
+@ActiveProfiles("dev")
+public class StreamingReadIT {
+
+  private static final String PROPERTY_ROWS = "it.streaming.rows";
+
+  private static final long DEFAULT_ROWS = 5000;
+
+  private static final int SAMPLES = 10;
+
+  private static final int USERS = 1000;
+
+  private static final int CHUNK_SIZE = 10000;
+
+  private static final long MAX_HEAP_GROWTH = 64L * 1024 * 1024;
+
+  @Autowired
+  private SurveyDataExportComponent exportComponent;
+
+  @Autowired
+  private HelperBean helperBean;
+
+  @Autowired
+  private TransactionTemplate transactionTemplate;
+
+  @Autowired
+  private EntityManager entityManager;
+
+  @Test
+  public void testForEachStepCount() throws Exception {
+
+    final long rows = Long.getLong(PROPERTY_ROWS, DEFAULT_ROWS);
+    final long sampleInterval = Math.max(1, rows / SAMPLES);
+
+    final Instant startTime = Instant.now();
+    insertStepCounts(rows);
+    final Instant endTime = Instant.now();
+
+    final AtomicLong count = new AtomicLong();
+    final AtomicLong maxGrowth = new AtomicLong();
+    final long baseline = getUsedHeap();
+
+    this.exportComponent.forEachStepCount(startTime, endTime, row -> {
+      if (count.incrementAndGet() % sampleInterval == 0)
+        maxGrowth.accumulateAndGet(getUsedHeap() - baseline, Math::max);
+    });
+
+    assertThat(count.get(), is(rows));
+    assertThat(maxGrowth.get(), is(lessThan(MAX_HEAP_GROWTH)));
+  }
+
+  private void insertStepCounts(final long rows) {
+
+    final List<User> users = new ArrayList<>(USERS);
+    for (int i = 0; i < USERS; i++) {
+      users.add(this.helperBean.createUser(null));
+    }
+
+    final Instant firstStartTime = Instant.now().minus(Duration.ofDays(365));
+
+    for (long offset = 0; offset < rows; offset += CHUNK_SIZE) {
+
+      final long chunkOffset = offset;
+      final long chunkEnd = Math.min(rows, offset + CHUNK_SIZE);
+
+      this.transactionTemplate.executeWithoutResult(status -> {
+        for (long i = chunkOffset; i < chunkEnd; i++) {
+
+          final Instant start = firstStartTime.plus(Duration.ofMinutes(i / USERS));
+
+          this.entityManager.persist(StepCount.builder()
+              .user(users.get((int) (i % USERS)))
+              .startTime(start)
+              .endTime(start.plus(Duration.ofMinutes(1)))
+              .stepCount((int) (i % 200))
+              .build());
+        }
+      });
+    }
+  }
+
+  private static long getUsedHeap() {
+    final Runtime runtime = Runtime.getRuntime();
+    System.gc();
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+}